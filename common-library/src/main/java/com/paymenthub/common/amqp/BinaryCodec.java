@@ -0,0 +1,211 @@
+package com.paymenthub.common.amqp;
+
+import com.paymenthub.common.dto.RabbitMessage;
+import com.paymenthub.common.dto.TransactionResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Wire format for application/x-paymenthub-binary.
+ *
+ *   byte    version (1)
+ *   byte    type    (1 = RabbitMessage, 2 = TransactionResponse)
+ *   fields  in declaration order below
+ *
+ * String → varint (length + 1, 0 = null) + UTF-8 bytes
+ * Long   → byte 0 (null) or 1 + 8 bytes big-endian
+ *
+ * RabbitMessage.plainJsonPayload goes in as its raw UTF-8 bytes — no
+ * JSON escaping, no second parse on the way out. New fields may only be
+ * appended; a reader stops at the end of the buffer and leaves any
+ * field it didn't find null, so version 1 readers and writers of
+ * different ages interoperate.
+ */
+public final class BinaryCodec {
+
+    public static final byte VERSION = 1;
+    static final byte TYPE_RABBIT_MESSAGE = 1;
+    static final byte TYPE_TRANSACTION_RESPONSE = 2;
+
+    private BinaryCodec() {
+    }
+
+    public static boolean supports(Object object) {
+        return object instanceof RabbitMessage || object instanceof TransactionResponse;
+    }
+
+    public static byte[] encode(Object object) {
+        if (object instanceof RabbitMessage m) {
+            int payload = m.getPlainJsonPayload() == null ? 0 : m.getPlainJsonPayload().length();
+            Writer w = new Writer(64 + payload * 3 / 2, TYPE_RABBIT_MESSAGE);
+            w.string(m.getCorrelationId());
+            w.string(m.getPlainJsonPayload());
+            w.string(m.getSource());
+            w.string(m.getDestination());
+            w.int64(m.getTimestamp());
+            w.string(m.getReplyTo());
+            return w.toByteArray();
+        }
+        if (object instanceof TransactionResponse r) {
+            Writer w = new Writer(160, TYPE_TRANSACTION_RESPONSE);
+            w.string(r.getCorrelationId());
+            w.string(r.getStatus());
+            w.string(r.getResponseCode());
+            w.string(r.getResponseMessage());
+            w.string(r.getTransactionId());
+            w.string(r.getRrn());
+            w.string(r.getApprovalCode());
+            w.string(r.getBalance());
+            w.int64(r.getTimestamp());
+            return w.toByteArray();
+        }
+        throw new IllegalArgumentException(
+                "No binary encoding for " + object.getClass().getName());
+    }
+
+    public static Object decode(byte[] bytes) {
+        if (bytes.length < 2 || bytes[0] != VERSION) {
+            throw new IllegalArgumentException("Unsupported binary message version "
+                    + (bytes.length == 0 ? "<empty>" : bytes[0]));
+        }
+        Reader r = new Reader(bytes, 2);
+        return switch (bytes[1]) {
+            case TYPE_RABBIT_MESSAGE -> RabbitMessage.builder()
+                    .correlationId(r.string())
+                    .plainJsonPayload(r.string())
+                    .source(r.string())
+                    .destination(r.string())
+                    .timestamp(r.int64())
+                    .replyTo(r.string())
+                    .build();
+            case TYPE_TRANSACTION_RESPONSE -> TransactionResponse.builder()
+                    .correlationId(r.string())
+                    .status(r.string())
+                    .responseCode(r.string())
+                    .responseMessage(r.string())
+                    .transactionId(r.string())
+                    .rrn(r.string())
+                    .approvalCode(r.string())
+                    .balance(r.string())
+                    .timestamp(r.int64())
+                    .build();
+            default -> throw new IllegalArgumentException(
+                    "Unknown binary message type " + bytes[1]);
+        };
+    }
+
+    // ── Writer ───────────────────────────────────────────────────
+    private static final class Writer {
+
+        private byte[] buf;
+        private int pos;
+
+        Writer(int capacity, byte type) {
+            buf = new byte[Math.max(capacity, 16)];
+            buf[pos++] = VERSION;
+            buf[pos++] = type;
+        }
+
+        void string(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+            varint(utf8.length + 1);
+            ensure(utf8.length);
+            System.arraycopy(utf8, 0, buf, pos, utf8.length);
+            pos += utf8.length;
+        }
+
+        void int64(Long value) {
+            ensure(9);
+            if (value == null) {
+                buf[pos++] = 0;
+                return;
+            }
+            buf[pos++] = 1;
+            long v = value;
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                buf[pos++] = (byte) (v >>> shift);
+            }
+        }
+
+        private void varint(int value) {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buf[pos++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[pos++] = (byte) value;
+        }
+
+        private void ensure(int extra) {
+            if (pos + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, pos + extra));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buf, pos);
+        }
+    }
+
+    // ── Reader — missing trailing fields read as null ────────────
+    private static final class Reader {
+
+        private final byte[] buf;
+        private int pos;
+
+        Reader(byte[] buf, int pos) {
+            this.buf = buf;
+            this.pos = pos;
+        }
+
+        String string() {
+            if (pos >= buf.length) {
+                return null;
+            }
+            int length = varint() - 1;
+            if (length < 0) {
+                return null;
+            }
+            if (length > buf.length - pos) {
+                throw new IllegalArgumentException("Truncated binary message");
+            }
+            String value = new String(buf, pos, length, StandardCharsets.UTF_8);
+            pos += length;
+            return value;
+        }
+
+        Long int64() {
+            if (pos >= buf.length || buf[pos++] == 0) {
+                return null;
+            }
+            if (buf.length - pos < 8) {
+                throw new IllegalArgumentException("Truncated binary message");
+            }
+            long v = 0;
+            for (int i = 0; i < 8; i++) {
+                v = (v << 8) | (buf[pos++] & 0xFF);
+            }
+            return v;
+        }
+
+        private int varint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                if (pos >= buf.length) {
+                    throw new IllegalArgumentException("Truncated binary message");
+                }
+                byte b = buf[pos++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Malformed varint");
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.paymenthub.common.amqp;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.MessagePropertiesBuilder;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Inflates deflated message bodies on the way in and, when
+ * compressOutbound is on, deflates bodies of threshold-bytes or more on
+ * the way out, around any other converter.
+ *
+ * Marked with Spring AMQP's content-encoding convention,
+ * "deflate" or "deflate:&lt;original encoding&gt;", so a consumer that only
+ * knows the inner converter rejects the message instead of misreading
+ * it. Uncompressed messages pass straight through. Roll out like
+ * binary-outbound: deploy everywhere with outbound off (every service
+ * can then inflate), then switch it on service by service.
+ *
+ * The received message is never modified — the inflated copy gets its
+ * own properties — so a caller that forwards the original (the router)
+ * still sends it with its deflate marker.
+ *
+ * Deflater/Inflater hold native buffers, so they are pooled rather than
+ * created per message. Metrics, tagged with this service as the hop:
+ *   amqp.compression.ratio   compressed / original size
+ *   amqp.compression.time    time spent, op=compress|decompress
+ */
+public class CompressingMessageConverter implements MessageConverter {
+
+    public static final String DEFLATE = "deflate";
+
+    private static final int POOL_SIZE = 64;
+    private static final int MAX_INFLATED_BYTES = 16 * 1024 * 1024;
+
+    private final MessageConverter delegate;
+    private final boolean compressOutbound;
+    private final int thresholdBytes;
+    private final int level;
+    private final BlockingQueue<Deflater> deflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+    private final BlockingQueue<Inflater> inflaters = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    private final DistributionSummary ratio;
+    private final Timer compressTime;
+    private final Timer decompressTime;
+
+    public CompressingMessageConverter(MessageConverter delegate, boolean compressOutbound,
+                                       int thresholdBytes, int level,
+                                       MeterRegistry meterRegistry, String hop) {
+        this.delegate = delegate;
+        this.compressOutbound = compressOutbound;
+        this.thresholdBytes = thresholdBytes;
+        this.level = level;
+        this.ratio = DistributionSummary.builder("amqp.compression.ratio")
+                .description("Compressed size / original size")
+                .tag("hop", hop)
+                .publishPercentiles(0.5, 0.95)
+                .register(meterRegistry);
+        this.compressTime = Timer.builder("amqp.compression.time")
+                .tag("hop", hop).tag("op", "compress")
+                .register(meterRegistry);
+        this.decompressTime = Timer.builder("amqp.compression.time")
+                .tag("hop", hop).tag("op", "decompress")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        Message message = delegate.toMessage(object, messageProperties);
+        byte[] body = message.getBody();
+        if (!compressOutbound || body.length < thresholdBytes) {
+            return message;
+        }
+
+        long start = System.nanoTime();
+        byte[] compressed = deflate(body);
+        compressTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        if (compressed.length >= body.length) {
+            return message;   // incompressible — not worth the consumer's CPU
+        }
+        ratio.record((double) compressed.length / body.length);
+
+        MessageProperties properties = message.getMessageProperties();
+        String encoding = properties.getContentEncoding();
+        properties.setContentEncoding(encoding == null ? DEFLATE : DEFLATE + ":" + encoding);
+        properties.setContentLength(compressed.length);
+        return new Message(compressed, properties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        String encoding = properties.getContentEncoding();
+        if (encoding == null || !(encoding.equals(DEFLATE) || encoding.startsWith(DEFLATE + ":"))) {
+            return delegate.fromMessage(message);
+        }
+
+        long start = System.nanoTime();
+        byte[] body = inflate(message.getBody());
+        decompressTime.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        MessageProperties inflated = MessagePropertiesBuilder
+                .fromClonedProperties(properties)
+                .setContentEncoding(encoding.length() > DEFLATE.length()
+                        ? encoding.substring(DEFLATE.length() + 1)
+                        : null)
+                .setContentLength(body.length)
+                .build();
+        return delegate.fromMessage(new Message(body, inflated));
+    }
+
+    private byte[] deflate(byte[] body) {
+        Deflater deflater = deflaters.poll();
+        if (deflater == null) {
+            deflater = new Deflater(level);
+        }
+        try {
+            deflater.setInput(body);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length / 2 + 64);
+            byte[] chunk = new byte[Math.min(body.length + 64, 8192)];
+            while (!deflater.finished()) {
+                out.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.reset();
+            if (!deflaters.offer(deflater)) {
+                deflater.end();
+            }
+        }
+    }
+
+    private byte[] inflate(byte[] body) {
+        Inflater inflater = inflaters.poll();
+        if (inflater == null) {
+            inflater = new Inflater();
+        }
+        try {
+            inflater.setInput(body);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(body.length * 4);
+            byte[] chunk = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new MessageConversionException("Truncated deflate body");
+                }
+                out.write(chunk, 0, n);
+                if (out.size() > MAX_INFLATED_BYTES) {
+                    throw new MessageConversionException("Inflated body over "
+                            + MAX_INFLATED_BYTES + " bytes");
+                }
+            }
+            return out.toByteArray();
+        } catch (DataFormatException e) {
+            throw new MessageConversionException("Bad deflate body", e);
+        } finally {
+            inflater.reset();
+            if (!inflaters.offer(inflater)) {
+                inflater.end();
+            }
+        }
+    }
+}
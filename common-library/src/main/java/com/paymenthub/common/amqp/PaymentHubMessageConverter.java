@@ -0,0 +1,52 @@
+package com.paymenthub.common.amqp;
+
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+/**
+ * Shared converter for every hop.
+ *
+ * Inbound is chosen by content type: application/x-paymenthub-binary
+ * goes through {@link BinaryCodec}, anything else (JSON) through the
+ * fallback. Outbound RabbitMessage / TransactionResponse are written
+ * binary only when binaryOutbound is on — roll out by deploying
+ * everywhere with it off (all services can then read both), then
+ * switch it on service by service.
+ */
+public class PaymentHubMessageConverter implements MessageConverter {
+
+    public static final String CONTENT_TYPE_BINARY = "application/x-paymenthub-binary";
+
+    private final MessageConverter fallback;
+    private final boolean binaryOutbound;
+
+    public PaymentHubMessageConverter(MessageConverter fallback, boolean binaryOutbound) {
+        this.fallback = fallback;
+        this.binaryOutbound = binaryOutbound;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) {
+        if (!binaryOutbound || !BinaryCodec.supports(object)) {
+            return fallback.toMessage(object, messageProperties);
+        }
+        byte[] body = BinaryCodec.encode(object);
+        messageProperties.setContentType(CONTENT_TYPE_BINARY);
+        messageProperties.setContentLength(body.length);
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) {
+        if (!CONTENT_TYPE_BINARY.equals(message.getMessageProperties().getContentType())) {
+            return fallback.fromMessage(message);
+        }
+        try {
+            return BinaryCodec.decode(message.getBody());
+        } catch (IllegalArgumentException e) {
+            throw new MessageConversionException("Bad binary message", e);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.paymenthub.common.amqp;
+
+/**
+ * AMQP headers MS1 sets on every request so the router can route
+ * without reading the body.
+ */
+public final class RoutingHeaders {
+
+    // X-Destination as sent by the client: NPCI, RUPAY, VISA, ...
+    public static final String DESTINATION = "x-destination";
+
+    // ISO field 0, e.g. 0200
+    public static final String MTI = "x-mti";
+
+    // ISO field 3, e.g. 000000
+    public static final String PROCESSING_CODE = "x-processing-code";
+
+    // First BIN_LENGTH digits of ISO field 2 — never the full PAN
+    public static final String PAN_BIN = "x-pan-bin";
+
+    // ISO field 41 — the shard key when shard queues are on
+    public static final String TERMINAL_ID = "x-terminal-id";
+
+    public static final int BIN_LENGTH = 8;
+
+    private RoutingHeaders() {
+    }
+
+    // Leading digits of the PAN, or null when it is too short to
+    // carry a 6-digit BIN
+    public static String panBin(String pan) {
+        if (pan == null || pan.length() < 6) {
+            return null;
+        }
+        return pan.length() <= BIN_LENGTH ? pan : pan.substring(0, BIN_LENGTH);
+    }
+}
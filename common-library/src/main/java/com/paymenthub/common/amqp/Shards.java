@@ -0,0 +1,73 @@
+package com.paymenthub.common.amqp;
+
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarable;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Terminal-affine shard queues: &lt;queue&gt;.0 .. &lt;queue&gt;.N-1, bound
+ * with &lt;routing key&gt;.0 .. .N-1 on the payment exchange.
+ *
+ * The shard is a jump consistent hash (Lamping &amp; Veach) of the
+ * terminal id: every message from one terminal lands on one queue, and
+ * going from N to N+1 shards moves only ~1/(N+1) of the terminals —
+ * all of them onto the new shard.
+ */
+public final class Shards {
+
+    private Shards() {
+    }
+
+    public static int of(String key, int shards) {
+        long h = 0xcbf29ce484222325L;              // FNV-1a 64
+        for (int i = 0; i < key.length(); i++) {
+            h = (h ^ key.charAt(i)) * 0x100000001b3L;
+        }
+        return jump(h, shards);
+    }
+
+    static int jump(long key, int buckets) {
+        long b = -1;
+        long j = 0;
+        while (j < buckets) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    public static String name(String base, int shard) {
+        return base + "." + shard;
+    }
+
+    public static String[] names(String base, int shards) {
+        String[] names = new String[shards];
+        for (int i = 0; i < shards; i++) {
+            names[i] = name(base, i);
+        }
+        return names;
+    }
+
+    // Durable shard queues + bindings; declaring them from every
+    // service that touches them is idempotent
+    public static Declarables declarables(DirectExchange exchange, String queueBase,
+                                          String routingKeyBase, int shards) {
+        List<Declarable> declarables = new ArrayList<>(shards * 2);
+        for (int i = 0; i < shards; i++) {
+            Queue queue = QueueBuilder.durable(name(queueBase, i)).build();
+            Binding binding = BindingBuilder.bind(queue).to(exchange)
+                    .with(name(routingKeyBase, i));
+            declarables.add(queue);
+            declarables.add(binding);
+        }
+        return new Declarables(declarables);
+    }
+}
@@ -0,0 +1,179 @@
+package com.paymenthub.common.crypto;
+
+import com.paymenthub.common.exception.DecryptionException;
+import com.paymenthub.common.exception.EncryptionException;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Reusable AES-GCM engine for one key.
+ *
+ * Everything that used to happen per call in AESUtil is done once here:
+ * the key is parsed up front, Cipher instances are pooled, and nonces come
+ * from a shared lock-free {@link IvSource}. Wire format is unchanged:
+ * IV (12 bytes) + ciphertext + tag (16 bytes).
+ *
+ * The pool (rather than a ThreadLocal) keeps the cipher count bounded by
+ * concurrent callers, not by how many threads ever called — which is
+ * what matters once callers run on virtual threads. Thread-safe.
+ */
+public final class AesGcmEngine {
+
+    private static final String ALGORITHM = "AES/GCM/NoPadding";
+    private static final int GCM_TAG_LENGTH = 128;
+    private static final int GCM_TAG_BYTES = GCM_TAG_LENGTH / 8;
+    private static final int DEFAULT_POOL_SIZE = 256;
+
+    private final SecretKeySpec key;
+    private final String provider;   // null → JDK default (SunJCE)
+    private final IvSource ivSource;
+    private final BlockingQueue<Cipher> pool;
+
+    public AesGcmEngine(byte[] keyBytes, String provider) {
+        this(keyBytes, provider, new IvSource(), DEFAULT_POOL_SIZE);
+    }
+
+    public AesGcmEngine(byte[] keyBytes, String provider,
+                        IvSource ivSource, int poolSize) {
+        this.key = new SecretKeySpec(keyBytes, "AES");
+        this.provider = provider;
+        this.ivSource = ivSource;
+        this.pool = new ArrayBlockingQueue<>(poolSize);
+        // Fail fast on a bad provider name instead of on the first request
+        release(acquire());
+    }
+
+    public static AesGcmEngine fromBase64Key(String base64Key, String provider) {
+        return new AesGcmEngine(Base64.getDecoder().decode(base64Key), provider);
+    }
+
+    // ── byte[] API ───────────────────────────────────────────────
+
+    // Returns IV + ciphertext + tag in a single array
+    public byte[] encrypt(byte[] plain) {
+        return encrypt(plain, 0, plain.length);
+    }
+
+    public byte[] encrypt(byte[] plain, int offset, int length) {
+        Cipher cipher = acquire();
+        try {
+            byte[] out = new byte[IvSource.IV_LENGTH + length + GCM_TAG_BYTES];
+            ivSource.next(out, 0);
+            cipher.init(Cipher.ENCRYPT_MODE, key,
+                    new GCMParameterSpec(GCM_TAG_LENGTH, out, 0, IvSource.IV_LENGTH));
+            cipher.doFinal(plain, offset, length, out, IvSource.IV_LENGTH);
+            return out;
+        } catch (GeneralSecurityException e) {
+            throw new EncryptionException("Encryption failed", e);
+        } finally {
+            release(cipher);
+        }
+    }
+
+    public byte[] decrypt(byte[] combined) {
+        return decrypt(combined, 0, combined.length);
+    }
+
+    public byte[] decrypt(byte[] combined, int offset, int length) {
+        if (length < IvSource.IV_LENGTH + GCM_TAG_BYTES) {
+            throw new DecryptionException("Ciphertext too short");
+        }
+        Cipher cipher = acquire();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key,
+                    new GCMParameterSpec(GCM_TAG_LENGTH, combined, offset, IvSource.IV_LENGTH));
+            return cipher.doFinal(combined, offset + IvSource.IV_LENGTH,
+                    length - IvSource.IV_LENGTH);
+        } catch (GeneralSecurityException e) {
+            throw new DecryptionException("Decryption failed", e);
+        } finally {
+            release(cipher);
+        }
+    }
+
+    // ── ByteBuffer API ───────────────────────────────────────────
+
+    // Writes IV + ciphertext + tag into out; returns bytes written
+    public int encrypt(ByteBuffer plain, ByteBuffer out) {
+        Cipher cipher = acquire();
+        try {
+            byte[] iv = ivSource.next();
+            cipher.init(Cipher.ENCRYPT_MODE, key,
+                    new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+            out.put(iv);
+            return IvSource.IV_LENGTH + cipher.doFinal(plain, out);
+        } catch (GeneralSecurityException e) {
+            throw new EncryptionException("Encryption failed", e);
+        } finally {
+            release(cipher);
+        }
+    }
+
+    // Reads IV + ciphertext + tag from in; returns plaintext bytes written
+    public int decrypt(ByteBuffer in, ByteBuffer out) {
+        if (in.remaining() < IvSource.IV_LENGTH + GCM_TAG_BYTES) {
+            throw new DecryptionException("Ciphertext too short");
+        }
+        Cipher cipher = acquire();
+        try {
+            byte[] iv = new byte[IvSource.IV_LENGTH];
+            in.get(iv);
+            cipher.init(Cipher.DECRYPT_MODE, key,
+                    new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+            return cipher.doFinal(in, out);
+        } catch (GeneralSecurityException e) {
+            throw new DecryptionException("Decryption failed", e);
+        } finally {
+            release(cipher);
+        }
+    }
+
+    public static int encryptedLength(int plainLength) {
+        return IvSource.IV_LENGTH + plainLength + GCM_TAG_BYTES;
+    }
+
+    // ── Base64 edge (HTTP payloads) ──────────────────────────────
+
+    public String encryptToBase64(byte[] plain) {
+        return Base64.getEncoder().encodeToString(encrypt(plain));
+    }
+
+    public byte[] decryptBase64(String encryptedData) {
+        byte[] combined;
+        try {
+            combined = Base64.getDecoder().decode(encryptedData);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new DecryptionException("Decryption failed", e);
+        }
+        return decrypt(combined);
+    }
+
+    // ── Cipher pool ──────────────────────────────────────────────
+
+    private Cipher acquire() {
+        Cipher cipher = pool.poll();
+        if (cipher != null) {
+            return cipher;
+        }
+        try {
+            return provider == null
+                    ? Cipher.getInstance(ALGORITHM)
+                    : Cipher.getInstance(ALGORITHM, provider);
+        } catch (GeneralSecurityException e) {
+            throw new EncryptionException(
+                    "AES-GCM not available from provider " + provider, e);
+        }
+    }
+
+    private void release(Cipher cipher) {
+        // Pool full → let the extra instance be collected
+        pool.offer(cipher);
+    }
+}
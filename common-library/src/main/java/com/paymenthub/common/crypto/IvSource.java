@@ -0,0 +1,44 @@
+package com.paymenthub.common.crypto;
+
+import java.security.SecureRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Lock-free 96-bit GCM nonce generator (NIST SP 800-38D, 8.2.1).
+ *
+ * Layout: 4-byte fixed field (random per instance) + 8-byte invocation
+ * counter (random start). Nonces never repeat within one instance, and
+ * two instances sharing a key only collide if both random parts line up.
+ * No SecureRandom call on the hot path, so no lock and no entropy wait.
+ */
+public final class IvSource {
+
+    public static final int IV_LENGTH = 12;
+
+    private final int fixedField;
+    private final AtomicLong counter;
+
+    public IvSource() {
+        SecureRandom seed = new SecureRandom();
+        this.fixedField = seed.nextInt();
+        this.counter = new AtomicLong(seed.nextLong());
+    }
+
+    // Writes the next nonce into dst[offset .. offset + 12)
+    public void next(byte[] dst, int offset) {
+        long invocation = counter.getAndIncrement();
+        dst[offset]      = (byte) (fixedField >>> 24);
+        dst[offset + 1]  = (byte) (fixedField >>> 16);
+        dst[offset + 2]  = (byte) (fixedField >>> 8);
+        dst[offset + 3]  = (byte) fixedField;
+        for (int i = 0; i < 8; i++) {
+            dst[offset + 4 + i] = (byte) (invocation >>> (56 - 8 * i));
+        }
+    }
+
+    public byte[] next() {
+        byte[] iv = new byte[IV_LENGTH];
+        next(iv, 0);
+        return iv;
+    }
+}
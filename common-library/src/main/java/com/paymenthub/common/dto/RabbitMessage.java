@@ -19,4 +19,5 @@ public class RabbitMessage implements Serializable {
     private String source;       // ← NEW: e.g. "TERMINAL-001", "BANK001"
     private String destination;  // ← NEW: "NPCI" → MS2, "VISA" → MS3
     private Long timestamp;
+    private String replyTo;      // MS1 instance reply queue; null → shared response queue
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.paymenthub.common.iso;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Pulls selected ISO 8583 fields out of the flat JSON payload
+ * ({"0":"0200","11":"123456",...}) with Jackson's streaming parser.
+ *
+ * No Map is built: unrequested values are skipped without being
+ * materialised, and parsing stops as soon as every requested field has
+ * been seen. Instances are immutable and thread-safe — create one per
+ * field set and share it.
+ */
+public final class IsoFieldExtractor {
+
+    // ISO 8583 tops out at field 192 (tertiary bitmap)
+    private static final int MAX_FIELD = 192;
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private final int[] slotByField;
+    private final int size;
+
+    public IsoFieldExtractor(int... fields) {
+        int max = Arrays.stream(fields).max().orElse(0);
+        if (max > MAX_FIELD || Arrays.stream(fields).anyMatch(f -> f < 0)) {
+            throw new IllegalArgumentException("ISO field out of range: " + Arrays.toString(fields));
+        }
+        this.slotByField = new int[max + 1];
+        Arrays.fill(slotByField, -1);
+        int slot = 0;
+        for (int field : fields) {
+            if (slotByField[field] < 0) {
+                slotByField[field] = slot++;
+            }
+        }
+        this.size = slot;
+    }
+
+    public IsoFields newHolder() {
+        return new IsoFields(this, size);
+    }
+
+    public IsoFields extract(byte[] json) throws IOException {
+        return extract(json, newHolder());
+    }
+
+    public IsoFields extract(String json) throws IOException {
+        IsoFields into = newHolder();
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return read(parser, into);
+        }
+    }
+
+    // Fills a caller-owned holder (cleared first) — no allocation
+    // beyond the parser and the extracted value strings
+    public IsoFields extract(byte[] json, IsoFields into) throws IOException {
+        if (!into.owns(this)) {
+            throw new IllegalArgumentException("Holder belongs to another extractor");
+        }
+        into.clear();
+        try (JsonParser parser = JSON_FACTORY.createParser(json)) {
+            return read(parser, into);
+        }
+    }
+
+    int slotOf(int field) {
+        return field >= 0 && field < slotByField.length ? slotByField[field] : -1;
+    }
+
+    private IsoFields read(JsonParser parser, IsoFields into) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("ISO payload is not a JSON object");
+        }
+        if (size == 0) {
+            return into;
+        }
+        JsonToken token;
+        while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+            // Field names come back canonicalised from Jackson's
+            // symbol table, so this does not allocate per message
+            int slot = slotOf(fieldNumber(parser.currentName()));
+            JsonToken value = parser.nextToken();
+            if (value == JsonToken.START_OBJECT || value == JsonToken.START_ARRAY) {
+                parser.skipChildren();
+                continue;
+            }
+            if (slot >= 0 && value != JsonToken.VALUE_NULL
+                    && into.set(slot, parser.getText())) {
+                return into;  // everything found — stop parsing
+            }
+        }
+        if (token != JsonToken.END_OBJECT) {
+            throw new IOException("Malformed ISO payload");
+        }
+        return into;
+    }
+
+    // "41" → 41; anything that is not a small decimal → -1
+    private static int fieldNumber(String name) {
+        int length = name.length();
+        if (length == 0 || length > 3) {
+            return -1;
+        }
+        int n = 0;
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            n = n * 10 + (c - '0');
+        }
+        return n;
+    }
+}
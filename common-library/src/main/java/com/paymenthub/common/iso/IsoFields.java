@@ -0,0 +1,44 @@
+package com.paymenthub.common.iso;
+
+import java.util.Arrays;
+
+/**
+ * Small holder for the ISO 8583 fields an {@link IsoFieldExtractor}
+ * was asked for. Values are indexed by slot, not hashed.
+ * Reusable via {@link #clear()}; not thread-safe.
+ */
+public final class IsoFields {
+
+    private final IsoFieldExtractor extractor;
+    private final String[] values;
+    private int found;
+
+    IsoFields(IsoFieldExtractor extractor, int size) {
+        this.extractor = extractor;
+        this.values = new String[size];
+    }
+
+    // null when the field was absent (or not requested)
+    public String get(int field) {
+        int slot = extractor.slotOf(field);
+        return slot < 0 ? null : values[slot];
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        found = 0;
+    }
+
+    // Returns true once every requested field has been seen
+    boolean set(int slot, String value) {
+        if (values[slot] == null) {
+            found++;
+        }
+        values[slot] = value;
+        return found == values.length;
+    }
+
+    boolean owns(IsoFieldExtractor candidate) {
+        return extractor == candidate;
+    }
+}
@@ -0,0 +1,60 @@
+package com.paymenthub.common.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps concurrent calls to one downstream endpoint, so a stalled
+ * endpoint holds at most max-concurrent calls instead of every
+ * listener thread and every in-flight slot.
+ *
+ * Metrics, tagged with the bulkhead name:
+ *   bulkhead.inflight   calls currently holding a slot
+ *   bulkhead.rejected   calls refused because it was full
+ */
+public final class Bulkhead {
+
+    private final int maxConcurrent;
+    private final Semaphore slots;
+    private final Counter rejected;
+
+    public Bulkhead(String name, int maxConcurrent, MeterRegistry meterRegistry) {
+        this.maxConcurrent = maxConcurrent;
+        this.slots = new Semaphore(maxConcurrent);
+        Gauge.builder("bulkhead.inflight", slots, s -> maxConcurrent - s.availablePermits())
+                .tag("name", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("bulkhead.rejected")
+                .tag("name", name)
+                .register(meterRegistry);
+    }
+
+    public int maxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public boolean tryAcquire() {
+        if (slots.tryAcquire()) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    // Waits up to timeoutMs for a slot
+    public boolean tryAcquire(long timeoutMs) throws InterruptedException {
+        if (slots.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    public void release() {
+        slots.release();
+    }
+}
@@ -0,0 +1,196 @@
+package com.paymenthub.common.resilience;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.Builder;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * Count-window circuit breaker for one downstream endpoint.
+ *
+ *   CLOSED     calls go through; the last window-size outcomes are
+ *              kept, and once min-calls are in, a failure rate at or
+ *              over failure-rate-threshold % opens it. A call slower
+ *              than slow-call-ms counts as a failure — it would have
+ *              missed the caller's deadline anyway
+ *   OPEN       every call is rejected for open-ms
+ *   HALF_OPEN  half-open-calls trial calls go through; all succeed →
+ *              CLOSED, any fails → OPEN again
+ *
+ * Callers pair tryAcquire() with exactly one of onSuccess / onFailure /
+ * onIgnored (the call never reached the endpoint), handing back the
+ * permit tryAcquire() returned. A permit names the state generation it
+ * was taken in; every transition starts a new one, and an outcome from
+ * an older generation is dropped — a call made while CLOSED that
+ * returns after the breaker opened and went HALF_OPEN is not a trial
+ * call and must not close (or re-open) it. Thread-safe.
+ *
+ * Metrics, tagged with the breaker name:
+ *   circuit.state         0 closed, 1 open, 2 half-open
+ *   circuit.transitions   tagged to=closed|open|half_open
+ *   circuit.rejected      calls refused while open / out of trials
+ */
+public final class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    // tryAcquire(): don't call
+    public static final long REJECTED = -1;
+
+    private final String name;
+    private final int windowSize;
+    private final int minCalls;
+    private final double failureRateThreshold;
+    private final long slowCallNanos;
+    private final long openNanos;
+    private final int halfOpenCalls;
+    private final BiConsumer<State, State> listener;
+
+    private final Counter rejected;
+    private final Map<State, Counter> transitions = new EnumMap<>(State.class);
+
+    // CLOSED: ring of outcomes, true = success
+    private final boolean[] window;
+    private int windowPos;
+    private int windowCount;
+    private int windowFailures;
+
+    private volatile State state = State.CLOSED;
+    private long generation;
+    private long openedAt;
+    private int trialsStarted;
+    private int trialsSucceeded;
+
+    @Builder
+    private CircuitBreaker(String name, int windowSize, int minCalls,
+                           double failureRateThreshold, long slowCallMs, long openMs,
+                           int halfOpenCalls, BiConsumer<State, State> listener,
+                           MeterRegistry meterRegistry) {
+        this.name = name;
+        this.windowSize = windowSize;
+        this.minCalls = Math.min(minCalls, windowSize);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallNanos = slowCallMs > 0 ? TimeUnit.MILLISECONDS.toNanos(slowCallMs) : Long.MAX_VALUE;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.halfOpenCalls = Math.max(1, halfOpenCalls);
+        this.listener = listener != null ? listener : (from, to) -> { };
+        this.window = new boolean[windowSize];
+
+        Gauge.builder("circuit.state", this, b -> b.state.ordinal())
+                .tag("name", name)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("circuit.rejected")
+                .tag("name", name)
+                .register(meterRegistry);
+        for (State to : State.values()) {
+            transitions.put(to, Counter.builder("circuit.transitions")
+                    .tag("name", name)
+                    .tag("to", to.name().toLowerCase(Locale.ROOT))
+                    .register(meterRegistry));
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    // REJECTED → don't call; answer the caller now. Otherwise the
+    // permit to hand back with the outcome
+    public synchronized long tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.nanoTime() - openedAt < openNanos) {
+                rejected.increment();
+                return REJECTED;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (trialsStarted >= halfOpenCalls) {
+                rejected.increment();
+                return REJECTED;
+            }
+            trialsStarted++;
+        }
+        return generation;
+    }
+
+    public void onSuccess(long permit, long durationNanos) {
+        record(permit, durationNanos < slowCallNanos);
+    }
+
+    public void onFailure(long permit, long durationNanos) {
+        record(permit, false);
+    }
+
+    // Acquired but never called (e.g. bulkhead full): frees the
+    // trial slot without counting as an outcome
+    public synchronized void onIgnored(long permit) {
+        if (permit == generation && state == State.HALF_OPEN) {
+            trialsStarted--;
+        }
+    }
+
+    private synchronized void record(long permit, boolean success) {
+        if (permit != generation) {
+            return;   // taken before the last transition — stale
+        }
+        switch (state) {
+            case OPEN -> {
+                // Unreachable: OPEN hands out no permits
+            }
+            case HALF_OPEN -> {
+                if (!success) {
+                    transition(State.OPEN);
+                } else if (++trialsSucceeded >= halfOpenCalls) {
+                    transition(State.CLOSED);
+                }
+            }
+            case CLOSED -> {
+                if (windowCount == windowSize) {
+                    if (!window[windowPos]) {
+                        windowFailures--;
+                    }
+                } else {
+                    windowCount++;
+                }
+                window[windowPos] = success;
+                if (!success) {
+                    windowFailures++;
+                }
+                windowPos = (windowPos + 1) % windowSize;
+                if (windowCount >= minCalls
+                        && windowFailures * 100.0 / windowCount >= failureRateThreshold) {
+                    transition(State.OPEN);
+                }
+            }
+        }
+    }
+
+    private void transition(State to) {
+        State from = state;
+        state = to;
+        generation++;
+        trialsStarted = 0;
+        trialsSucceeded = 0;
+        if (to == State.OPEN) {
+            openedAt = System.nanoTime();
+        }
+        if (to == State.CLOSED) {
+            windowPos = 0;
+            windowCount = 0;
+            windowFailures = 0;
+        }
+        transitions.get(to).increment();
+        listener.accept(from, to);
+    }
+}
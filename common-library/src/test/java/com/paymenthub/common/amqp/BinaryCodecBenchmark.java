@@ -0,0 +1,109 @@
+package com.paymenthub.common.amqp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymenthub.common.dto.RabbitMessage;
+import com.paymenthub.common.dto.TransactionResponse;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.util.function.Supplier;
+
+/**
+ * Jackson vs {@link BinaryCodec} through the converter every service
+ * uses: body size, toMessage (serialize) and fromMessage (deserialize)
+ * per message, for the request MS1 publishes and the response MS2/MS3
+ * send back.
+ *
+ * Not a test — run by hand:
+ *
+ *   mvn -pl common-library test-compile
+ *   java -cp common-library/target/test-classes:common-library/target/classes:$(deps) \
+ *        com.paymenthub.common.amqp.BinaryCodecBenchmark [seconds=3]
+ *
+ * Each cell runs a warm-up of the same length first.
+ */
+public final class BinaryCodecBenchmark {
+
+    // 16-field ISO 0200, as MS1 forwards it after decryption
+    private static final String ISO = "{\"0\":\"0200\",\"2\":\"4111111111111111\","
+            + "\"3\":\"000000\",\"4\":\"000000001000\",\"7\":\"1017203005\","
+            + "\"11\":\"123456\",\"12\":\"203005\",\"13\":\"1017\",\"14\":\"2812\","
+            + "\"22\":\"051\",\"25\":\"00\",\"35\":\"4111111111111111=28121010000000000000\","
+            + "\"37\":\"629020123456\",\"41\":\"TERM0001\",\"42\":\"MERCHANT0000001\","
+            + "\"49\":\"356\"}";
+
+    // Results land here so the JIT can't drop the work
+    private static volatile Object sink;
+
+    private BinaryCodecBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 3;
+
+        MessageConverter json = new PaymentHubMessageConverter(
+                new Jackson2JsonMessageConverter(new ObjectMapper()), false);
+        MessageConverter binary = new PaymentHubMessageConverter(
+                new Jackson2JsonMessageConverter(new ObjectMapper()), true);
+
+        Object request = RabbitMessage.builder()
+                .correlationId("c0ffee00-0000-4000-8000-000000000001")
+                .plainJsonPayload(ISO)
+                .source("TERMINAL-001")
+                .destination("VISA")
+                .timestamp(System.currentTimeMillis())
+                .replyTo("ms1.reply.gw-1")
+                .build();
+        Object response = TransactionResponse.builder()
+                .correlationId("c0ffee00-0000-4000-8000-000000000001")
+                .status("SUCCESS")
+                .responseCode("00")
+                .responseMessage("Approved")
+                .transactionId("TXN1760732205123")
+                .rrn("629020123456")
+                .approvalCode("A1B2C3")
+                .balance("12500.00")
+                .timestamp(System.currentTimeMillis())
+                .build();
+
+        System.out.printf("%-20s %-7s %7s %14s %14s%n",
+                "message", "format", "bytes", "serialize ns", "deserialize ns");
+        for (Object message : new Object[] { request, response }) {
+            for (String format : new String[] { "json", "binary" }) {
+                MessageConverter converter = "json".equals(format) ? json : binary;
+                Message encoded = converter.toMessage(message, new MessageProperties());
+                if (!message.equals(converter.fromMessage(encoded))) {
+                    throw new IllegalStateException(format + " round trip changed the message");
+                }
+
+                Supplier<Object> serialize = () ->
+                        converter.toMessage(message, new MessageProperties());
+                Supplier<Object> deserialize = () -> converter.fromMessage(encoded);
+                time(serialize, seconds);     // warm-up
+                double serializeNs = time(serialize, seconds);
+                time(deserialize, seconds);
+                double deserializeNs = time(deserialize, seconds);
+
+                System.out.printf("%-20s %-7s %7d %14.0f %14.0f%n",
+                        message.getClass().getSimpleName(), format,
+                        encoded.getBody().length, serializeNs, deserializeNs);
+            }
+        }
+    }
+
+    // ns per call
+    private static double time(Supplier<Object> work, long seconds) {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long calls = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < 1000; i++) {
+                sink = work.get();
+            }
+            calls += 1000;
+        }
+        return (double) (System.nanoTime() - start) / calls;
+    }
+}
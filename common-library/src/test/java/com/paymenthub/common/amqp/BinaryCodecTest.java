@@ -0,0 +1,101 @@
+package com.paymenthub.common.amqp;
+
+import com.paymenthub.common.dto.RabbitMessage;
+import com.paymenthub.common.dto.TransactionResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BinaryCodecTest {
+
+    private static RabbitMessage request() {
+        return RabbitMessage.builder()
+                .correlationId("c0ffee-01")
+                .plainJsonPayload("{\"0\":\"0200\",\"43\":\"Café \\\"Ünïcode\\\" ₹\"}")
+                .source("TERMINAL-001")
+                .destination("VISA")
+                .timestamp(1_700_000_000_123L)
+                .replyTo("ms1.reply.a")
+                .build();
+    }
+
+    @Test
+    void roundTripsRabbitMessage() {
+        RabbitMessage message = request();
+        assertThat(BinaryCodec.decode(BinaryCodec.encode(message))).isEqualTo(message);
+    }
+
+    @Test
+    void roundTripsTransactionResponse() {
+        TransactionResponse response = TransactionResponse.builder()
+                .correlationId("c0ffee-01").status("SUCCESS").responseCode("00")
+                .responseMessage("Approved").transactionId("TXN1").rrn("123456789012")
+                .approvalCode("A1B2C3").balance("1000.00").timestamp(-1L)
+                .build();
+        assertThat(BinaryCodec.decode(BinaryCodec.encode(response))).isEqualTo(response);
+    }
+
+    @Test
+    void nullsSurviveAndStayDistinctFromEmpty() {
+        RabbitMessage message = RabbitMessage.builder().correlationId("").build();
+        assertThat(BinaryCodec.decode(BinaryCodec.encode(message))).isEqualTo(message);
+    }
+
+    @Test
+    void largePayloadGrowsTheBuffer() {
+        RabbitMessage message = request();
+        message.setPlainJsonPayload("{\"48\":\"" + "9".repeat(70_000) + "\"}");
+        assertThat(BinaryCodec.decode(BinaryCodec.encode(message))).isEqualTo(message);
+    }
+
+    @Test
+    void missingTrailingFieldsReadAsNull() {
+        // An older writer that stopped after destination
+        RabbitMessage message = request();
+        message.setTimestamp(null);
+        message.setReplyTo(null);
+        byte[] full = BinaryCodec.encode(message);
+        byte[] older = Arrays.copyOf(full, full.length - 2);
+
+        assertThat(BinaryCodec.decode(older)).isEqualTo(message);
+    }
+
+    @Test
+    void supportsOnlyTheTwoDtos() {
+        assertThat(BinaryCodec.supports(request())).isTrue();
+        assertThat(BinaryCodec.supports(new TransactionResponse())).isTrue();
+        assertThat(BinaryCodec.supports(Map.of())).isFalse();
+        assertThat(BinaryCodec.supports(null)).isFalse();
+        assertThatThrownBy(() -> BinaryCodec.encode("plain"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsUnknownVersionAndType() {
+        byte[] bytes = BinaryCodec.encode(request());
+        bytes[0] = BinaryCodec.VERSION + 1;
+        assertThatThrownBy(() -> BinaryCodec.decode(bytes))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("version");
+
+        assertThatThrownBy(() -> BinaryCodec.decode(new byte[] { BinaryCodec.VERSION, 9 }))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("type");
+        assertThatThrownBy(() -> BinaryCodec.decode(new byte[0]))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsTruncatedBody() {
+        byte[] full = BinaryCodec.encode(request());
+        // Cut inside the payload string
+        byte[] truncated = Arrays.copyOf(full, 20);
+        assertThatThrownBy(() -> BinaryCodec.decode(truncated))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("Truncated");
+    }
+}
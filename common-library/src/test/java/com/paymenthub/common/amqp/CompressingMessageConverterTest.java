@@ -0,0 +1,61 @@
+package com.paymenthub.common.amqp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompressingMessageConverterTest {
+
+    private static final String LARGE = "{\"0\":\"0200\",\"48\":\"" + "A".repeat(4096) + "\"}";
+
+    private static CompressingMessageConverter converter(boolean compressOutbound) {
+        return new CompressingMessageConverter(new SimpleMessageConverter(), compressOutbound,
+                1024, 1, new SimpleMeterRegistry(), "test");
+    }
+
+    @Test
+    void deflatesLargeBodiesWhenOutboundIsOn() {
+        Message message = converter(true).toMessage(LARGE, new MessageProperties());
+        assertThat(message.getMessageProperties().getContentEncoding())
+                .startsWith(CompressingMessageConverter.DEFLATE);
+        assertThat(message.getBody().length).isLessThan(LARGE.length());
+    }
+
+    @Test
+    void leavesSmallBodiesAlone() {
+        Message message = converter(true).toMessage("{\"0\":\"0200\"}", new MessageProperties());
+        assertThat(message.getMessageProperties().getContentEncoding())
+                .doesNotStartWith(CompressingMessageConverter.DEFLATE);
+    }
+
+    @Test
+    void outboundOffSendsPlainButStillInflates() {
+        Message plain = converter(false).toMessage(LARGE, new MessageProperties());
+        assertThat(plain.getMessageProperties().getContentEncoding())
+                .doesNotStartWith(CompressingMessageConverter.DEFLATE);
+        assertThat(plain.getBody()).hasSize(LARGE.length());
+
+        Message deflated = converter(true).toMessage(LARGE, new MessageProperties());
+        assertThat(converter(false).fromMessage(deflated)).isEqualTo(LARGE);
+    }
+
+    @Test
+    void inflatingLeavesTheReceivedMessageUntouched() {
+        Message deflated = converter(true).toMessage(LARGE, new MessageProperties());
+        String encoding = deflated.getMessageProperties().getContentEncoding();
+        long length = deflated.getMessageProperties().getContentLength();
+        byte[] body = deflated.getBody();
+
+        assertThat(converter(true).fromMessage(deflated)).isEqualTo(LARGE);
+
+        // The router forwards this same Message on its header-less path
+        assertThat(deflated.getMessageProperties().getContentEncoding()).isEqualTo(encoding);
+        assertThat(deflated.getMessageProperties().getContentLength()).isEqualTo(length);
+        assertThat(deflated.getBody()).isSameAs(body);
+        assertThat(converter(true).fromMessage(deflated)).isEqualTo(LARGE);
+    }
+}
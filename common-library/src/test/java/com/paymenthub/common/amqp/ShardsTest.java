@@ -0,0 +1,136 @@
+package com.paymenthub.common.amqp;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.beans.factory.config.BeanExpressionContext;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.context.expression.StandardBeanExpressionResolver;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.StandardEnvironment;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardsTest {
+
+    // As declared on ShardedTransactionListener in MS2 and MS3
+    private static final String LISTENER_QUEUES = "#{T(com.paymenthub.common.amqp.Shards).names("
+            + "'${rabbitmq.queues.from-router}', ${rabbitmq.sharding.shards:8})}";
+
+    // Placeholders first, then SpEL — the order @RabbitListener resolves them in
+    private static Object listenerQueues(Map<String, Object> properties) {
+        StandardEnvironment environment = new StandardEnvironment();
+        environment.getPropertySources().addFirst(new MapPropertySource("test", properties));
+        String resolved = environment.resolvePlaceholders(LISTENER_QUEUES);
+        return new StandardBeanExpressionResolver().evaluate(resolved,
+                new BeanExpressionContext(new DefaultListableBeanFactory(), null));
+    }
+
+    @Test
+    void knownTerminalsLandOnPinnedShards() {
+        // Changing these re-homes every terminal and breaks per-terminal
+        // ordering across a rolling deploy — router, MS2 and MS3 must agree
+        assertThat(Shards.of("TERM0001", 8)).isEqualTo(7);
+        assertThat(Shards.of("TERM0002", 8)).isEqualTo(0);
+        assertThat(Shards.of("TERM0003", 8)).isEqualTo(1);
+        assertThat(Shards.of("ATM-MUM-0042", 8)).isEqualTo(1);
+        assertThat(Shards.of("POS-DEL-7781", 8)).isEqualTo(7);
+        assertThat(Shards.of("TERM0001", 16)).isEqualTo(15);
+        assertThat(Shards.of("POS-DEL-7781", 16)).isEqualTo(10);
+        assertThat(Shards.of("TERM0001", 1024)).isEqualTo(239);
+        assertThat(Shards.of("TERM0003", 2)).isEqualTo(1);
+        // FNV-1a offset basis alone
+        assertThat(Shards.of("", 16)).isEqualTo(13);
+        assertThat(Shards.of("TERM0001", 1)).isZero();
+    }
+
+    @Test
+    void addingAShardOnlyMovesTerminalsOntoIt() {
+        int moved = 0;
+        int terminals = 20_000;
+        for (int t = 0; t < terminals; t++) {
+            String terminal = String.format("TERM%05d", t);
+            int before = Shards.of(terminal, 8);
+            int after = Shards.of(terminal, 9);
+            if (after != before) {
+                assertThat(after).isEqualTo(8);
+                moved++;
+            }
+        }
+        // ~1/9 of them
+        assertThat((double) moved / terminals).isBetween(0.09, 0.13);
+    }
+
+    @Test
+    void terminalsSpreadEvenlyOverShards() {
+        int[] counts = new int[8];
+        for (int t = 0; t < 80_000; t++) {
+            counts[Shards.of(String.format("TERM%05d", t), 8)]++;
+        }
+        for (int count : counts) {
+            assertThat(count).isBetween(9_000, 11_000);
+        }
+    }
+
+    @Test
+    void namesAreBaseDotIndex() {
+        assertThat(Shards.name("ms2.txn.request", 3)).isEqualTo("ms2.txn.request.3");
+        assertThat(Shards.names("ms2.transaction.request", 3)).containsExactly(
+                "ms2.transaction.request.0",
+                "ms2.transaction.request.1",
+                "ms2.transaction.request.2");
+    }
+
+    @Test
+    void listenerSpelResolvesToTheDeclaredShardQueues() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("rabbitmq.queues.from-router", "ms3.transaction.request");
+        properties.put("rabbitmq.sharding.shards", "4");
+
+        Object queues = listenerQueues(properties);
+
+        DirectExchange exchange = new DirectExchange("payment.hub.exchange");
+        List<Queue> declared = Shards.declarables(exchange, "ms3.transaction.request",
+                "ms3.txn.request", 4).getDeclarablesByType(Queue.class);
+        assertThat(queues).isInstanceOf(String[].class);
+        assertThat((String[]) queues).containsExactlyElementsOf(
+                declared.stream().map(Queue::getName).toList());
+    }
+
+    @Test
+    void listenerSpelDefaultsToEightShards() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("rabbitmq.queues.from-router", "ms2.transaction.request");
+
+        assertThat((String[]) listenerQueues(properties))
+                .containsExactly(Shards.names("ms2.transaction.request", 8));
+    }
+
+    @Test
+    void everyShardQueueIsBoundToItsShardRoutingKey() {
+        DirectExchange exchange = new DirectExchange("payment.hub.exchange");
+        List<Binding> bindings = Shards.declarables(exchange, "ms2.transaction.request",
+                "ms2.txn.request", 8).getDeclarablesByType(Binding.class);
+
+        Set<String> routes = new HashSet<>();
+        for (Binding binding : bindings) {
+            String shard = binding.getDestination()
+                    .substring("ms2.transaction.request.".length());
+            assertThat(binding.getExchange()).isEqualTo("payment.hub.exchange");
+            assertThat(binding.getRoutingKey()).isEqualTo("ms2.txn.request." + shard);
+            routes.add(binding.getRoutingKey());
+        }
+        // What the router's ShardSelector publishes to for each shard
+        for (int shard = 0; shard < 8; shard++) {
+            assertThat(routes).contains(Shards.name("ms2.txn.request", shard));
+        }
+        assertThat(routes).hasSize(8);
+    }
+}
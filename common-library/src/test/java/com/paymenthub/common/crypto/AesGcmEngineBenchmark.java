@@ -0,0 +1,84 @@
+package com.paymenthub.common.crypto;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+
+import java.security.SecureRandom;
+import java.security.Security;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SunJCE vs BouncyCastle through {@link AesGcmEngine}: encrypt +
+ * decrypt round trips per second, single-threaded and across threads,
+ * for payload sizes around a client ISO request.
+ *
+ * Not a test — run by hand:
+ *
+ *   mvn -pl common-library test-compile
+ *   java -cp common-library/target/test-classes:common-library/target/classes:$(deps) \
+ *        com.paymenthub.common.crypto.AesGcmEngineBenchmark [seconds=3] [threads=8]
+ *
+ * Each cell runs a warm-up of the same length first.
+ */
+public final class AesGcmEngineBenchmark {
+
+    private static final int[] PAYLOAD_BYTES = { 256, 1024, 4096 };
+    private static final String[] PROVIDERS = { "SunJCE", BouncyCastleProvider.PROVIDER_NAME };
+
+    private AesGcmEngineBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 3;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        Security.addProvider(new BouncyCastleProvider());
+
+        SecureRandom random = new SecureRandom();
+        byte[] key = new byte[32];
+        random.nextBytes(key);
+
+        System.out.printf("%-6s %7s %8s %14s %10s%n",
+                "prov", "bytes", "threads", "round trips/s", "µs/op");
+        for (int bytes : PAYLOAD_BYTES) {
+            byte[] plain = new byte[bytes];
+            random.nextBytes(plain);
+            for (String provider : PROVIDERS) {
+                AesGcmEngine engine = new AesGcmEngine(key, provider);
+                for (int t : new int[] { 1, threads }) {
+                    run(engine, plain, t, seconds);   // warm-up
+                    double perSecond = run(engine, plain, t, seconds);
+                    System.out.printf("%-6s %7d %8d %14.0f %10.2f%n",
+                            provider, bytes, t, perSecond, t * 1e6 / perSecond);
+                }
+            }
+        }
+    }
+
+    private static double run(AesGcmEngine engine, byte[] plain, int threads, long seconds)
+            throws InterruptedException {
+        AtomicLong total = new AtomicLong();
+        CountDownLatch done = new CountDownLatch(threads);
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            pool.execute(() -> {
+                long ops = 0;
+                while (System.nanoTime() < deadline) {
+                    byte[] back = engine.decrypt(engine.encrypt(plain));
+                    if (back.length != plain.length) {
+                        throw new IllegalStateException("Round trip lost bytes");
+                    }
+                    ops++;
+                }
+                total.addAndGet(ops);
+                done.countDown();
+            });
+        }
+        done.await();
+        pool.shutdown();
+        return total.get() / ((System.nanoTime() - start) / 1e9);
+    }
+}
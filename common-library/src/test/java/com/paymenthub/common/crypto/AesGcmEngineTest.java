@@ -0,0 +1,72 @@
+package com.paymenthub.common.crypto;
+
+import com.paymenthub.common.exception.DecryptionException;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.Security;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AesGcmEngineTest {
+
+    private static final byte[] KEY = new byte[32];
+    private static final byte[] PLAIN =
+            "{\"0\":\"0200\",\"2\":\"4111111111111111\",\"4\":\"000000001000\"}"
+                    .getBytes(StandardCharsets.UTF_8);
+
+    @BeforeAll
+    static void addBouncyCastle() {
+        Arrays.fill(KEY, (byte) 7);
+        if (Security.getProvider(BouncyCastleProvider.PROVIDER_NAME) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+    }
+
+    @Test
+    void roundTripsOnEitherProvider() {
+        for (String provider : new String[] { "SunJCE", BouncyCastleProvider.PROVIDER_NAME }) {
+            AesGcmEngine engine = new AesGcmEngine(KEY, provider);
+            assertThat(engine.decrypt(engine.encrypt(PLAIN))).isEqualTo(PLAIN);
+        }
+    }
+
+    @Test
+    void providersShareTheWireFormat() {
+        AesGcmEngine sun = new AesGcmEngine(KEY, "SunJCE");
+        AesGcmEngine bc = new AesGcmEngine(KEY, BouncyCastleProvider.PROVIDER_NAME);
+        assertThat(bc.decrypt(sun.encrypt(PLAIN))).isEqualTo(PLAIN);
+        assertThat(sun.decrypt(bc.encrypt(PLAIN))).isEqualTo(PLAIN);
+    }
+
+    @Test
+    void noncesAreNotReused() {
+        AesGcmEngine engine = new AesGcmEngine(KEY, null);
+        byte[] first = engine.encrypt(PLAIN);
+        byte[] second = engine.encrypt(PLAIN);
+        assertThat(Arrays.copyOf(first, IvSource.IV_LENGTH))
+                .isNotEqualTo(Arrays.copyOf(second, IvSource.IV_LENGTH));
+    }
+
+    @Test
+    void tamperedCiphertextIsRejected() {
+        AesGcmEngine engine = new AesGcmEngine(KEY, null);
+        byte[] combined = engine.encrypt(PLAIN);
+        combined[combined.length - 1] ^= 1;
+        assertThatThrownBy(() -> engine.decrypt(combined))
+                .isInstanceOf(DecryptionException.class);
+    }
+
+    @Test
+    void byteBufferApiMatchesByteArrayApi() {
+        AesGcmEngine engine = new AesGcmEngine(KEY, null);
+        ByteBuffer encrypted = ByteBuffer.allocate(AesGcmEngine.encryptedLength(PLAIN.length));
+        engine.encrypt(ByteBuffer.wrap(PLAIN), encrypted);
+        assertThat(engine.decrypt(encrypted.array())).isEqualTo(PLAIN);
+    }
+}
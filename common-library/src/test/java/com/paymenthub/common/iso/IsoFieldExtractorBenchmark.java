@@ -0,0 +1,120 @@
+package com.paymenthub.common.iso;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+/**
+ * IsoFieldExtractor against the Map<String, String> readValue every
+ * service used before it, at the payload sizes the hub carries:
+ *
+ *   basic    16 fields, a magstripe 0200
+ *   emv      40 fields with a field 55 ICC block
+ *   full     64 fields with 55 and a large 127 private-use block
+ *
+ * Two field sets: the router's (0, 2, 3, 41) and MS2/MS3's (0, 4, 41).
+ * Keys are in field order, as MS1 writes them, so 41 sits mid-payload
+ * and early exit skips the tail.
+ *
+ * Not a test — run by hand:
+ *
+ *   mvn -pl common-library test-compile
+ *   java -cp common-library/target/test-classes:common-library/target/classes:$(deps) \
+ *        com.paymenthub.common.iso.IsoFieldExtractorBenchmark [seconds=3]
+ *
+ * Each cell runs a warm-up of the same length first.
+ */
+public final class IsoFieldExtractorBenchmark {
+
+    private static final TypeReference<Map<String, String>> MAP = new TypeReference<>() {
+    };
+
+    // Results land here so the JIT can't drop the work
+    private static volatile Object sink;
+
+    private IsoFieldExtractorBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 3;
+        ObjectMapper objectMapper = new ObjectMapper();
+        IsoFieldExtractor router = new IsoFieldExtractor(0, 2, 3, 41);
+        IsoFieldExtractor processor = new IsoFieldExtractor(0, 4, 41);
+        IsoFields holder = router.newHolder();
+
+        System.out.printf("%-7s %6s %12s %14s %14s %14s%n", "payload", "bytes",
+                "map ns", "0,2,3,41 ns", "reused ns", "0,4,41 ns");
+        for (String name : new String[] { "basic", "emv", "full" }) {
+            byte[] json = payload(name).getBytes(StandardCharsets.UTF_8);
+            Callable<Object> map = () -> objectMapper.readValue(json, MAP);
+            Callable<Object> routerFields = () -> router.extract(json);
+            Callable<Object> reused = () -> router.extract(json, holder);
+            Callable<Object> processorFields = () -> processor.extract(json);
+
+            System.out.printf("%-7s %6d %12.0f %14.0f %14.0f %14.0f%n", name, json.length,
+                    time(map, seconds), time(routerFields, seconds),
+                    time(reused, seconds), time(processorFields, seconds));
+        }
+    }
+
+    private static String payload(String name) throws Exception {
+        Map<Integer, String> fields = new TreeMap<>();
+        fields.put(0, "0200");
+        fields.put(2, "4111111111111111");
+        fields.put(3, "000000");
+        fields.put(4, "000000001000");
+        fields.put(7, "1017203005");
+        fields.put(11, "123456");
+        fields.put(12, "203005");
+        fields.put(13, "1017");
+        fields.put(14, "2812");
+        fields.put(22, "051");
+        fields.put(25, "00");
+        fields.put(35, "4111111111111111=28121010000000000000");
+        fields.put(37, "629020123456");
+        fields.put(41, "TERM0001");
+        fields.put(42, "MERCHANT0000001");
+        fields.put(49, "356");
+        if (!"basic".equals(name)) {
+            for (int field : new int[] { 15, 18, 19, 23, 26, 32, 33, 38, 39, 43,
+                    44, 45, 48, 50, 51, 52, 53, 54, 56, 60, 61, 62, 63 }) {
+                fields.put(field, "0".repeat(6 + field % 20));
+            }
+            // ICC data: TLV hex, ~128 bytes of tags
+            fields.put(55, "9F2608A1B2C3D4E5F60718".repeat(12));
+        }
+        if ("full".equals(name)) {
+            for (int field = 64; field < 128; field += 3) {
+                fields.put(field, "X".repeat(8 + field % 24));
+            }
+            fields.put(127, "P".repeat(1200));
+        }
+        Map<String, String> json = new LinkedHashMap<>();
+        fields.forEach((field, value) -> json.put(Integer.toString(field), value));
+        return new ObjectMapper().writeValueAsString(json);
+    }
+
+    // ns per call, after a warm-up of the same length
+    private static double time(Callable<Object> work, long seconds) throws Exception {
+        run(work, seconds);
+        return run(work, seconds);
+    }
+
+    private static double run(Callable<Object> work, long seconds) throws Exception {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long calls = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < 1000; i++) {
+                sink = work.call();
+            }
+            calls += 1000;
+        }
+        return (double) (System.nanoTime() - start) / calls;
+    }
+}
@@ -0,0 +1,115 @@
+package com.paymenthub.common.iso;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IsoFieldExtractorTest {
+
+    private static final IsoFieldExtractor EXTRACTOR = new IsoFieldExtractor(0, 2, 3, 41);
+
+    @Test
+    void extractsRequestedFieldsAndIgnoresTheRest() throws IOException {
+        IsoFields fields = EXTRACTOR.extract("{\"0\":\"0200\",\"2\":\"4111111111111111\","
+                + "\"4\":\"000000001000\",\"3\":\"000000\",\"11\":\"123456\",\"41\":\"TERM0001\"}");
+
+        assertThat(fields.get(0)).isEqualTo("0200");
+        assertThat(fields.get(2)).isEqualTo("4111111111111111");
+        assertThat(fields.get(3)).isEqualTo("000000");
+        assertThat(fields.get(41)).isEqualTo("TERM0001");
+        // Present in the payload but not requested
+        assertThat(fields.get(4)).isNull();
+        assertThat(fields.get(11)).isNull();
+        assertThat(fields.get(500)).isNull();
+    }
+
+    @Test
+    void stopsParsingOnceEveryFieldIsFound() throws IOException {
+        // Everything after field 41 is malformed; it is never read
+        IsoFields fields = EXTRACTOR.extract("{\"0\":\"0200\",\"2\":\"4111\",\"3\":\"000000\","
+                + "\"41\":\"TERM0001\",\"42\": not json at all");
+
+        assertThat(fields.get(41)).isEqualTo("TERM0001");
+    }
+
+    @Test
+    void missingFieldsAreNullAndTheWholeObjectIsRead() throws IOException {
+        IsoFields fields = EXTRACTOR.extract("{\"0\":\"0200\",\"41\":\"TERM0001\"}");
+
+        assertThat(fields.get(0)).isEqualTo("0200");
+        assertThat(fields.get(2)).isNull();
+        assertThat(fields.get(3)).isNull();
+        // Without early exit, a broken tail is still an error
+        assertThatThrownBy(() -> EXTRACTOR.extract("{\"0\":\"0200\",\"41\": not json"))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void nestedAndUnknownFieldsAreSkipped() throws IOException {
+        IsoFields fields = EXTRACTOR.extract("{\"55\":{\"9F26\":\"AB12\",\"41\":\"NESTED\"},"
+                + "\"127\":[\"41\",{\"0\":\"0100\"}],\"abc\":\"x\",\"1000\":\"y\",\"-1\":\"z\","
+                + "\"\":\"empty\",\"2\":{\"masked\":true},\"0\":\"0200\",\"41\":\"TERM0001\"}");
+
+        assertThat(fields.get(0)).isEqualTo("0200");
+        assertThat(fields.get(41)).isEqualTo("TERM0001");
+        // A requested field whose value is an object is treated as absent
+        assertThat(fields.get(2)).isNull();
+        assertThat(fields.get(3)).isNull();
+    }
+
+    @Test
+    void nonStringValuesComeBackAsTheirText() throws IOException {
+        IsoFields fields = new IsoFieldExtractor(3, 4, 25, 41).extract(
+                "{\"4\":1000,\"3\":0.5,\"25\":true,\"41\":null}");
+
+        assertThat(fields.get(4)).isEqualTo("1000");
+        assertThat(fields.get(3)).isEqualTo("0.5");
+        assertThat(fields.get(25)).isEqualTo("true");
+        assertThat(fields.get(41)).isNull();
+    }
+
+    @Test
+    void reusedHolderIsClearedBetweenMessages() throws IOException {
+        IsoFields holder = EXTRACTOR.newHolder();
+        EXTRACTOR.extract(bytes("{\"0\":\"0200\",\"2\":\"4111\",\"3\":\"000000\",\"41\":\"T1\"}"), holder);
+        EXTRACTOR.extract(bytes("{\"0\":\"0420\"}"), holder);
+
+        assertThat(holder.get(0)).isEqualTo("0420");
+        assertThat(holder.get(2)).isNull();
+        assertThat(holder.get(41)).isNull();
+    }
+
+    @Test
+    void rejectsAHolderFromAnotherExtractor() {
+        IsoFields foreign = new IsoFieldExtractor(0, 2, 3, 41).newHolder();
+
+        assertThatThrownBy(() -> EXTRACTOR.extract(bytes("{}"), foreign))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsNonObjectPayloadsAndOutOfRangeFields() {
+        assertThatThrownBy(() -> EXTRACTOR.extract("[\"0200\"]")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> EXTRACTOR.extract("\"0200\"")).isInstanceOf(IOException.class);
+        assertThatThrownBy(() -> new IsoFieldExtractor(0, 193))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new IsoFieldExtractor(-1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void duplicateRequestedFieldsShareASlot() throws IOException {
+        IsoFields fields = new IsoFieldExtractor(41, 41, 0).extract("{\"0\":\"0200\",\"41\":\"T1\"}");
+
+        assertThat(fields.get(0)).isEqualTo("0200");
+        assertThat(fields.get(41)).isEqualTo("T1");
+    }
+
+    private static byte[] bytes(String json) {
+        return json.getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,163 @@
+package com.paymenthub.common.resilience;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.paymenthub.common.resilience.CircuitBreaker.REJECTED;
+import static com.paymenthub.common.resilience.CircuitBreaker.State.CLOSED;
+import static com.paymenthub.common.resilience.CircuitBreaker.State.HALF_OPEN;
+import static com.paymenthub.common.resilience.CircuitBreaker.State.OPEN;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static final long FAST = 1_000_000L;   // 1ms
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<String> transitions = new ArrayList<>();
+
+    // openMs = 0 → the first tryAcquire after opening goes HALF_OPEN
+    private CircuitBreaker breaker(long openMs) {
+        return CircuitBreaker.builder()
+                .name("test")
+                .windowSize(10)
+                .minCalls(4)
+                .failureRateThreshold(50)
+                .slowCallMs(100)
+                .openMs(openMs)
+                .halfOpenCalls(2)
+                .listener((from, to) -> transitions.add(from + "->" + to))
+                .meterRegistry(registry)
+                .build();
+    }
+
+    private static void fail(CircuitBreaker breaker, int calls) {
+        for (int i = 0; i < calls; i++) {
+            breaker.onFailure(breaker.tryAcquire(), FAST);
+        }
+    }
+
+    @Test
+    void opensAtFailureRateOnceMinCallsAreIn() {
+        CircuitBreaker breaker = breaker(60_000);
+        breaker.onSuccess(breaker.tryAcquire(), FAST);
+        fail(breaker, 2);
+        assertThat(breaker.state()).isEqualTo(CLOSED);   // 3 < min-calls
+
+        fail(breaker, 1);
+        assertThat(breaker.state()).isEqualTo(OPEN);
+        assertThat(breaker.tryAcquire()).isEqualTo(REJECTED);
+        assertThat(registry.get("circuit.rejected").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void slowSuccessCountsAsFailure() {
+        CircuitBreaker breaker = breaker(60_000);
+        for (int i = 0; i < 4; i++) {
+            breaker.onSuccess(breaker.tryAcquire(), 200_000_000L);
+        }
+        assertThat(breaker.state()).isEqualTo(OPEN);
+    }
+
+    @Test
+    void halfOpenClosesAfterAllTrialsSucceed() {
+        CircuitBreaker breaker = breaker(0);
+        fail(breaker, 4);
+
+        long first = breaker.tryAcquire();
+        long second = breaker.tryAcquire();
+        assertThat(breaker.state()).isEqualTo(HALF_OPEN);
+        assertThat(breaker.tryAcquire()).isEqualTo(REJECTED);   // out of trials
+
+        breaker.onSuccess(first, FAST);
+        assertThat(breaker.state()).isEqualTo(HALF_OPEN);
+        breaker.onSuccess(second, FAST);
+        assertThat(breaker.state()).isEqualTo(CLOSED);
+        assertThat(transitions).containsExactly(
+                "CLOSED->OPEN", "OPEN->HALF_OPEN", "HALF_OPEN->CLOSED");
+    }
+
+    @Test
+    void failedTrialReopens() {
+        CircuitBreaker breaker = breaker(0);
+        fail(breaker, 4);
+        long trial = breaker.tryAcquire();
+        breaker.onFailure(trial, FAST);
+        assertThat(breaker.state()).isEqualTo(OPEN);
+    }
+
+    // ── Outcomes from an earlier state generation ────────────────
+
+    @Test
+    void lateSuccessFromClosedDoesNotCloseHalfOpen() {
+        CircuitBreaker breaker = breaker(0);
+        long early1 = breaker.tryAcquire();
+        long early2 = breaker.tryAcquire();
+        fail(breaker, 4);
+        long trial = breaker.tryAcquire();
+        assertThat(breaker.state()).isEqualTo(HALF_OPEN);
+
+        breaker.onSuccess(early1, FAST);
+        breaker.onSuccess(early2, FAST);
+        assertThat(breaker.state()).isEqualTo(HALF_OPEN);
+
+        breaker.onSuccess(trial, FAST);
+        breaker.onSuccess(breaker.tryAcquire(), FAST);
+        assertThat(breaker.state()).isEqualTo(CLOSED);
+    }
+
+    @Test
+    void lateFailureFromClosedDoesNotReopenHalfOpen() {
+        CircuitBreaker breaker = breaker(0);
+        long early = breaker.tryAcquire();
+        fail(breaker, 4);
+        breaker.tryAcquire();
+        assertThat(breaker.state()).isEqualTo(HALF_OPEN);
+
+        breaker.onFailure(early, FAST);
+        assertThat(breaker.state()).isEqualTo(HALF_OPEN);
+    }
+
+    @Test
+    void lateIgnoredFromClosedDoesNotFreeATrialSlot() {
+        CircuitBreaker breaker = breaker(0);
+        long early = breaker.tryAcquire();
+        fail(breaker, 4);
+        breaker.tryAcquire();
+        breaker.tryAcquire();
+        assertThat(breaker.tryAcquire()).isEqualTo(REJECTED);
+
+        breaker.onIgnored(early);
+        assertThat(breaker.tryAcquire()).isEqualTo(REJECTED);
+    }
+
+    @Test
+    void ignoredTrialFreesItsSlot() {
+        CircuitBreaker breaker = breaker(0);
+        fail(breaker, 4);
+        long trial = breaker.tryAcquire();
+        breaker.tryAcquire();
+        assertThat(breaker.tryAcquire()).isEqualTo(REJECTED);
+
+        breaker.onIgnored(trial);
+        assertThat(breaker.tryAcquire()).isNotEqualTo(REJECTED);
+    }
+
+    @Test
+    void lateOutcomeFromBeforeReclosingIsNotCounted() {
+        CircuitBreaker breaker = breaker(0);
+        long early = breaker.tryAcquire();
+        fail(breaker, 4);
+        breaker.onSuccess(breaker.tryAcquire(), FAST);
+        breaker.onSuccess(breaker.tryAcquire(), FAST);
+        assertThat(breaker.state()).isEqualTo(CLOSED);
+
+        // Window starts empty; a stale failure must not be its first entry
+        breaker.onFailure(early, FAST);
+        fail(breaker, 3);
+        assertThat(breaker.state()).isEqualTo(CLOSED);
+    }
+}
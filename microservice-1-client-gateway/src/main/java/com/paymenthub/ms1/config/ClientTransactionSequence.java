@@ -0,0 +1,65 @@
+package com.paymenthub.ms1.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Moves client_transactions_seq past the existing rows at startup.
+ *
+ * Ids came from an IDENTITY column before the pooled SEQUENCE generator;
+ * on those databases ddl-auto creates the sequence at 1, and every new
+ * id would collide with an old row until it caught up. Runs after the
+ * EntityManagerFactory (so ddl-auto has created the table) and before
+ * the web server and listeners start taking traffic.
+ *
+ * Only ever moves the sequence forward, and only when max(id) has
+ * reached it — never the case once it is in use. Instances starting
+ * together serialize on an advisory lock.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+@Slf4j
+public class ClientTransactionSequence {
+
+    // Must match ClientTransaction's @SequenceGenerator
+    static final String SEQUENCE = "client_transactions_seq";
+    static final int ALLOCATION_SIZE = 50;
+
+    static final String CREATE_SQL =
+            "CREATE SEQUENCE IF NOT EXISTS " + SEQUENCE + " INCREMENT BY " + ALLOCATION_SIZE;
+
+    static final String LOCK_SQL =
+            "SELECT pg_advisory_xact_lock(hashtext('" + SEQUENCE + "'))";
+
+    // One row (the new value) if it moved, none if it was already ahead
+    static final String ALIGN_SQL =
+            "SELECT setval('" + SEQUENCE + "', COALESCE(MAX(id), 0) + 1) " +
+            "FROM client_transactions " +
+            "HAVING COALESCE(MAX(id), 0) >= (SELECT last_value FROM " + SEQUENCE + ")";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PostConstruct
+    void align() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.execute(CREATE_SQL);
+            jdbcTemplate.execute(LOCK_SQL);
+            List<Long> moved = jdbcTemplate.queryForList(ALIGN_SQL, Long.class);
+            if (!moved.isEmpty()) {
+                log.warn("⚠️ {} was behind existing rows, moved to {}", SEQUENCE, moved.get(0));
+            }
+        });
+    }
+}
@@ -0,0 +1,34 @@
+package com.paymenthub.ms1.config;
+
+import com.paymenthub.common.crypto.AesGcmEngine;
+import lombok.extern.slf4j.Slf4j;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.security.Security;
+
+@Configuration
+@Slf4j
+public class CryptoConfig {
+
+    @Value("${encryption.client-aes-key}")
+    private String clientAesKey;
+
+    // SunJCE uses the AES-NI / CLMUL intrinsics; BC is pure Java.
+    // Both produce the same IV + ciphertext + tag wire format.
+    @Value("${encryption.provider:SunJCE}")
+    private String provider;
+
+    // Key parsed once, ciphers pooled — shared by decrypt + encrypt paths
+    @Bean
+    public AesGcmEngine clientCryptoEngine() {
+        if (BouncyCastleProvider.PROVIDER_NAME.equals(provider)
+                && Security.getProvider(provider) == null) {
+            Security.addProvider(new BouncyCastleProvider());
+        }
+        log.info("🔐 Client AES-GCM engine | provider={}", provider);
+        return AesGcmEngine.fromBase64Key(clientAesKey, provider);
+    }
+}
@@ -3,11 +3,16 @@ package com.paymenthub.ms1.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.paymenthub.common.amqp.CompressingMessageConverter;
+import com.paymenthub.common.amqp.PaymentHubMessageConverter;
+import com.paymenthub.ms1.service.PublishConfirmHandler;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -18,6 +23,24 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.exchange}")
     private String exchange;
 
+    @Value("${rabbitmq.converter.binary-outbound:false}")
+    private boolean binaryOutbound;
+
+    @Value("${rabbitmq.compression.outbound:false}")
+    private boolean compressOutbound;
+
+    @Value("${rabbitmq.compression.threshold-bytes:1024}")
+    private int compressionThreshold;
+
+    @Value("${rabbitmq.compression.level:1}")
+    private int compressionLevel;
+
+    @Value("${spring.application.name}")
+    private String applicationName;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Value("${rabbitmq.queues.to-ms2}")
     private String toMs2Queue;
 
@@ -67,6 +90,14 @@ public class RabbitMQConfig {
                 .build();
     }
 
+    // Queue: this instance's replies — server-named, exclusive and
+    // auto-deleted, so every gateway node gets the responses to its
+    // own requests. Its name travels as replyTo on each request
+    @Bean
+    public Queue replyQueue() {
+        return new AnonymousQueue(new Base64UrlNamingStrategy("ms1.reply."));
+    }
+
     // Queue: Dead letter (failed messages)
     @Bean
     public Queue deadLetterQueue() {
@@ -105,20 +136,32 @@ public class RabbitMQConfig {
     }
 
     // ─── MESSAGE CONVERTER ───────────────────────────────────
-    // Convert Java objects to JSON automatically
+    // Reads binary or JSON by content type; writes binary only
+    // when rabbitmq.converter.binary-outbound is on
     @Bean
-    public MessageConverter jsonMessageConverter() {
+    public MessageConverter messageConverter() {
         ObjectMapper mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
         mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        return new Jackson2JsonMessageConverter(mapper);
+        MessageConverter converter = new PaymentHubMessageConverter(
+                new Jackson2JsonMessageConverter(mapper), binaryOutbound);
+        // Always inflates content-encoding: deflate; bodies of
+        // threshold-bytes+ are deflated only with compression.outbound on
+        return new CompressingMessageConverter(converter, compressOutbound,
+                compressionThreshold, compressionLevel, meterRegistry, applicationName);
     }
 
     // ─── RABBIT TEMPLATE ─────────────────────────────────────
+    // Confirms + returns are asynchronous (publisher-confirm-type:
+    // correlated); mandatory makes unroutable messages come back
+    // instead of being dropped silently
     @Bean
-    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
+    public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory,
+                                         PublishConfirmHandler confirmHandler) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
-        template.setMessageConverter(jsonMessageConverter());
+        template.setMessageConverter(messageConverter());
+        template.setMandatory(true);
+        template.setConfirmCallback(confirmHandler);
         return template;
     }
 }
\ No newline at end of file
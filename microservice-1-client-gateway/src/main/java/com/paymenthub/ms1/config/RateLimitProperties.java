@@ -0,0 +1,46 @@
+package com.paymenthub.ms1.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * app.rate-limit.* — per-client request limits.
+ *
+ * clients is keyed by the clientId the session resolves to; anyone not
+ * listed gets defaults.
+ */
+@Component
+@ConfigurationProperties(prefix = "app.rate-limit")
+@Data
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    // local → each gateway enforces the full limit on its own
+    // redis → limit shared across gateways, tokens leased in chunks
+    private String mode = "local";
+
+    private Limit defaults = new Limit();
+
+    private Map<String, Limit> clients = new HashMap<>();
+
+    // Tokens taken from Redis per round trip (redis mode)
+    private int leaseSize = 20;
+
+    // Unused leased tokens are dropped after this long
+    private long leaseTtlMs = 1000;
+
+    @Data
+    public static class Limit {
+        private double ratePerSecond = 500;
+        private int burst = 1000;
+    }
+
+    public Limit limitFor(String clientId) {
+        return clients.getOrDefault(clientId, defaults);
+    }
+}
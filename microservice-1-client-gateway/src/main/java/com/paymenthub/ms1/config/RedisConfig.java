@@ -0,0 +1,40 @@
+package com.paymenthub.ms1.config;
+
+import com.paymenthub.ms1.service.RevocationList;
+import com.paymenthub.ms1.service.SessionCache;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+@Configuration
+public class RedisConfig {
+
+    @Value("${app.session-cache.invalidation-channel:session:invalidate}")
+    private String invalidationChannel;
+
+    @Value("${app.session.revocation.channel:session:revoked}")
+    private String revocationChannel;
+
+    // ─── PUB/SUB ─────────────────────────────────────────────
+    // Every gateway instance subscribes, so a logout on one node
+    // evicts the session from all near-caches right away
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            SessionCache sessionCache,
+            ObjectProvider<RevocationList> revocationList) {
+        RedisMessageListenerContainer container =
+                new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(sessionCache,
+                new ChannelTopic(invalidationChannel));
+        // Token mode only: new revocations go into every bloom filter
+        revocationList.ifAvailable(list -> container.addMessageListener(
+                list, new ChannelTopic(revocationChannel)));
+        return container;
+    }
+}
@@ -44,7 +44,7 @@ public class AuthController {
 
         return ResponseEntity.ok(Map.of(
             "sessionId",  sessionId,
-            "expiresIn",  86400,
+            "expiresIn",  sessionService.getSessionTtlSeconds(),
             "tokenType",  "Bearer",
             "howToUse",   "Add header → Authorization: Bearer " + sessionId
         ));
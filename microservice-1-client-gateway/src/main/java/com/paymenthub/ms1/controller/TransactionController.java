@@ -1,17 +1,30 @@
 package com.paymenthub.ms1.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymenthub.common.crypto.AesGcmEngine;
 import com.paymenthub.common.dto.TransactionResponse;
+import com.paymenthub.ms1.service.AdmissionController;
+import com.paymenthub.ms1.service.ClientRateLimiter;
 import com.paymenthub.ms1.service.SessionService;
 import com.paymenthub.ms1.service.TransactionService;
-import com.paymenthub.ms1.util.AESUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RestController
 @RequestMapping("/api/v1/transaction")
@@ -24,11 +37,30 @@ public class TransactionController {
     @Autowired
     private SessionService sessionService;
 
-    @Value("${encryption.client-aes-key}")
-    private String clientAesKey;
+    @Autowired
+    private AesGcmEngine clientCryptoEngine;
+
+    @Autowired
+    private AdmissionController admissionController;
+
+    @Autowired
+    private ClientRateLimiter rateLimiter;
+
+    @Value("${transaction.timeout-ms:28000}")
+    private long timeoutMs;
+
+    @Value("${app.batch.max-size:1000}")
+    private int maxBatchSize;
+
+    private static final MediaType NDJSON = MediaType.parseMediaType("application/x-ndjson");
+
+    // Safety net only — the service-level timeout always fires first
+    private static final long ASYNC_TIMEOUT_MARGIN_MS = 5000;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
 
     @PostMapping
-    public ResponseEntity<Map<String, String>> processTransaction(
+    public DeferredResult<ResponseEntity<Map<String, String>>> processTransaction(
             @RequestHeader("Authorization") String authorization,
             @RequestHeader(value = "X-Source", defaultValue = "UNKNOWN") String source,
             @RequestHeader(value = "X-Destination", defaultValue = "NPCI") String destination,
@@ -36,31 +68,188 @@ public class TransactionController {
 
         long start = System.currentTimeMillis();
 
+        // Servlet thread is released as soon as this method returns.
+        // The result is set later by whichever thread completes the future.
+        DeferredResult<ResponseEntity<Map<String, String>>> deferred =
+                new DeferredResult<>(timeoutMs + ASYNC_TIMEOUT_MARGIN_MS);
+        deferred.onTimeout(() -> {
+            log.error("❌ HTTP async timeout after {}ms",
+                    System.currentTimeMillis() - start);
+            deferred.setResult(systemError());
+        });
+
+        AdmissionController.Permit permit = null;
         try {
             // Step 1: Validate session
-            sessionService.validateSession(authorization);
+            String clientId = sessionService.validateSession(authorization);
             log.info("Request | source={} destination={}", source, destination);
 
+            // Step 2: Per-client rate limit — before any decryption
+            if (!rateLimiter.tryAcquire(clientId)) {
+                log.warn("🚦 Throttled | clientId={}", clientId);
+                Map<String, String> error = new HashMap<>();
+                error.put("status", "THROTTLED");
+                error.put("message", "Rate limit exceeded");
+                deferred.setResult(ResponseEntity.status(429).body(error));
+                return deferred;
+            }
+
+            // Step 3: Admission — a full lane answers "91" right away
+            // instead of parking another request behind a slow switch
+            permit = admissionController.tryAcquire(destination);
+            if (permit == null) {
+                log.warn("🚫 Admission rejected | destination={}", destination);
+                deferred.setResult(encryptResponse(rejectedResponse(), start));
+                return deferred;
+            }
+            AdmissionController.Permit admitted = permit;
+
             String encryptedPayload = request.get("encryptedPayload");
 
-            // Step 2: Process — now passes source + destination
-            TransactionResponse response =
-                    transactionService.processTransaction(
-                            encryptedPayload, source, destination);
+            // Step 4: Process — now passes source + destination
+            transactionService
+                    .processTransaction(encryptedPayload, source, destination)
+                    .whenComplete((response, ex) -> {
+                        // Only a real answer is a latency sample, and only
+                        // a timeout a congestion signal — a publish
+                        // nack/return or other failure says nothing about
+                        // the destination's capacity
+                        if (ex != null) {
+                            admitted.abandon();
+                            log.error("❌ Failed after {}ms",
+                                    System.currentTimeMillis() - start, ex);
+                            deferred.setResult(systemError());
+                            return;
+                        }
+                        admitted.release("TIMEOUT".equals(response.getStatus()));
+                        deferred.setResult(encryptResponse(response, start));
+                    });
 
-            String responseJson = new com.fasterxml.jackson.databind
-                    .ObjectMapper().writeValueAsString(response);
-            String encryptedResponse = AESUtil.encrypt(responseJson, clientAesKey);
+        } catch (RuntimeException e) {
+            releaseOnError(permit);
+            if (e.getMessage() != null &&
+               (e.getMessage().contains("session") ||
+                e.getMessage().contains("Authorization"))) {
+                Map<String, String> error = new HashMap<>();
+                error.put("status", "UNAUTHORIZED");
+                error.put("message", e.getMessage());
+                deferred.setResult(ResponseEntity.status(401).body(error));
+                return deferred;
+            }
+            log.error("❌ Failed after {}ms", System.currentTimeMillis() - start, e);
+            deferred.setResult(systemError());
 
-            log.info("✅ Total time: {}ms | {} | {}",
-                    System.currentTimeMillis() - start,
-                    response.getCorrelationId(),
-                    response.getStatus());
+        } catch (Exception e) {
+            releaseOnError(permit);
+            log.error("❌ Failed after {}ms", System.currentTimeMillis() - start, e);
+            deferred.setResult(systemError());
+        }
+        return deferred;
+    }
 
-            Map<String, String> result = new HashMap<>();
-            result.put("encryptedResponse", encryptedResponse);
-            return ResponseEntity.ok(result);
+    private void releaseOnError(AdmissionController.Permit permit) {
+        if (permit != null) {
+            permit.abandon();
+        }
+    }
+
+    private TransactionResponse rejectedResponse() {
+        return TransactionResponse.builder()
+                .status("FAILED")
+                .responseCode("91")
+                .responseMessage("Destination busy - Please retry")
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    // ─────────────────────────────────────────────────────────────
+    // BATCH — one session check for many transactions
+    // Body: {"encryptedPayloads": ["...", "..."]}
+    // Default: one encrypted JSON array, in request order, once all
+    // results are in. Accept: application/x-ndjson streams one line
+    // per result as it lands: {"index":n,"encryptedResponse":"..."}
+    // ─────────────────────────────────────────────────────────────
+    @PostMapping("/batch")
+    public DeferredResult<ResponseEntity<Map<String, String>>> processBatch(
+            @RequestHeader("Authorization") String authorization,
+            @RequestHeader(value = "X-Source", defaultValue = "UNKNOWN") String source,
+            @RequestHeader(value = "X-Destination", defaultValue = "NPCI") String destination,
+            @RequestBody Map<String, List<String>> request) {
+
+        long start = System.currentTimeMillis();
+        DeferredResult<ResponseEntity<Map<String, String>>> deferred =
+                new DeferredResult<>(timeoutMs + ASYNC_TIMEOUT_MARGIN_MS);
+        deferred.onTimeout(() -> deferred.setResult(systemError()));
+
+        List<String> payloads = request.get("encryptedPayloads");
+        ResponseEntity<Map<String, String>> refused = admitBatch(authorization, payloads);
+        if (refused != null) {
+            deferred.setResult(refused);
+            return deferred;
+        }
+
+        List<CompletableFuture<TransactionResponse>> results =
+                submitBatch(payloads, source, destination);
+        CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+                .whenComplete((ignored, ex) -> {
+                    List<TransactionResponse> responses = new ArrayList<>(results.size());
+                    results.forEach(f -> responses.add(f.join()));
+                    deferred.setResult(encryptResponse(responses, start));
+                });
+        return deferred;
+    }
 
+    @PostMapping(value = "/batch", produces = "application/x-ndjson")
+    public ResponseEntity<ResponseBodyEmitter> processBatchStream(
+            @RequestHeader("Authorization") String authorization,
+            @RequestHeader(value = "X-Source", defaultValue = "UNKNOWN") String source,
+            @RequestHeader(value = "X-Destination", defaultValue = "NPCI") String destination,
+            @RequestBody Map<String, List<String>> request) {
+
+        long start = System.currentTimeMillis();
+        ResponseBodyEmitter emitter =
+                new ResponseBodyEmitter(timeoutMs + ASYNC_TIMEOUT_MARGIN_MS);
+
+        List<String> payloads = request.get("encryptedPayloads");
+        ResponseEntity<Map<String, String>> refused = admitBatch(authorization, payloads);
+        if (refused != null) {
+            sendLine(emitter, refused.getBody());
+            emitter.complete();
+            return ResponseEntity.status(refused.getStatusCode())
+                    .contentType(NDJSON).body(emitter);
+        }
+
+        List<CompletableFuture<TransactionResponse>> results =
+                submitBatch(payloads, source, destination);
+        AtomicInteger remaining = new AtomicInteger(results.size());
+        for (int i = 0; i < results.size(); i++) {
+            int index = i;
+            results.get(i).thenAccept(response -> {
+                try {
+                    Map<String, Object> line = new LinkedHashMap<>();
+                    line.put("index", index);
+                    line.put("encryptedResponse", encrypt(response));
+                    sendLine(emitter, line);
+                } catch (RuntimeException e) {
+                    log.error("❌ Batch entry {} not sent", index, e);
+                } finally {
+                    if (remaining.decrementAndGet() == 0) {
+                        log.info("✅ Batch streamed: {} in {}ms",
+                                results.size(), System.currentTimeMillis() - start);
+                        emitter.complete();
+                    }
+                }
+            });
+        }
+        return ResponseEntity.ok().contentType(NDJSON).body(emitter);
+    }
+
+    // Session, size and rate checks for a batch; the error to send, or null
+    private ResponseEntity<Map<String, String>> admitBatch(
+            String authorization, List<String> payloads) {
+        String clientId;
+        try {
+            clientId = sessionService.validateSession(authorization);
         } catch (RuntimeException e) {
             if (e.getMessage() != null &&
                (e.getMessage().contains("session") ||
@@ -70,28 +259,158 @@ public class TransactionController {
                 error.put("message", e.getMessage());
                 return ResponseEntity.status(401).body(error);
             }
-            log.error("❌ Failed after {}ms", System.currentTimeMillis() - start, e);
+            log.error("❌ Batch session check failed", e);
+            return systemError();
+        }
+
+        if (payloads == null || payloads.isEmpty() || payloads.size() > maxBatchSize) {
             Map<String, String> error = new HashMap<>();
-            error.put("status", "ERROR");
-            error.put("message", "System error");
-            return ResponseEntity.internalServerError().body(error);
+            error.put("status", "BAD_REQUEST");
+            error.put("message", "encryptedPayloads must hold 1 to " + maxBatchSize + " entries");
+            return ResponseEntity.badRequest().body(error);
+        }
+
+        // The whole batch counts against the client's rate
+        if (!rateLimiter.tryAcquire(clientId, payloads.size())) {
+            log.warn("🚦 Batch throttled | clientId={} size={}", clientId, payloads.size());
+            Map<String, String> error = new HashMap<>();
+            error.put("status", "THROTTLED");
+            error.put("message", "Rate limit exceeded");
+            return ResponseEntity.status(429).body(error);
+        }
+        log.info("Batch | clientId={} size={}", clientId, payloads.size());
+        return null;
+    }
+
+    // Admission per entry; futures always complete with a response,
+    // in request order
+    private List<CompletableFuture<TransactionResponse>> submitBatch(
+            List<String> payloads, String source, String destination) {
+
+        List<CompletableFuture<TransactionResponse>> results = new ArrayList<>(payloads.size());
+        List<String> admittedPayloads = new ArrayList<>(payloads.size());
+        List<AdmissionController.Permit> permits = new ArrayList<>(payloads.size());
+        List<Integer> admittedIndexes = new ArrayList<>(payloads.size());
+
+        for (int i = 0; i < payloads.size(); i++) {
+            AdmissionController.Permit permit = admissionController.tryAcquire(destination);
+            if (permit == null) {
+                results.add(CompletableFuture.completedFuture(rejectedResponse()));
+                continue;
+            }
+            results.add(null);
+            permits.add(permit);
+            admittedPayloads.add(payloads.get(i));
+            admittedIndexes.add(i);
+        }
+        if (admittedPayloads.isEmpty()) {
+            return results;
+        }
+
+        List<CompletableFuture<TransactionResponse>> processed;
+        try {
+            processed = transactionService.processBatch(admittedPayloads, source, destination);
+        } catch (RuntimeException e) {
+            log.error("❌ Batch failed", e);
+            permits.forEach(AdmissionController.Permit::abandon);
+            admittedIndexes.forEach(i -> results.set(i,
+                    CompletableFuture.completedFuture(errorResponse())));
+            return results;
+        }
+
+        for (int k = 0; k < processed.size(); k++) {
+            AdmissionController.Permit permit = permits.get(k);
+            results.set(admittedIndexes.get(k), processed.get(k).handle((response, ex) -> {
+                if (ex != null) {
+                    permit.abandon();
+                    log.error("❌ Batch entry failed", ex);
+                    return errorResponse();
+                }
+                permit.release("TIMEOUT".equals(response.getStatus()));
+                return response;
+            }));
+        }
+        return results;
+    }
+
+    private void sendLine(ResponseBodyEmitter emitter, Object line) {
+        try {
+            emitter.send(objectMapper.writeValueAsString(line) + "\n", MediaType.TEXT_PLAIN);
+        } catch (IOException e) {
+            // Client went away — remaining results are simply dropped
+            log.warn("⚠️ Batch stream write failed: {}", e.getMessage());
+        }
+    }
+
+    private String encrypt(Object value) {
+        try {
+            return clientCryptoEngine.encryptToBase64(objectMapper.writeValueAsBytes(value));
+        } catch (IOException e) {
+            throw new IllegalStateException("Response serialization failed", e);
+        }
+    }
+
+    private TransactionResponse errorResponse() {
+        return TransactionResponse.builder()
+                .status("ERROR")
+                .responseCode("96")
+                .responseMessage("System error")
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    // Runs on the thread that completed the future (listener or timeout)
+    private ResponseEntity<Map<String, String>> encryptResponse(
+            TransactionResponse response, long start) {
+        try {
+            String encryptedResponse = encrypt(response);
+
+            log.info("✅ Total time: {}ms | {} | {}",
+                    System.currentTimeMillis() - start,
+                    response.getCorrelationId(),
+                    response.getStatus());
+
+            Map<String, String> result = new HashMap<>();
+            result.put("encryptedResponse", encryptedResponse);
+            return ResponseEntity.ok(result);
 
         } catch (Exception e) {
             log.error("❌ Failed after {}ms", System.currentTimeMillis() - start, e);
-            Map<String, String> error = new HashMap<>();
-            error.put("status", "ERROR");
-            error.put("message", "System error");
-            return ResponseEntity.internalServerError().body(error);
+            return systemError();
+        }
+    }
+
+    private ResponseEntity<Map<String, String>> encryptResponse(
+            List<TransactionResponse> responses, long start) {
+        try {
+            String encryptedResponse = encrypt(responses);
+            log.info("✅ Batch total time: {}ms | size={}",
+                    System.currentTimeMillis() - start, responses.size());
+
+            Map<String, String> result = new HashMap<>();
+            result.put("encryptedResponse", encryptedResponse);
+            return ResponseEntity.ok(result);
+
+        } catch (Exception e) {
+            log.error("❌ Batch failed after {}ms", System.currentTimeMillis() - start, e);
+            return systemError();
         }
     }
 
+    private ResponseEntity<Map<String, String>> systemError() {
+        Map<String, String> error = new HashMap<>();
+        error.put("status", "ERROR");
+        error.put("message", "System error");
+        return ResponseEntity.internalServerError().body(error);
+    }
+
     @PostMapping("/test-encrypt")
     public ResponseEntity<Map<String, String>> testEncrypt(
             @RequestBody Object plainRequest) {
         try {
-            String plainJson = new com.fasterxml.jackson.databind
-                    .ObjectMapper().writeValueAsString(plainRequest);
-            String encrypted = AESUtil.encrypt(plainJson, clientAesKey);
+            String plainJson = objectMapper.writeValueAsString(plainRequest);
+            String encrypted = clientCryptoEngine.encryptToBase64(
+                    plainJson.getBytes(StandardCharsets.UTF_8));
             Map<String, String> response = new HashMap<>();
             response.put("plainJson", plainJson);
             response.put("encryptedPayload", encrypted);
@@ -108,7 +427,8 @@ public class TransactionController {
             @RequestBody Map<String, String> request) {
         try {
             String encrypted = request.get("encryptedResponse");
-            String decrypted = AESUtil.decrypt(encrypted, clientAesKey);
+            String decrypted = new String(
+                    clientCryptoEngine.decryptBase64(encrypted), StandardCharsets.UTF_8);
             Map<String, String> response = new HashMap<>();
             response.put("decryptedResponse", decrypted);
             return ResponseEntity.ok(response);
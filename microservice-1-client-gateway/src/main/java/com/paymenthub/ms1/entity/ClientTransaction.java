@@ -19,8 +19,15 @@ import java.time.LocalDateTime;
 @AllArgsConstructor
 public class ClientTransaction {
 
+    // SEQUENCE (not IDENTITY) so Hibernate can batch inserts;
+    // allocationSize = ids handed out per sequence round trip.
+    // ClientTransactionSequence moves it past rows from the IDENTITY days
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+                    generator = "client_transactions_seq")
+    @SequenceGenerator(name = "client_transactions_seq",
+                       sequenceName = "client_transactions_seq",
+                       allocationSize = 50)
     private Long id;
 
     @Column(name = "correlation_id", unique = true, nullable = false)
@@ -0,0 +1,170 @@
+package com.paymenthub.ms1.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Per-destination in-flight limits in front of processTransaction.
+ *
+ * Two lanes, split the same way the router splits traffic:
+ *   MS2 — NPCI, RUPAY and anything unknown
+ *   MS3 — VISA, MASTERCARD
+ * so a slow switch only fills its own lane.
+ *
+ * Each lane's limit is AIMD on observed latency: a response under
+ * target-latency-ms grows it by 1/limit (about +1 per limit's worth of
+ * responses); a slow response or timeout cuts it by backoff-ratio, at
+ * most once per target-latency window so one burst of slow responses
+ * counts as one signal.
+ */
+@Component
+@Slf4j
+public class AdmissionController {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.admission.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.admission.initial-limit:200}")
+    private int initialLimit;
+
+    @Value("${app.admission.min-limit:10}")
+    private int minLimit;
+
+    @Value("${app.admission.max-limit:2000}")
+    private int maxLimit;
+
+    @Value("${app.admission.target-latency-ms:2000}")
+    private long targetLatencyMs;
+
+    @Value("${app.admission.backoff-ratio:0.9}")
+    private double backoffRatio;
+
+    private Lane ms2Lane;
+    private Lane ms3Lane;
+
+    @PostConstruct
+    void init() {
+        ms2Lane = new Lane("ms2");
+        ms3Lane = new Lane("ms3");
+    }
+
+    /**
+     * Returns a permit to release when the transaction finishes,
+     * or null if the destination's lane is full.
+     */
+    public Permit tryAcquire(String destination) {
+        Lane lane = laneFor(destination);
+        if (!enabled) {
+            lane.inFlight.incrementAndGet();
+            return new Permit(lane);
+        }
+        AtomicInteger inFlight = lane.inFlight;
+        while (true) {
+            int current = inFlight.get();
+            if (current >= (int) lane.limit) {
+                lane.rejected.increment();
+                return null;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return new Permit(lane);
+            }
+        }
+    }
+
+    private Lane laneFor(String destination) {
+        if (destination == null) {
+            return ms2Lane;
+        }
+        return switch (destination.toUpperCase()) {
+            case "VISA", "MASTERCARD" -> ms3Lane;
+            default -> ms2Lane;
+        };
+    }
+
+    // ── Handed to the caller; release exactly once ───────────────
+    public final class Permit {
+
+        private final Lane lane;
+        private final long startNanos = System.nanoTime();
+        private boolean released;
+
+        private Permit(Lane lane) {
+            this.lane = lane;
+        }
+
+        // timedOut → always a congestion signal, whatever the latency
+        public void release(boolean timedOut) {
+            if (free() && enabled) {
+                lane.onSample(System.nanoTime() - startNanos, timedOut);
+            }
+        }
+
+        // Failed before reaching the destination — not a latency sample
+        public void abandon() {
+            free();
+        }
+
+        private synchronized boolean free() {
+            if (released) {
+                return false;
+            }
+            released = true;
+            lane.inFlight.decrementAndGet();
+            return true;
+        }
+    }
+
+    private final class Lane {
+
+        private final String name;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Counter rejected;
+        private volatile double limit = initialLimit;
+        private volatile long lastDecreaseNanos;
+
+        Lane(String name) {
+            this.name = name;
+            this.lastDecreaseNanos =
+                    System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(targetLatencyMs);
+            Gauge.builder("txn.admission.limit", this, l -> l.limit)
+                    .tag("lane", name)
+                    .register(meterRegistry);
+            Gauge.builder("txn.admission.inflight", inFlight, AtomicInteger::get)
+                    .tag("lane", name)
+                    .register(meterRegistry);
+            this.rejected = Counter.builder("txn.admission.rejected")
+                    .tag("lane", name)
+                    .register(meterRegistry);
+        }
+
+        // Races between samples only nudge the limit; no lock needed
+        void onSample(long latencyNanos, boolean timedOut) {
+            long targetNanos = TimeUnit.MILLISECONDS.toNanos(targetLatencyMs);
+            double current = limit;
+            if (timedOut || latencyNanos > targetNanos) {
+                long now = System.nanoTime();
+                if (now - lastDecreaseNanos < targetNanos) {
+                    return;
+                }
+                lastDecreaseNanos = now;
+                limit = Math.max(minLimit, current * backoffRatio);
+                log.warn("📉 Admission limit [{}] {} → {}",
+                        name, (int) current, (int) limit);
+            } else if (current < maxLimit) {
+                limit = Math.min(maxLimit, current + 1.0 / current);
+            }
+        }
+    }
+}
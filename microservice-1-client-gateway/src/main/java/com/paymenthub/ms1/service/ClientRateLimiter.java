@@ -0,0 +1,190 @@
+package com.paymenthub.ms1.service;
+
+import com.paymenthub.ms1.config.RateLimitProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-client rate + burst limits, checked right after the session is
+ * validated and before anything is decrypted.
+ *
+ * local mode: one GCRA cell per client — a single AtomicLong holding the
+ * theoretical arrival time, updated with CAS. No locks, no refill thread.
+ *
+ * redis mode: the token bucket lives in Redis (Lua, atomic) and each
+ * gateway leases lease-size tokens at a time, so most requests only
+ * touch a local counter. Unused leases expire after lease-ttl-ms; across
+ * N gateways the overshoot is bounded by N × lease-size. If Redis is
+ * unreachable the local cell takes over for that request.
+ */
+@Component
+@Slf4j
+public class ClientRateLimiter {
+
+    private static final String BUCKET_PREFIX = "ratelimit:";
+
+    // Refill by elapsed time, grant up to ARGV[3] whole tokens.
+    // Uses the Redis clock so every gateway agrees on "now"
+    // (needs effect replication — the default since Redis 5)
+    private static final RedisScript<Long> LEASE_SCRIPT = new DefaultRedisScript<>("""
+            local rate = tonumber(ARGV[1])
+            local burst = tonumber(ARGV[2])
+            local want = tonumber(ARGV[3])
+            local t = redis.call('TIME')
+            local now = t[1] * 1000 + math.floor(t[2] / 1000)
+            local b = redis.call('HMGET', KEYS[1], 'tokens', 'ts')
+            local tokens = tonumber(b[1]) or burst
+            local ts = tonumber(b[2]) or now
+            tokens = math.min(burst, tokens + (now - ts) * rate / 1000)
+            local granted = math.min(want, math.floor(tokens))
+            redis.call('HSET', KEYS[1], 'tokens', tokens - granted, 'ts', now)
+            redis.call('PEXPIRE', KEYS[1], math.ceil(burst * 1000 / rate) + 1000)
+            return granted
+            """, Long.class);
+
+    @Autowired
+    private RateLimitProperties properties;
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final Map<String, Cell> cells = new ConcurrentHashMap<>();
+
+    /**
+     * true → go ahead; false → over the client's limit (HTTP 429).
+     */
+    public boolean tryAcquire(String clientId) {
+        return tryAcquire(clientId, 1);
+    }
+
+    // All-or-nothing for a batch of permits
+    public boolean tryAcquire(String clientId, int permits) {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        Cell cell = cells.computeIfAbsent(clientId, this::newCell);
+        boolean allowed = "redis".equalsIgnoreCase(properties.getMode())
+                ? cell.tryLeased(permits)
+                : cell.tryLocal(permits);
+        if (!allowed) {
+            cell.throttled.increment();
+        }
+        return allowed;
+    }
+
+    private Cell newCell(String clientId) {
+        RateLimitProperties.Limit limit = properties.limitFor(clientId);
+        log.info("Rate limit | clientId={} rate={}/s burst={}",
+                clientId, limit.getRatePerSecond(), limit.getBurst());
+        return new Cell(clientId, limit);
+    }
+
+    private final class Cell {
+
+        private final String clientId;
+        private final RateLimitProperties.Limit limit;
+        private final long intervalNanos;      // time one token takes to refill
+        private final long burstNanos;         // how far ahead tat may run
+        private final AtomicLong tat = new AtomicLong(System.nanoTime());
+        private final Counter throttled;
+
+        // redis mode
+        private final AtomicInteger leased = new AtomicInteger();
+        private volatile long leaseExpiresAt;
+
+        Cell(String clientId, RateLimitProperties.Limit limit) {
+            this.clientId = clientId;
+            this.limit = limit;
+            this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / limit.getRatePerSecond());
+            this.burstNanos = intervalNanos * limit.getBurst();
+            this.throttled = Counter.builder("txn.ratelimit.throttled")
+                    .tag("client", clientId)
+                    .register(meterRegistry);
+        }
+
+        // ── GCRA: admit if the new arrival time stays within burst ─
+        boolean tryLocal(int permits) {
+            while (true) {
+                long now = System.nanoTime();
+                long current = tat.get();
+                long next = Math.max(current, now) + intervalNanos * permits;
+                if (next - now > burstNanos) {
+                    return false;
+                }
+                if (tat.compareAndSet(current, next)) {
+                    return true;
+                }
+            }
+        }
+
+        // ── Leased tokens, refilled from Redis when they run out ──
+        boolean tryLeased(int permits) {
+            if (takeLeased(permits)) {
+                return true;
+            }
+            synchronized (this) {
+                // Another thread may have refilled while we waited
+                if (takeLeased(permits)) {
+                    return true;
+                }
+                long granted;
+                try {
+                    granted = lease(permits);
+                } catch (RuntimeException e) {
+                    log.warn("⚠️ Rate limit lease failed, using local limit | clientId={}",
+                            clientId, e);
+                    return tryLocal(permits);
+                }
+                // Keep whatever is left of a live lease, drop an expired one
+                if (System.nanoTime() - leaseExpiresAt > 0) {
+                    leased.set(0);
+                }
+                leased.addAndGet((int) granted);
+                leaseExpiresAt = System.nanoTime()
+                        + TimeUnit.MILLISECONDS.toNanos(properties.getLeaseTtlMs());
+                return takeLeased(permits);
+            }
+        }
+
+        private boolean takeLeased(int permits) {
+            if (System.nanoTime() - leaseExpiresAt > 0) {
+                return false;
+            }
+            while (true) {
+                int available = leased.get();
+                if (available < permits) {
+                    return false;
+                }
+                if (leased.compareAndSet(available, available - permits)) {
+                    return true;
+                }
+            }
+        }
+
+        private long lease(int permits) {
+            int want = Math.min(Math.max(properties.getLeaseSize(), permits), limit.getBurst());
+            Long granted = redisTemplate.execute(LEASE_SCRIPT,
+                    List.of(BUCKET_PREFIX + clientId),
+                    String.valueOf(limit.getRatePerSecond()),
+                    String.valueOf(limit.getBurst()),
+                    String.valueOf(want));
+            return granted == null ? 0 : granted;
+        }
+    }
+}
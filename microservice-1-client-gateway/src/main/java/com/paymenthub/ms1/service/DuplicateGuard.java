@@ -0,0 +1,102 @@
+package com.paymenthub.ms1.service;
+
+import com.paymenthub.common.dto.TransactionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Recently answered requests, for retries that arrive just after the
+ * original completed. (Retries while the original is still in flight
+ * attach to its future in {@link PendingRequestRegistry}.)
+ *
+ * Two generations of correlation key → (field 7, response). Field 7 is
+ * kept and compared whole, so a reused terminal + STAN is never mistaken
+ * for a retry on a hash collision.
+ * Every window-ms the older generation is dropped, so an answer stays
+ * replayable for one to two windows and memory is bounded by roughly
+ * two windows of traffic (max-entries forces an early rotation).
+ */
+@Component
+public class DuplicateGuard {
+
+    private record Recent(String transmissionDateTime, TransactionResponse response) {
+    }
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.dedup.max-entries:200000}")
+    private int maxEntries;
+
+    private volatile Map<Long, Recent> current = new ConcurrentHashMap<>();
+    private volatile Map<Long, Recent> previous = new ConcurrentHashMap<>();
+
+    private Counter attached;
+    private Counter replayed;
+    private Counter conflicts;
+
+    @PostConstruct
+    void registerMetrics() {
+        attached = Counter.builder("txn.dedup.hits").tag("result", "attached")
+                .description("Retries that joined the in-flight original")
+                .register(meterRegistry);
+        replayed = Counter.builder("txn.dedup.hits").tag("result", "replayed")
+                .description("Retries answered from a recent response")
+                .register(meterRegistry);
+        conflicts = Counter.builder("txn.dedup.hits").tag("result", "conflict")
+                .description("Terminal + STAN reused with a different field 7")
+                .register(meterRegistry);
+    }
+
+    // transmissionDateTime: ISO field 7 as received, may be null
+    public void remember(long key, String transmissionDateTime, TransactionResponse response) {
+        Map<Long, Recent> generation = current;
+        generation.put(key, new Recent(transmissionDateTime, response));
+        if (generation.size() > maxEntries) {
+            rotateIfFull();
+        }
+    }
+
+    // The earlier answer for this exact request, or null
+    public TransactionResponse recent(long key, String transmissionDateTime) {
+        Recent hit = current.get(key);
+        if (hit == null) {
+            hit = previous.get(key);
+        }
+        if (hit == null || !Objects.equals(hit.transmissionDateTime(), transmissionDateTime)) {
+            return null;
+        }
+        replayed.increment();
+        return hit.response();
+    }
+
+    public void countAttached() {
+        attached.increment();
+    }
+
+    public void countConflict() {
+        conflicts.increment();
+    }
+
+    // Many threads can see the overflow; only the first rotates
+    private synchronized void rotateIfFull() {
+        if (current.size() > maxEntries) {
+            rotate();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.dedup.window-ms:30000}")
+    public synchronized void rotate() {
+        previous = current;
+        current = new ConcurrentHashMap<>();
+    }
+}
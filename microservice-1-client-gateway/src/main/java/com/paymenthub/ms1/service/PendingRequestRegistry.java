@@ -0,0 +1,301 @@
+package com.paymenthub.ms1.service;
+
+import com.paymenthub.common.dto.TransactionResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.TimerTask;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-flight requests waiting for an MS2/MS3 response.
+ *
+ * Keyed by {@link com.paymenthub.ms1.util.CorrelationKey} longs in striped
+ * open-addressing tables — no boxed keys, no map nodes. The entry is
+ * itself the future and its own expiry task on a hashed-wheel timer, so
+ * one pending request costs one object plus the wheel's timeout handle.
+ *
+ * Every exit removes the entry: complete (response), fail (publish
+ * error) or expire (wheel tick → TimeoutException). Whoever removes it
+ * first wins; the others are no-ops.
+ */
+@Component
+public class PendingRequestRegistry {
+
+    private static final int STRIPES = 64;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${transaction.timeout-ms:28000}")
+    private long timeoutMs;
+
+    @Value("${app.pending.tick-ms:100}")
+    private long tickMs;
+
+    @Value("${app.pending.ticks-per-wheel:512}")
+    private int ticksPerWheel;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    private HashedWheelTimer timer;
+    private Counter expiries;
+    private Timer age;
+
+    public PendingRequestRegistry() {
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @PostConstruct
+    void init() {
+        timer = new HashedWheelTimer(new DefaultThreadFactory("pending-timeout", true),
+                tickMs, TimeUnit.MILLISECONDS, ticksPerWheel);
+        timer.start();
+
+        Gauge.builder("txn.pending.inflight", inFlight, AtomicInteger::get)
+                .description("Requests waiting for a downstream response")
+                .register(meterRegistry);
+        expiries = Counter.builder("txn.pending.expiries")
+                .description("Requests that timed out in the registry")
+                .register(meterRegistry);
+        age = Timer.builder("txn.pending.age")
+                .description("Time from registration to completion or expiry")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timer.stop();
+    }
+
+    /**
+     * Registers a new pending request and arms its timeout.
+     * Returns null if the key is already in flight.
+     * transmissionDateTime (ISO field 7, may be null) tells a retry of
+     * the same request (equal) from a different request that reused the key.
+     */
+    public PendingTransaction register(long key, String transmissionDateTime) {
+        PendingTransaction pending = new PendingTransaction(key, transmissionDateTime);
+        if (stripeFor(key).putIfAbsent(key, pending) != null) {
+            return null;
+        }
+        inFlight.incrementAndGet();
+        pending.timeout = timer.newTimeout(pending, timeoutMs, TimeUnit.MILLISECONDS);
+        return pending;
+    }
+
+    // The entry in flight under key, or null
+    public PendingTransaction get(long key) {
+        return stripeFor(key).get(key);
+    }
+
+    // Returns the completed entry, or null if nothing was waiting
+    // (late or unknown response)
+    public PendingTransaction complete(long key, TransactionResponse response) {
+        PendingTransaction pending = remove(key, null);
+        if (pending == null) {
+            return null;
+        }
+        pending.cancelTimeout();
+        pending.complete(response);
+        return pending;
+    }
+
+    public void fail(long key, Throwable cause) {
+        PendingTransaction pending = remove(key, null);
+        if (pending != null) {
+            pending.cancelTimeout();
+            pending.completeExceptionally(cause);
+        }
+    }
+
+    // Fails this exact entry, unless it already finished (or its key
+    // has since been reused); true if it was still pending
+    public boolean fail(PendingTransaction pending, Throwable cause) {
+        if (remove(pending.key, pending) == null) {
+            return false;
+        }
+        pending.cancelTimeout();
+        pending.completeExceptionally(cause);
+        return true;
+    }
+
+    public int size() {
+        return inFlight.get();
+    }
+
+    private PendingTransaction remove(long key, PendingTransaction expected) {
+        PendingTransaction removed = stripeFor(key).remove(key, expected);
+        if (removed != null) {
+            inFlight.decrementAndGet();
+            age.record(System.nanoTime() - removed.registeredAt, TimeUnit.NANOSECONDS);
+        }
+        return removed;
+    }
+
+    private Stripe stripeFor(long key) {
+        return stripes[(int) (mix(key) >>> 58) & (STRIPES - 1)];
+    }
+
+    // murmur3 fmix64 — correlation keys are far from uniform
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+
+    // ── Entry: the future and its own expiry task ────────────────
+    public final class PendingTransaction
+            extends CompletableFuture<TransactionResponse> implements TimerTask {
+
+        private final long key;
+        private final String transmissionDateTime;
+        private final long registeredAt = System.nanoTime();
+        private volatile Timeout timeout;
+
+        private PendingTransaction(long key, String transmissionDateTime) {
+            this.key = key;
+            this.transmissionDateTime = transmissionDateTime;
+        }
+
+        public String transmissionDateTime() {
+            return transmissionDateTime;
+        }
+
+        @Override
+        public void run(Timeout expired) {
+            // Only the entry still mapped under its key may expire
+            if (remove(key, this) != null) {
+                expiries.increment();
+                completeExceptionally(new TimeoutException(
+                        "No response within " + timeoutMs + "ms"));
+            }
+        }
+
+        private void cancelTimeout() {
+            Timeout armed = timeout;
+            if (armed != null) {
+                armed.cancel();
+            }
+        }
+    }
+
+    // ── Open-addressing long → entry table, linear probing ───────
+    // Deletes shift the probe chain back, so there are no tombstones
+    private static final class Stripe {
+
+        private long[] keys = new long[16];
+        private PendingTransaction[] values = new PendingTransaction[16];
+        private int size;
+
+        synchronized PendingTransaction putIfAbsent(long key, PendingTransaction value) {
+            if ((size + 1) * 4 > values.length * 3) {
+                resize();
+            }
+            int mask = values.length - 1;
+            int i = (int) mix(key) & mask;
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            size++;
+            return null;
+        }
+
+        synchronized PendingTransaction get(long key) {
+            int mask = values.length - 1;
+            int i = (int) mix(key) & mask;
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        // expected == null → remove whatever is mapped
+        synchronized PendingTransaction remove(long key, PendingTransaction expected) {
+            int mask = values.length - 1;
+            int i = (int) mix(key) & mask;
+            while (values[i] != null) {
+                if (keys[i] == key) {
+                    PendingTransaction found = values[i];
+                    if (expected != null && found != expected) {
+                        return null;
+                    }
+                    deleteAt(i);
+                    return found;
+                }
+                i = (i + 1) & mask;
+            }
+            return null;
+        }
+
+        private void deleteAt(int hole) {
+            int mask = values.length - 1;
+            values[hole] = null;
+            size--;
+            int j = hole;
+            while (true) {
+                j = (j + 1) & mask;
+                if (values[j] == null) {
+                    return;
+                }
+                int home = (int) mix(keys[j]) & mask;
+                // Move j into the hole unless its home lies in (hole, j]
+                boolean reachable = hole <= j
+                        ? hole < home && home <= j
+                        : hole < home || home <= j;
+                if (!reachable) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    values[j] = null;
+                    hole = j;
+                }
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            PendingTransaction[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new PendingTransaction[oldValues.length * 2];
+            int mask = values.length - 1;
+            for (int k = 0; k < oldValues.length; k++) {
+                if (oldValues[k] != null) {
+                    int i = (int) mix(oldKeys[k]) & mask;
+                    while (values[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[k];
+                    values[i] = oldValues[k];
+                }
+            }
+        }
+    }
+}
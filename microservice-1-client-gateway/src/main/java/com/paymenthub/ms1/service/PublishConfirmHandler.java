@@ -0,0 +1,111 @@
+package com.paymenthub.ms1.service;
+
+import com.paymenthub.ms1.service.PendingRequestRegistry.PendingTransaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Asynchronous publisher confirms for transaction requests.
+ *
+ * Each publish carries a {@link Correlation} pointing straight at its
+ * registry entry, so there is no separate pending-confirm map: the
+ * template's per-channel confirm tracking hands it back, and a nack or
+ * a return (unroutable, mandatory=true) fails that entry at once
+ * instead of leaving the client to the 28s timeout.
+ *
+ * Callbacks run on the connection's I/O thread, which also carries
+ * every other confirm and delivery on that connection. Failing the
+ * entry only completes a future (its continuations are async), but
+ * recording the outcome can block — a full write-behind queue, or an
+ * inline DB write — so that is handed to taskExecutor.
+ */
+@Component
+@Slf4j
+public class PublishConfirmHandler implements RabbitTemplate.ConfirmCallback {
+
+    @Autowired
+    private PendingRequestRegistry pendingRegistry;
+
+    @Autowired
+    private TransactionRecorder recorder;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("taskExecutor")
+    private Executor taskExecutor;
+
+    private Counter acks;
+    private Counter nacks;
+    private Counter returns;
+
+    public static final class Correlation extends CorrelationData {
+
+        private final PendingTransaction pending;
+
+        public Correlation(String correlationId, PendingTransaction pending) {
+            super(correlationId);
+            this.pending = pending;
+        }
+    }
+
+    @PostConstruct
+    void registerMetrics() {
+        acks = Counter.builder("amqp.publish.confirms").tag("result", "ack")
+                .register(meterRegistry);
+        nacks = Counter.builder("amqp.publish.confirms").tag("result", "nack")
+                .register(meterRegistry);
+        returns = Counter.builder("amqp.publish.confirms").tag("result", "returned")
+                .register(meterRegistry);
+    }
+
+    // Runs on the connection's I/O thread — nothing here may block
+    @Override
+    public void confirm(CorrelationData correlationData, boolean ack, String cause) {
+        if (ack && (correlationData == null || correlationData.getReturned() == null)) {
+            acks.increment();
+            return;
+        }
+        String reason;
+        if (!ack) {
+            nacks.increment();
+            reason = "Publish nacked: " + cause;
+        } else {
+            returns.increment();
+            reason = "Publish returned: " + correlationData.getReturned().getReplyText();
+        }
+        if (!(correlationData instanceof Correlation correlation)) {
+            log.error("❌ {} | id={}", reason,
+                    correlationData == null ? null : correlationData.getId());
+            return;
+        }
+
+        // Only fails the entry if it is still this publish's entry
+        if (pendingRegistry.fail(correlation.pending, new AmqpException(reason))) {
+            recordFailed(correlation.getId(), reason);
+        }
+        log.error("❌ {} | {}", reason, correlation.getId());
+    }
+
+    private void recordFailed(String correlationId, String reason) {
+        try {
+            taskExecutor.execute(() -> recorder.recordOutcome(correlationId, "FAILED", reason));
+        } catch (RejectedExecutionException e) {
+            // Pool saturated — the row stays PENDING rather than
+            // stalling the connection
+            log.error("❌ Outcome not recorded, executor full | {}", correlationId);
+        }
+    }
+}
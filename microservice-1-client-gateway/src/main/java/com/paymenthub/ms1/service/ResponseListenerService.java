@@ -14,15 +14,18 @@ public class ResponseListenerService {
     private TransactionService transactionService;
 
     @Autowired
-    private com.paymenthub.ms1.repository.ClientTransactionRepository repository;
+    private TransactionRecorder recorder;
 
     // ─────────────────────────────────────────────────────────────
-    // Listens for responses from MS2
+    // Listens for responses from MS2/MS3 — on this instance's own
+    // reply queue, and on the shared queue for replies sent without
+    // a replyTo (older MS2/MS3 builds)
     // This runs on a SEPARATE thread from the request thread
-    // But completes the CompletableFuture which wakes up the request thread
+    // Completing the CompletableFuture also encrypts and writes the
+    // parked HTTP response (see TransactionController)
     // ─────────────────────────────────────────────────────────────
-    @RabbitListener(queues = "${rabbitmq.queues.from-ms2}",
-                    concurrency = "10-50")  // 10-50 concurrent listeners
+    @RabbitListener(queues = {"${rabbitmq.queues.from-ms2}", "#{replyQueue.name}"},
+                    concurrency = "${rabbitmq.listener-concurrency:10-50}")  // 10-50 concurrent listeners
     public void onResponse(TransactionResponse response) {
         
         long receiveTime = System.currentTimeMillis();
@@ -32,36 +35,25 @@ public class ResponseListenerService {
                 response.getStatus(),
                 response.getResponseCode());
 
-        // ── STEP 1: Update Database ───────────────────────────
-        updateDatabase(response);
-
-        // ── STEP 2: Wake up waiting request thread ────────────
+        // ── STEP 1: Complete the parked HTTP request ──────────
+        // First, so client latency never includes a DB round trip
         transactionService.completeTransaction(response);
 
+        // ── STEP 2: Queue the status update (batched UPDATE) ──
+        updateDatabase(response);
+
         log.debug("⚡ Response processed in {}ms",
                 System.currentTimeMillis() - receiveTime);
     }
 
+    // Goes through the same write-behind queue as the PENDING insert,
+    // so it is always written after it (or merged into it in
+    // single-write mode)
     private void updateDatabase(TransactionResponse response) {
-        try {
-            String responsePayload = buildResponsePayload(response);
-            
-            int updated = repository.updateStatusAndResponse(
-                    response.getCorrelationId(),
-                    response.getStatus(),
-                    responsePayload);
-
-            if (updated > 0) {
-                log.debug("💾 DB updated: {} → {}", 
-                        response.getCorrelationId(), response.getStatus());
-            } else {
-                log.warn("⚠️ DB update failed for: {}", 
-                        response.getCorrelationId());
-            }
-        } catch (Exception e) {
-            log.error("❌ DB update error: {}", 
-                    response.getCorrelationId(), e);
-        }
+        recorder.recordOutcome(
+                response.getCorrelationId(),
+                response.getStatus(),
+                buildResponsePayload(response));
     }
 
     private String buildResponsePayload(TransactionResponse response) {
@@ -0,0 +1,160 @@
+package com.paymenthub.ms1.service;
+
+import com.paymenthub.ms1.util.BloomFilter;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Revoked signed-token ids (app.session.mode=token).
+ *
+ * Redis holds the truth: one key per revoked tokenId, expiring with the
+ * token. A local bloom filter answers "definitely not revoked" for almost
+ * every request, so Redis is only asked about the few ids that hit.
+ *
+ * Other instances learn about new revocations over pub/sub. A message
+ * missed there (subscriber reconnecting, instance paused) is picked up
+ * from a short log of recent revocations every catch-up-interval-ms, so
+ * a revoked token is accepted elsewhere for at most that long — one
+ * small Redis read per interval, none per request. The filter is rebuilt
+ * from Redis every rebuild-interval-ms so expired ids stop costing lookups.
+ */
+@Component
+@ConditionalOnProperty(name = "app.session.mode", havingValue = "token")
+@Slf4j
+public class RevocationList implements MessageListener {
+
+    private static final String REVOKED_PREFIX = "session:revoked:";
+
+    // tokenId scored by revocation time (epoch ms); trimmed by catchUp()
+    private static final String RECENT_KEY = "session:revocations";
+
+    @Autowired
+    private StringRedisTemplate redisTemplate;
+
+    @Value("${app.session.revocation.channel:session:revoked}")
+    private String revocationChannel;
+
+    @Value("${app.session.revocation.expected-revocations:100000}")
+    private long expectedRevocations;
+
+    @Value("${app.session.revocation.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${app.session.revocation.rebuild-interval-ms:600000}")
+    private long rebuildIntervalMs;
+
+    @Value("${app.session.revocation.catch-up-interval-ms:5000}")
+    private long catchUpIntervalMs;
+
+    private volatile BloomFilter current;
+    private volatile BloomFilter building;
+
+    // false until the first successful load — until then every
+    // check goes to Redis rather than trusting an empty filter
+    private volatile boolean loaded;
+
+    // Recent-log entries scored before this are already in the filter
+    private volatile long caughtUpTo;
+
+    @PostConstruct
+    void init() {
+        current = newFilter();
+        caughtUpTo = System.currentTimeMillis();
+        try {
+            rebuild();
+        } catch (Exception e) {
+            log.error("❌ Revocation list load failed, checking Redis until next rebuild", e);
+        }
+    }
+
+    public boolean isRevoked(String tokenId) {
+        if (loaded && !current.mightContain(tokenId)) {
+            return false;
+        }
+        return Boolean.TRUE.equals(redisTemplate.hasKey(REVOKED_PREFIX + tokenId));
+    }
+
+    public void revoke(String tokenId, long remainingSeconds) {
+        if (remainingSeconds <= 0) {
+            return;  // already expired — nothing to revoke
+        }
+        redisTemplate.opsForValue().set(
+                REVOKED_PREFIX + tokenId, "1", Duration.ofSeconds(remainingSeconds));
+        redisTemplate.opsForZSet().add(RECENT_KEY, tokenId, System.currentTimeMillis());
+        add(tokenId);
+        redisTemplate.convertAndSend(revocationChannel, tokenId);
+    }
+
+    // ── Revocation broadcast from any gateway instance ───────────
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        add(new String(message.getBody(), StandardCharsets.UTF_8));
+    }
+
+    // Read building before current: if a rebuild swaps in between,
+    // the id still lands in the filter that ends up live
+    private void add(String tokenId) {
+        BloomFilter next = building;
+        BloomFilter live = current;
+        if (next != null) {
+            next.put(tokenId);
+        }
+        live.put(tokenId);
+    }
+
+    // ── Revocations whose broadcast this instance missed ─────────
+    // Re-reads one interval back to cover clock skew between instances
+    // and revocations written while the last read was running
+    @Scheduled(fixedDelayString = "${app.session.revocation.catch-up-interval-ms:5000}",
+               initialDelayString = "${app.session.revocation.catch-up-interval-ms:5000}")
+    public void catchUp() {
+        long now = System.currentTimeMillis();
+        Set<String> tokenIds = redisTemplate.opsForZSet().rangeByScore(
+                RECENT_KEY, caughtUpTo - catchUpIntervalMs, Double.POSITIVE_INFINITY);
+        if (tokenIds != null) {
+            tokenIds.forEach(this::add);
+        }
+        caughtUpTo = now;
+        // Anything older is covered by rebuild()'s SCAN
+        redisTemplate.opsForZSet().removeRangeByScore(
+                RECENT_KEY, Double.NEGATIVE_INFINITY, now - 2 * rebuildIntervalMs);
+    }
+
+    @Scheduled(fixedDelayString = "${app.session.revocation.rebuild-interval-ms:600000}",
+               initialDelayString = "${app.session.revocation.rebuild-interval-ms:600000}")
+    public void rebuild() {
+        BloomFilter next = newFilter();
+        building = next;
+        long count = 0;
+        try (Cursor<String> keys = redisTemplate.scan(ScanOptions.scanOptions()
+                .match(REVOKED_PREFIX + "*").count(1000).build())) {
+            while (keys.hasNext()) {
+                next.put(keys.next().substring(REVOKED_PREFIX.length()));
+                count++;
+            }
+            current = next;
+            loaded = true;
+        } finally {
+            building = null;
+        }
+        log.info("Revocation filter rebuilt | revokedTokens={}", count);
+    }
+
+    private BloomFilter newFilter() {
+        return new BloomFilter(expectedRevocations, falsePositiveRate);
+    }
+}
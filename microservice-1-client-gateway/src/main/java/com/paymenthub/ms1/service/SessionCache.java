@@ -0,0 +1,160 @@
+package com.paymenthub.ms1.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process near-cache in front of the Redis session store.
+ *
+ * Entries never outlive the Redis key: each one expires at the earlier of
+ * the local TTL and the remaining Redis TTL. Logouts on any gateway
+ * instance are broadcast on a Redis channel and evicted here immediately.
+ *
+ * A miss reads Redis and then puts; a logout (and its eviction) landing
+ * between the two would otherwise put the revoked session back for up
+ * to ttl-seconds. So every eviction leaves a tombstone stamped from one
+ * sequence, readers take a {@link #stamp()} before the Redis read, and
+ * put skips a session evicted after that stamp. Tombstones are kept for
+ * tombstone-ms, longer than any Redis read.
+ */
+@Component
+@Slf4j
+public class SessionCache implements MessageListener {
+
+    private record Entry(String clientId, long expiresAtMillis) {}
+
+    private record Tombstone(long stamp, long evictedAtMillis) {}
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.session-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.session-cache.max-size:100000}")
+    private int maxSize;
+
+    @Value("${app.session-cache.ttl-seconds:60}")
+    private long ttlSeconds;
+
+    @Value("${app.session-cache.tombstone-ms:10000}")
+    private long tombstoneMs;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    // sessionId → its last eviction, for tombstone-ms
+    private final Map<String, Tombstone> tombstones = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    void registerMetrics() {
+        hits = Counter.builder("session.cache.requests")
+                .tag("result", "hit")
+                .register(meterRegistry);
+        misses = Counter.builder("session.cache.requests")
+                .tag("result", "miss")
+                .register(meterRegistry);
+        Gauge.builder("session.cache.size", entries, Map::size)
+                .register(meterRegistry);
+    }
+
+    // Returns clientId, or null when not cached / expired
+    public String get(String sessionId) {
+        if (!enabled) {
+            return null;
+        }
+        Entry entry = entries.get(sessionId);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAtMillis() <= System.currentTimeMillis()) {
+            entries.remove(sessionId, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.clientId();
+    }
+
+    // Take before reading Redis; hand to put
+    public long stamp() {
+        return evictions.get();
+    }
+
+    // redisTtlMillis: remaining TTL of the Redis key (≤ 0 → don't cache).
+    // readStamp: stamp() from before the Redis read that found it
+    public void put(String sessionId, String clientId, long redisTtlMillis, long readStamp) {
+        if (!enabled || redisTtlMillis <= 0 || evictedSince(sessionId, readStamp)) {
+            return;
+        }
+        if (entries.size() >= maxSize) {
+            shrink();
+        }
+        long ttlMillis = Math.min(ttlSeconds * 1000, redisTtlMillis);
+        Entry entry = new Entry(clientId, System.currentTimeMillis() + ttlMillis);
+        entries.put(sessionId, entry);
+        // An eviction between the check and the put: its remove may
+        // have run first, so take the entry back out here
+        if (evictedSince(sessionId, readStamp)) {
+            entries.remove(sessionId, entry);
+        }
+    }
+
+    // Tombstone first, then remove — see put
+    public void evict(String sessionId) {
+        tombstones.put(sessionId, new Tombstone(
+                evictions.incrementAndGet(), System.currentTimeMillis()));
+        entries.remove(sessionId);
+    }
+
+    private boolean evictedSince(String sessionId, long readStamp) {
+        Tombstone tombstone = tombstones.get(sessionId);
+        return tombstone != null && tombstone.stamp() > readStamp;
+    }
+
+    @Scheduled(fixedDelayString = "${app.session-cache.tombstone-ms:10000}")
+    public void expireTombstones() {
+        long cutoff = System.currentTimeMillis() - tombstoneMs;
+        tombstones.values().removeIf(t -> t.evictedAtMillis() <= cutoff);
+    }
+
+    // ── Logout broadcast from any gateway instance ───────────────
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String sessionId = new String(message.getBody(), StandardCharsets.UTF_8);
+        evict(sessionId);
+        log.debug("Session evicted from near-cache | sessionId={}", sessionId);
+    }
+
+    // Drop expired entries first; if still full, drop arbitrary ones
+    // down to 90% so we are not shrinking on every put
+    private void shrink() {
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(e -> e.expiresAtMillis() <= now);
+        int target = (int) (maxSize * 0.9);
+        Iterator<String> it = entries.keySet().iterator();
+        while (entries.size() > target && it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+    }
+}
@@ -3,10 +3,13 @@ package com.paymenthub.ms1.service;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.stereotype.Service;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -18,29 +21,53 @@ public class SessionService {
     @Autowired
     private StringRedisTemplate redisTemplate;
 
+    @Autowired
+    private SessionCache sessionCache;
+
     @Value("${app.session-ttl-seconds:86400}")
     private long sessionTtlSeconds;
 
+    @Value("${app.session-cache.invalidation-channel:session:invalidate}")
+    private String invalidationChannel;
+
+    // redis → opaque sessionId looked up in Redis (default)
+    // token → HMAC-signed token verified locally, Redis only for logouts
+    @Value("${app.session.mode:redis}")
+    private String sessionMode;
+
+    @Autowired(required = false)
+    private SignedTokenService signedTokenService;
+
+    @Autowired(required = false)
+    private RevocationList revocationList;
+
     /**
      * Step 1: Client calls /auth/token
      * We create a sessionId, store it in Redis for 24 hours
      * Return sessionId to client
+     * (token mode: return a signed token, nothing stored)
      */
     public String createSession(String clientId) {
+        if (isTokenMode()) {
+            log.info("Signed token issued | clientId={}", clientId);
+            return signedTokenService.issue(clientId, sessionTtlSeconds);
+        }
     	System.out.println("Start printing");
         String sessionId = UUID.randomUUID().toString();
+        long stamp = sessionCache.stamp();
         redisTemplate.opsForValue().set(
             SESSION_PREFIX + sessionId,
             clientId,
             Duration.ofSeconds(sessionTtlSeconds)
         );
+        sessionCache.put(sessionId, clientId, sessionTtlSeconds * 1000, stamp);
         log.info("Session created | clientId={}", clientId);
         return sessionId;
     }
 
     /**
      * Step 2: Every transaction request calls this
-     * Checks if the sessionId exists in Redis
+     * Checks the local near-cache first, then Redis
      * Returns clientId if valid, throws exception if not
      */
     public String validateSession(String authorizationHeader) {
@@ -53,29 +80,77 @@ public class SessionService {
                 ? authorizationHeader.substring(7).trim()
                 : authorizationHeader.trim();
 
-        String clientId = redisTemplate.opsForValue()
-                .get(SESSION_PREFIX + sessionId);
+        if (isTokenMode()) {
+            return validateSignedToken(sessionId);
+        }
+
+        String clientId = sessionCache.get(sessionId);
+        if (clientId != null) {
+            return clientId;
+        }
+
+        // Cache miss → GET + PTTL in one pipelined round trip; the
+        // stamp keeps a logout racing this read from being cached
+        long stamp = sessionCache.stamp();
+        byte[] key = (SESSION_PREFIX + sessionId).getBytes(StandardCharsets.UTF_8);
+        List<Object> results = redisTemplate.executePipelined(
+                (RedisCallback<Object>) connection -> {
+                    connection.stringCommands().get(key);
+                    connection.keyCommands().pTtl(key);
+                    return null;
+                });
+        clientId = (String) results.get(0);
 
         if (clientId == null) {
             throw new RuntimeException(
                 "Invalid or expired session. Call /api/v1/auth/token first.");
         }
 
+        sessionCache.put(sessionId, clientId, (Long) results.get(1), stamp);
         log.debug("Session valid | clientId={}", clientId);
         return clientId;
     }
 
     /**
      * Logout - deletes session from Redis immediately
+     * and tells every gateway instance to drop its cached copy
      */
     public void deleteSession(String authorizationHeader) {
         String sessionId = authorizationHeader.startsWith("Bearer ")
                 ? authorizationHeader.substring(7).trim()
                 : authorizationHeader.trim();
+        if (isTokenMode()) {
+            SignedTokenService.Claims claims = signedTokenService.parse(sessionId);
+            revocationList.revoke(claims.tokenId(), claims.remainingSeconds());
+            log.info("Signed token revoked | clientId={}", claims.clientId());
+            return;
+        }
         redisTemplate.delete(SESSION_PREFIX + sessionId);
+        sessionCache.evict(sessionId);
+        redisTemplate.convertAndSend(invalidationChannel, sessionId);
         log.info("Session deleted | sessionId={}", sessionId);
     }
 
+    public long getSessionTtlSeconds() {
+        return sessionTtlSeconds;
+    }
+
+    // Signature + expiry are pure CPU; the bloom filter keeps
+    // almost every revocation check off Redis
+    private String validateSignedToken(String token) {
+        SignedTokenService.Claims claims = signedTokenService.verify(token);
+        if (revocationList.isRevoked(claims.tokenId())) {
+            throw new RuntimeException(
+                "Invalid or expired session. Call /api/v1/auth/token first.");
+        }
+        log.debug("Signed token valid | clientId={}", claims.clientId());
+        return claims.clientId();
+    }
+
+    private boolean isTokenMode() {
+        return "token".equals(sessionMode);
+    }
+
     /**
      * Validate credentials before creating session.
      * TODO: Replace with real DB check when you have a clients table.
@@ -0,0 +1,140 @@
+package com.paymenthub.ms1.service;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Self-contained session tokens for app.session.mode=token.
+ *
+ * Format: base64url(payload) "." base64url(HMAC-SHA256(payload))
+ * Payload: expiresAt (8 bytes, epoch seconds) + tokenId (12 random bytes)
+ *          + clientId (UTF-8)
+ *
+ * Verification is pure CPU — no Redis call. tokenId is what the
+ * revocation list stores on logout.
+ */
+@Service
+@ConditionalOnProperty(name = "app.session.mode", havingValue = "token")
+public class SignedTokenService {
+
+    private static final String HMAC = "HmacSHA256";
+    private static final int TOKEN_ID_BYTES = 12;
+    private static final int HEADER_BYTES = 8 + TOKEN_ID_BYTES;
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    public record Claims(String clientId, String tokenId, long expiresAtEpochSeconds) {
+
+        public long remainingSeconds() {
+            return expiresAtEpochSeconds - System.currentTimeMillis() / 1000;
+        }
+    }
+
+    @Value("${app.session.token-secret}")
+    private String tokenSecret;
+
+    private SecretKeySpec key;
+    private final SecureRandom random = new SecureRandom();
+    private final BlockingQueue<Mac> macPool = new ArrayBlockingQueue<>(256);
+
+    @PostConstruct
+    void init() {
+        key = new SecretKeySpec(Base64.getDecoder().decode(tokenSecret), HMAC);
+        releaseMac(acquireMac());  // fail fast on a bad secret
+    }
+
+    public String issue(String clientId, long ttlSeconds) {
+        byte[] client = clientId.getBytes(StandardCharsets.UTF_8);
+        byte[] tokenId = new byte[TOKEN_ID_BYTES];
+        random.nextBytes(tokenId);
+
+        byte[] payload = ByteBuffer.allocate(HEADER_BYTES + client.length)
+                .putLong(System.currentTimeMillis() / 1000 + ttlSeconds)
+                .put(tokenId)
+                .put(client)
+                .array();
+
+        return ENCODER.encodeToString(payload) + "." + ENCODER.encodeToString(sign(payload));
+    }
+
+    /**
+     * Checks signature and expiry only; revocation is the caller's job.
+     * Throws with a "session" message so the controller maps it to 401.
+     */
+    public Claims verify(String token) {
+        Claims claims = parse(token);
+        if (claims.remainingSeconds() <= 0) {
+            throw new RuntimeException(
+                "Invalid or expired session. Call /api/v1/auth/token first.");
+        }
+        return claims;
+    }
+
+    // Signature check without the expiry check (used by logout)
+    public Claims parse(String token) {
+        int dot = token.indexOf('.');
+        byte[] payload;
+        byte[] signature;
+        try {
+            payload = DECODER.decode(token.substring(0, Math.max(dot, 0)));
+            signature = DECODER.decode(token.substring(dot + 1));
+        } catch (IllegalArgumentException e) {
+            payload = null;
+            signature = null;
+        }
+        if (dot < 0 || payload == null || payload.length <= HEADER_BYTES
+                || !MessageDigest.isEqual(sign(payload), signature)) {
+            throw new RuntimeException(
+                "Invalid or expired session. Call /api/v1/auth/token first.");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(payload);
+        long expiresAt = buffer.getLong();
+        String tokenId = ENCODER.encodeToString(
+                Arrays.copyOfRange(payload, 8, HEADER_BYTES));
+        String clientId = new String(payload, HEADER_BYTES,
+                payload.length - HEADER_BYTES, StandardCharsets.UTF_8);
+        return new Claims(clientId, tokenId, expiresAt);
+    }
+
+    private byte[] sign(byte[] payload) {
+        Mac mac = acquireMac();
+        try {
+            return mac.doFinal(payload);
+        } finally {
+            releaseMac(mac);
+        }
+    }
+
+    private Mac acquireMac() {
+        Mac mac = macPool.poll();
+        if (mac != null) {
+            return mac;
+        }
+        try {
+            mac = Mac.getInstance(HMAC);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC init failed", e);
+        }
+    }
+
+    private void releaseMac(Mac mac) {
+        macPool.offer(mac);
+    }
+}
@@ -0,0 +1,130 @@
+package com.paymenthub.ms1.service;
+
+import com.paymenthub.ms1.entity.ClientTransaction;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Decides how a transaction's lifecycle reaches client_transactions.
+ *
+ * Default: PENDING insert at request time, status update at completion
+ * (two row writes, both through {@link TransactionWriteBehind}).
+ *
+ * Single-write mode (app.persistence.single-write.enabled=true): the
+ * PENDING row is held in memory for as long as the response future is
+ * pending and written once, already carrying its final status. Rows
+ * still pending after flush-pending-after-ms are written as PENDING so a
+ * crash loses at most that window; their completion becomes a normal
+ * status update.
+ */
+@Component
+@Slf4j
+public class TransactionRecorder {
+
+    @Autowired
+    private TransactionWriteBehind writeBehind;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.persistence.single-write.enabled:false}")
+    private boolean singleWrite;
+
+    @Value("${app.persistence.single-write.flush-pending-after-ms:5000}")
+    private long flushPendingAfterMs;
+
+    // correlationId → row not yet (fully) persisted; single-write mode only
+    private final Map<String, InFlightRecord> inFlight = new ConcurrentHashMap<>();
+
+    private Counter pendingFlushes;
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("txn.persistence.inflight.records", inFlight, Map::size)
+                .register(meterRegistry);
+        pendingFlushes = Counter.builder("txn.persistence.pending.flushes")
+                .description("Single-write rows written early as PENDING")
+                .register(meterRegistry);
+    }
+
+    public void recordPending(ClientTransaction txn) {
+        if (!singleWrite) {
+            writeBehind.enqueue(txn);
+            return;
+        }
+        InFlightRecord previous = inFlight.put(
+                txn.getCorrelationId(), new InFlightRecord(txn));
+        if (previous != null) {
+            // Same correlationId re-used while in flight — keep the older row
+            previous.flushAsPending();
+        }
+    }
+
+    public void recordOutcome(String correlationId, String status, String responsePayload) {
+        InFlightRecord record = singleWrite ? inFlight.remove(correlationId) : null;
+        if (record == null) {
+            writeBehind.enqueueStatusUpdate(correlationId, status, responsePayload);
+            return;
+        }
+        record.complete(status, responsePayload);
+    }
+
+    // ── Crash safety: write long-pending rows as PENDING ─────────
+    @Scheduled(fixedDelayString = "${app.persistence.single-write.sweep-interval-ms:1000}")
+    public void flushLongPending() {
+        if (!singleWrite || inFlight.isEmpty()) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - flushPendingAfterMs;
+        for (InFlightRecord record : inFlight.values()) {
+            if (record.createdAt <= cutoff) {
+                record.flushAsPending();
+            }
+        }
+    }
+
+    // Guarded by its own monitor so "write PENDING" and "write final"
+    // can't interleave: exactly one insert, then at most one update
+    private final class InFlightRecord {
+
+        private final ClientTransaction txn;
+        private final long createdAt = System.currentTimeMillis();
+        private boolean written;
+
+        InFlightRecord(ClientTransaction txn) {
+            this.txn = txn;
+        }
+
+        synchronized void flushAsPending() {
+            if (written) {
+                return;
+            }
+            written = true;
+            pendingFlushes.increment();
+            writeBehind.enqueue(txn);
+        }
+
+        synchronized void complete(String status, String responsePayload) {
+            if (written) {
+                writeBehind.enqueueStatusUpdate(
+                        txn.getCorrelationId(), status, responsePayload);
+                return;
+            }
+            written = true;
+            txn.setStatus(status);
+            txn.setResponsePayload(responsePayload);
+            writeBehind.enqueue(txn);
+            log.debug("💾 Single write queued: {} → {}", txn.getCorrelationId(), status);
+        }
+    }
+}
@@ -1,30 +1,39 @@
 package com.paymenthub.ms1.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymenthub.common.amqp.RoutingHeaders;
+import com.paymenthub.common.crypto.AesGcmEngine;
 import com.paymenthub.common.dto.RabbitMessage;
 import com.paymenthub.common.dto.TransactionResponse;
+import com.paymenthub.common.iso.IsoFieldExtractor;
+import com.paymenthub.common.iso.IsoFields;
 import com.paymenthub.ms1.entity.ClientTransaction;
-import com.paymenthub.ms1.repository.ClientTransactionRepository;
-import com.paymenthub.ms1.util.AESUtil;
+import com.paymenthub.ms1.service.PendingRequestRegistry.PendingTransaction;
+import com.paymenthub.ms1.util.CorrelationKey;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.Queue;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
-import java.util.UUID;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeoutException;
 
 @Service
 @Slf4j
 public class TransactionService {
 
     @Autowired
-    private ClientTransactionRepository repository;
+    private TransactionRecorder recorder;
 
     @Autowired
     private RabbitTemplate rabbitTemplate;
@@ -35,23 +44,174 @@ public class TransactionService {
     @Value("${rabbitmq.routing-keys.to-ms2}")
     private String toMs2RoutingKey;
 
-    @Value("${encryption.client-aes-key}")
-    private String clientAesKey;
+    @Autowired
+    private AesGcmEngine clientCryptoEngine;
+
+    @Autowired
+    @Qualifier("taskExecutor")
+    private Executor taskExecutor;
+
+    // correlation key → future the HTTP response is parked on
+    @Autowired
+    private PendingRequestRegistry pendingRegistry;
 
-    @Value("${transaction.timeout-ms:28000}")
-    private long timeoutMs;
+    @Autowired
+    private DuplicateGuard duplicateGuard;
 
-    // correlationId → waiting thread
-    private final Map<String, CompletableFuture<TransactionResponse>>
-            pendingRequests = new ConcurrentHashMap<>();
+    // Responses for this instance come back here, not to a shared queue
+    @Autowired
+    @Qualifier("replyQueue")
+    private Queue replyQueue;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    // AMQP properties/headers read by the router and MS2/MS3 without
+    // touching the body: reply queue, correlationId, what the router's
+    // table routes on (destination, MTI, processing code, BIN) and the
+    // terminal it shards on
+    private static MessagePostProcessor amqpProperties(Prepared prepared) {
+        RabbitMessage message = prepared.message();
+        IsoFields isoFields = prepared.isoFields();
+        return m -> {
+            MessageProperties properties = m.getMessageProperties();
+            properties.setReplyTo(message.getReplyTo());
+            properties.setCorrelationId(message.getCorrelationId());
+            properties.setHeader(RoutingHeaders.DESTINATION, message.getDestination());
+            properties.setHeader(RoutingHeaders.MTI, isoFields.get(0));
+            properties.setHeader(RoutingHeaders.PROCESSING_CODE, isoFields.get(3));
+            properties.setHeader(RoutingHeaders.PAN_BIN,
+                    RoutingHeaders.panBin(isoFields.get(2)));
+            properties.setHeader(RoutingHeaders.TERMINAL_ID, isoFields.get(41));
+            return m;
+        };
+    }
+
+    // ISO fields MS1 actually reads: MTI, PAN + processing code (for
+    // routing), transmission time, STAN, txn type, terminal
+    private static final IsoFieldExtractor ISO_FIELDS =
+            new IsoFieldExtractor(0, 2, 3, 7, 11, 36, 41);
 
     // ─────────────────────────────────────────────────────────────
     // CRITICAL PATH — everything here must be fast
     // Target: decrypt + send to MQ in under 20ms
+    // Returns as soon as the message is published; the future
+    // completes when MS2/MS3 answers or the timeout fires
     // ─────────────────────────────────────────────────────────────
-    public TransactionResponse processTransaction(
+    public CompletableFuture<TransactionResponse> processTransaction(
+            String encryptedPayload,
+            String source,
+            String destination) throws Exception {
+
+        Prepared prepared = prepare(encryptedPayload, source, destination);
+        if (prepared.message() == null) {
+            return replyToDuplicate(prepared);
+        }
+
+        // ── Step 5: Send to RabbitMQ immediately (~10ms) ──────────
+        try {
+            rabbitTemplate.convertAndSend(exchange, toMs2RoutingKey,
+                    prepared.message(), amqpProperties(prepared),
+                    confirmation(prepared));
+        } catch (RuntimeException e) {
+            publishFailed(prepared, e);
+            throw e;
+        }
+        log.info("📤 Sent to MQ in {}ms | {}",
+                System.currentTimeMillis() - prepared.startTime(),
+                prepared.correlationId());
+
+        return awaitResponse(prepared);
+    }
+
+    // ─────────────────────────────────────────────────────────────
+    // BATCH PATH — same steps, prepared in parallel on taskExecutor
+    // and published back-to-back on one channel
+    // Futures come back in input order; a payload that fails to
+    // decrypt/parse gets a failed future, the rest still go out
+    // ─────────────────────────────────────────────────────────────
+    public List<CompletableFuture<TransactionResponse>> processBatch(
+            List<String> encryptedPayloads,
+            String source,
+            String destination) {
+
+        long startTime = System.currentTimeMillis();
+
+        List<CompletableFuture<Prepared>> preparing = new ArrayList<>(encryptedPayloads.size());
+        for (String encryptedPayload : encryptedPayloads) {
+            preparing.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return prepare(encryptedPayload, source, destination);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, taskExecutor));
+        }
+        CompletableFuture.allOf(preparing.toArray(CompletableFuture[]::new))
+                .exceptionally(e -> null)
+                .join();
+
+        List<Prepared> toSend = new ArrayList<>(preparing.size());
+        for (CompletableFuture<Prepared> p : preparing) {
+            Prepared prepared = p.isCompletedExceptionally() ? null : p.join();
+            if (prepared != null && prepared.message() != null) {
+                toSend.add(prepared);
+            }
+        }
+
+        // One channel for the whole batch instead of one per message
+        boolean[] handled = new boolean[toSend.size()];
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (int i = 0; i < toSend.size(); i++) {
+                    try {
+                        operations.convertAndSend(exchange, toMs2RoutingKey,
+                                toSend.get(i).message(),
+                                amqpProperties(toSend.get(i)),
+                                confirmation(toSend.get(i)));
+                    } catch (RuntimeException e) {
+                        publishFailed(toSend.get(i), e);
+                    }
+                    handled[i] = true;
+                }
+                return null;
+            });
+        } catch (RuntimeException e) {
+            // No channel at all — fail whatever never reached the loop
+            for (int i = 0; i < toSend.size(); i++) {
+                if (!handled[i]) {
+                    publishFailed(toSend.get(i), e);
+                }
+            }
+        }
+        log.info("📤 Batch of {} sent to MQ in {}ms",
+                encryptedPayloads.size(), System.currentTimeMillis() - startTime);
+
+        List<CompletableFuture<TransactionResponse>> responses = new ArrayList<>(preparing.size());
+        for (CompletableFuture<Prepared> p : preparing) {
+            responses.add(p.thenCompose(prepared -> prepared.message() == null
+                    ? replyToDuplicate(prepared)
+                    : awaitResponse(prepared)));
+        }
+        return responses;
+    }
+
+    // Everything up to (not including) the publish.
+    // message == null → a duplicate: answered by future (the in-flight
+    // original) or by reply (recent answer / STAN conflict)
+    private record Prepared(
+            String correlationId,
+            long correlationKey,
+            RabbitMessage message,
+            IsoFields isoFields,
+            PendingTransaction future,
+            TransactionResponse reply,
+            long startTime) {
+
+        static Prepared duplicate(String correlationId, PendingTransaction original,
+                                  TransactionResponse reply, long startTime) {
+            return new Prepared(correlationId, 0, null, null, original, reply, startTime);
+        }
+    }
+
+    private Prepared prepare(
             String encryptedPayload,
             String source,
             String destination) throws Exception {
@@ -59,109 +219,174 @@ public class TransactionService {
         long startTime = System.currentTimeMillis();
 
         // ── Step 1: Decrypt (~5ms) ────────────────────────────────
-        String plainJson = AESUtil.decrypt(encryptedPayload, clientAesKey);
+        byte[] plainBytes = clientCryptoEngine.decryptBase64(encryptedPayload);
+        String plainJson = new String(plainBytes, StandardCharsets.UTF_8);
         log.info("🔓 Decrypted in {}ms | src={} dest={}",
                 System.currentTimeMillis() - startTime, source, destination);
 
         
         log.info("Decrypted Json", plainJson);
         
-        // ── Step 2: Read field "11" (STAN) for correlationId ─────
-        // Only reading one field — not validating anything
-        @SuppressWarnings("unchecked")
-        Map<String, String> isoFields = objectMapper.readValue(
-                plainJson, Map.class);
-
-        String stan = isoFields.get("11");
-        String correlationId = (stan != null && !stan.isBlank())
-                ? "TXN-" + stan
-                : "TXN-" + UUID.randomUUID().toString()
-                        .substring(0, 8).toUpperCase();
+        // ── Step 2: Read fields 41 + 11 for correlationId ────────
+        // Streams only the fields we need — not validating anything
+        IsoFields isoFields = ISO_FIELDS.extract(plainBytes);
+
+        String correlationId = CorrelationKey.correlationId(
+                isoFields.get(41), isoFields.get(11));
+        long correlationKey = CorrelationKey.of(correlationId);
+        String transmissionDateTime = isoFields.get(7);
 
         log.info("📥 {} | MTI={} | Terminal={} | Dest={}",
                 correlationId,
-                isoFields.get("0"),
-                isoFields.get("41"),
+                isoFields.get(0),
+                isoFields.get(41),
                 destination);
 
         // ── Step 3: Register future BEFORE sending ────────────────
-        CompletableFuture<TransactionResponse> responseFuture =
-                new CompletableFuture<>();
-        pendingRequests.put(correlationId, responseFuture);
+        // The registry's timer wheel expires it; nothing blocks on it.
+        // Terminal retries never go downstream twice (single-flight)
+        TransactionResponse recent = duplicateGuard.recent(correlationKey, transmissionDateTime);
+        if (recent != null) {
+            log.info("♻️ Retry of answered request, replaying | {}", correlationId);
+            return Prepared.duplicate(correlationId, null, recent, startTime);
+        }
+        PendingTransaction responseFuture =
+                pendingRegistry.register(correlationKey, transmissionDateTime);
+        if (responseFuture == null) {
+            return inFlightDuplicate(correlationId, correlationKey, transmissionDateTime, startTime);
+        }
+
+        // ── Step 4: Queue the PENDING insert BEFORE sending ───────
+        // Enqueued ahead of any status update for this correlationId,
+        // so a fast response can never be written before its row
+        saveToDatabase(correlationId, isoFields, encryptedPayload);
 
-        // ── Step 4: Send to RabbitMQ immediately (~10ms) ──────────
-        // DB save runs fully in background — does NOT block MQ send
         RabbitMessage message = RabbitMessage.builder()
                 .correlationId(correlationId)
                 .plainJsonPayload(plainJson)
                 .source(source)
                 .destination(destination)
                 .timestamp(System.currentTimeMillis())
+                .replyTo(replyQueue.getName())
                 .build();
+        return new Prepared(correlationId, correlationKey, message, isoFields,
+                responseFuture, null, startTime);
+    }
 
-        rabbitTemplate.convertAndSend(exchange, toMs2RoutingKey, message);
-        log.info("📤 Sent to MQ in {}ms | {}",
+    // Same terminal + STAN already in flight: same field 7 is a retry
+    // and shares the original's future; a different one is a STAN clash
+    private Prepared inFlightDuplicate(
+            String correlationId, long correlationKey, String transmissionDateTime, long startTime) {
+        PendingTransaction original = pendingRegistry.get(correlationKey);
+        if (original == null) {
+            // Finished between register() and get() — its answer is recent
+            TransactionResponse recent = duplicateGuard.recent(correlationKey, transmissionDateTime);
+            return Prepared.duplicate(correlationId, null,
+                    recent != null ? recent : duplicateResponse(correlationId), startTime);
+        }
+        if (!Objects.equals(original.transmissionDateTime(), transmissionDateTime)) {
+            duplicateGuard.countConflict();
+            log.warn("⚠️ STAN in flight with different field 7, not forwarded | {}",
+                    correlationId);
+            return Prepared.duplicate(correlationId, null,
+                    duplicateResponse(correlationId), startTime);
+        }
+        duplicateGuard.countAttached();
+        log.info("🔗 Retry attached to in-flight original | {}", correlationId);
+        return Prepared.duplicate(correlationId, original, null, startTime);
+    }
+
+    // Attached retries never record an outcome — the original owns the row
+    private CompletableFuture<TransactionResponse> replyToDuplicate(Prepared prepared) {
+        if (prepared.reply() != null) {
+            return CompletableFuture.completedFuture(prepared.reply());
+        }
+        return prepared.future()
+                .exceptionallyAsync(e -> timeoutResponse(prepared.correlationId()),
+                        taskExecutor);
+    }
+
+    // Confirm arrives asynchronously; a nack/return fails this entry
+    private PublishConfirmHandler.Correlation confirmation(Prepared prepared) {
+        return new PublishConfirmHandler.Correlation(
+                prepared.correlationId(), prepared.future());
+    }
+
+    // Never leave the entry behind for a message that wasn't sent
+    private void publishFailed(Prepared prepared, RuntimeException e) {
+        log.error("❌ Publish failed | {}", prepared.correlationId(), e);
+        pendingRegistry.fail(prepared.correlationKey(), e);
+        recorder.recordOutcome(prepared.correlationId(), "FAILED", "Publish failed");
+    }
+
+    // ── Step 6: Hand the future back — no thread waits on it ──────
+    // ResponseListenerService completes it, the registry expires
+    // it, and the caller finishes the HTTP response from there
+    private CompletableFuture<TransactionResponse> awaitResponse(Prepared prepared) {
+        log.info("⏳ Waiting for response [{}]", prepared.correlationId());
+        return prepared.future()
+                .exceptionallyAsync(e -> {
+                    if (e instanceof TimeoutException) {
+                        return handleTimeout(prepared.correlationId(), prepared.startTime());
+                    }
+                    // Publish failure — already recorded, surface it
+                    throw new CompletionException(e);
+                }, taskExecutor);
+    }
+
+    // ── Timeout path — runs on taskExecutor, never on the timer ───
+    // The registry has already dropped the entry by the time we get here
+    private TransactionResponse handleTimeout(
+            String correlationId, long startTime) {
+        log.error("⏱ TIMEOUT {}ms | {}",
                 System.currentTimeMillis() - startTime, correlationId);
+        recorder.recordOutcome(
+                correlationId, "TIMEOUT", "Transaction timed out");
+        return timeoutResponse(correlationId);
+    }
 
-        // ── Step 5: DB save fires in background ───────────────────
-        // Client does NOT wait for this
-        saveToDatabase(correlationId, isoFields, encryptedPayload);
+    private TransactionResponse timeoutResponse(String correlationId) {
+        return TransactionResponse.builder()
+                .correlationId(correlationId)
+                .status("TIMEOUT")
+                .responseCode("91")
+                .responseMessage("Timeout - Please try again")
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
 
-        // ── Step 6: Wait for MS2/MS3 response ─────────────────────
-        log.info("⏳ Waiting for response [{}]", correlationId);
-        try {
-            TransactionResponse response = responseFuture.get(
-                    timeoutMs, TimeUnit.MILLISECONDS);
-
-            log.info("✅ TOTAL {}ms | {} | {}",
-                    System.currentTimeMillis() - startTime,
-                    correlationId,
-                    response.getStatus());
-            return response;
-
-        } catch (java.util.concurrent.TimeoutException e) {
-            pendingRequests.remove(correlationId);
-            log.error("⏱ TIMEOUT {}ms | {}",
-                    System.currentTimeMillis() - startTime, correlationId);
-            repository.updateStatusAndResponse(
-                    correlationId, "TIMEOUT", "Transaction timed out");
-            return TransactionResponse.builder()
-                    .correlationId(correlationId)
-                    .status("TIMEOUT")
-                    .responseCode("91")
-                    .responseMessage("Timeout - Please try again")
-                    .timestamp(System.currentTimeMillis())
-                    .build();
-        }
+    private TransactionResponse duplicateResponse(String correlationId) {
+        return TransactionResponse.builder()
+                .correlationId(correlationId)
+                .status("FAILED")
+                .responseCode("94")
+                .responseMessage("Duplicate transaction")
+                .timestamp(System.currentTimeMillis())
+                .build();
     }
 
-    // ── Fully background — client never waits for this ────────────
-    @Async("taskExecutor")
+    // ── Handed to the recorder (write-behind) — client never waits ─
     public void saveToDatabase(
             String correlationId,
-            Map<String, String> isoFields,
+            IsoFields isoFields,
             String encryptedPayload) {
-        try {
-            ClientTransaction txn = ClientTransaction.builder()
-                    .correlationId(correlationId)
-                    .terminalId(isoFields.get("41"))
-                    .txnType(isoFields.get("36"))
-                    .status("PENDING")
-                    .requestPayload(encryptedPayload)
-                    .build();
-            repository.save(txn);
-            log.debug("💾 DB saved: {}", correlationId);
-        } catch (Exception e) {
-            log.error("❌ DB save failed: {}", correlationId, e);
-        }
+        ClientTransaction txn = ClientTransaction.builder()
+                .correlationId(correlationId)
+                .terminalId(isoFields.get(41))
+                .txnType(isoFields.get(36))
+                .status("PENDING")
+                .requestPayload(encryptedPayload)
+                .build();
+        recorder.recordPending(txn);
     }
 
     // ── Called by ResponseListenerService ─────────────────────────
     public void completeTransaction(TransactionResponse response) {
-        CompletableFuture<TransactionResponse> future =
-                pendingRequests.remove(response.getCorrelationId());
-        if (future != null) {
-            future.complete(response);
+        long correlationKey = CorrelationKey.of(response.getCorrelationId());
+        PendingTransaction completed = pendingRegistry.complete(correlationKey, response);
+        if (completed != null) {
+            // Kept for a while so a late terminal retry gets the same answer
+            duplicateGuard.remember(correlationKey, completed.transmissionDateTime(), response);
             log.info("🎯 Completed: {}", response.getCorrelationId());
         } else {
             log.warn("⚠️ No waiting request for: {}",
@@ -0,0 +1,310 @@
+package com.paymenthub.ms1.service;
+
+import com.paymenthub.ms1.entity.ClientTransaction;
+import com.paymenthub.ms1.repository.ClientTransactionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind stage for client_transactions inserts and status updates.
+ *
+ * Callers enqueue into a bounded queue; one flusher thread drains it and
+ * writes batches: inserts with saveAll (Hibernate JDBC batching + the
+ * driver's reWriteBatchedInserts → multi-row INSERTs), status updates as
+ * one UPDATE ... FROM (VALUES ...) per batch. A batch is flushed when it
+ * reaches batch-size or when flush-interval-ms has passed since its first
+ * record, whichever comes first.
+ *
+ * Ordering: one FIFO queue and one flusher, and within a batch inserts
+ * are written before updates (an update whose insert is in the same
+ * batch is folded into it). As long as the insert is enqueued before the
+ * request is published, its update can never overtake it.
+ *
+ * Nothing is dropped: when the queue stays full for enqueue-timeout-ms an
+ * insert is written synchronously by its caller; an update blocks its
+ * caller until there is room (it must stay behind its insert).
+ */
+@Component
+@Slf4j
+public class TransactionWriteBehind {
+
+    @Autowired
+    private ClientTransactionRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.persistence.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.persistence.batch-size:200}")
+    private int batchSize;
+
+    @Value("${app.persistence.flush-interval-ms:50}")
+    private long flushIntervalMs;
+
+    @Value("${app.persistence.enqueue-timeout-ms:100}")
+    private long enqueueTimeoutMs;
+
+    // Either a full row to insert or a status update for an existing row
+    private record PendingWrite(ClientTransaction insert,
+                                String correlationId,
+                                String status,
+                                String responsePayload) {
+
+        static PendingWrite insert(ClientTransaction txn) {
+            return new PendingWrite(txn, txn.getCorrelationId(), null, null);
+        }
+
+        static PendingWrite update(String correlationId, String status, String responsePayload) {
+            return new PendingWrite(null, correlationId, status, responsePayload);
+        }
+    }
+
+    // Rows per UPDATE ... FROM (VALUES ...) — 3 bind params each
+    private static final int UPDATE_CHUNK = 500;
+
+    private BlockingQueue<PendingWrite> queue;
+    private Thread flusher;
+    private volatile boolean running;
+
+    private Timer flushTimer;
+    private DistributionSummary batchSizes;
+    private Counter callerRuns;
+
+    @PostConstruct
+    void start() {
+        queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        flushTimer = Timer.builder("txn.persistence.flush")
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+        batchSizes = DistributionSummary.builder("txn.persistence.batch.size")
+                .register(meterRegistry);
+        callerRuns = Counter.builder("txn.persistence.caller.runs")
+                .description("Records written on the caller thread because the queue was full")
+                .register(meterRegistry);
+        Gauge.builder("txn.persistence.queue.depth", queue, BlockingQueue::size)
+                .register(meterRegistry);
+
+        running = true;
+        flusher = new Thread(this::runLoop, "db-write-behind");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    public void enqueue(ClientTransaction txn) {
+        try {
+            if (queue.offer(PendingWrite.insert(txn), enqueueTimeoutMs, TimeUnit.MILLISECONDS)) {
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Queue saturated → backpressure: caller pays for its own write
+        callerRuns.increment();
+        log.warn("⚠️ Write-behind queue full ({}), writing inline: {}",
+                queue.size(), txn.getCorrelationId());
+        saveOne(txn);
+    }
+
+    // Final status for a row already enqueued (or written) by enqueue().
+    // Blocks when the queue is full rather than writing inline, so the
+    // update can never land before its own insert.
+    public void enqueueStatusUpdate(String correlationId, String status, String responsePayload) {
+        try {
+            queue.put(PendingWrite.update(correlationId, status, responsePayload));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.error("❌ Interrupted, status update not queued: {} → {}", correlationId, status);
+        }
+    }
+
+    // ── Flusher thread ───────────────────────────────────────────
+    private void runLoop() {
+        List<PendingWrite> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                fillBatch(batch);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queue.drainTo(batch);
+                flush(batch);
+                return;
+            } catch (Exception e) {
+                log.error("❌ Write-behind loop error", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // Linger up to flush-interval-ms after the first record for a full batch
+    private void fillBatch(List<PendingWrite> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        while (batch.size() < batchSize) {
+            queue.drainTo(batch, batchSize - batch.size());
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= batchSize || remaining <= 0) {
+                return;
+            }
+            PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        batchSizes.record(batch.size());
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        // Split, keeping queue order; fold updates into same-batch inserts
+        List<ClientTransaction> inserts = new ArrayList<>();
+        Map<String, ClientTransaction> latestInsert = new HashMap<>();
+        Map<String, PendingWrite> updates = new LinkedHashMap<>();
+        for (PendingWrite write : batch) {
+            if (write.insert() != null) {
+                inserts.add(write.insert());
+                latestInsert.put(write.correlationId(), write.insert());
+                continue;
+            }
+            ClientTransaction pending = latestInsert.get(write.correlationId());
+            if (pending != null) {
+                pending.setStatus(write.status());
+                pending.setResponsePayload(write.responsePayload());
+            } else {
+                updates.put(write.correlationId(), write);
+            }
+        }
+
+        try {
+            saveInserts(inserts);
+            saveUpdates(new ArrayList<>(updates.values()));
+        } finally {
+            sample.stop(flushTimer);
+        }
+    }
+
+    private void saveInserts(List<ClientTransaction> inserts) {
+        if (inserts.isEmpty()) {
+            return;
+        }
+        try {
+            repository.saveAll(inserts);
+            log.debug("💾 DB batch saved: {} rows", inserts.size());
+        } catch (Exception e) {
+            // One bad row (e.g. duplicate correlation_id) rolls back the
+            // whole batch — retry row by row so the rest still land
+            log.error("❌ DB batch save failed ({} rows), retrying individually",
+                    inserts.size(), e);
+            for (ClientTransaction txn : inserts) {
+                txn.setId(null);
+                saveOne(txn);
+            }
+        }
+    }
+
+    private void saveUpdates(List<PendingWrite> updates) {
+        for (int from = 0; from < updates.size(); from += UPDATE_CHUNK) {
+            List<PendingWrite> chunk =
+                    updates.subList(from, Math.min(from + UPDATE_CHUNK, updates.size()));
+            try {
+                int updated = jdbcTemplate.update(batchUpdateSql(chunk.size()), bindArgs(chunk));
+                if (updated < chunk.size()) {
+                    log.warn("⚠️ DB batch update matched {}/{} rows", updated, chunk.size());
+                } else {
+                    log.debug("💾 DB batch updated: {} rows", updated);
+                }
+            } catch (Exception e) {
+                log.error("❌ DB batch update failed ({} rows), retrying individually",
+                        chunk.size(), e);
+                for (PendingWrite write : chunk) {
+                    updateOne(write);
+                }
+            }
+        }
+    }
+
+    // UPDATE ... FROM (VALUES (?,?,?), ...) — one statement for the chunk
+    private static String batchUpdateSql(int rows) {
+        StringBuilder sql = new StringBuilder(
+                "UPDATE client_transactions AS t " +
+                "SET status = v.status, response_payload = v.response_payload, " +
+                "updated_at = now() FROM (VALUES ");
+        for (int i = 0; i < rows; i++) {
+            sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+        }
+        return sql.append(") AS v(correlation_id, status, response_payload) " +
+                "WHERE t.correlation_id = v.correlation_id").toString();
+    }
+
+    private static Object[] bindArgs(List<PendingWrite> chunk) {
+        Object[] args = new Object[chunk.size() * 3];
+        int i = 0;
+        for (PendingWrite write : chunk) {
+            args[i++] = write.correlationId();
+            args[i++] = write.status();
+            args[i++] = write.responsePayload();
+        }
+        return args;
+    }
+
+    private void updateOne(PendingWrite write) {
+        try {
+            if (repository.updateStatusAndResponse(
+                    write.correlationId(), write.status(), write.responsePayload()) == 0) {
+                log.warn("⚠️ DB update failed for: {}", write.correlationId());
+            }
+        } catch (Exception e) {
+            log.error("❌ DB update error: {}", write.correlationId(), e);
+        }
+    }
+
+    private void saveOne(ClientTransaction txn) {
+        try {
+            repository.save(txn);
+        } catch (Exception e) {
+            log.error("❌ DB save failed: {}", txn.getCorrelationId(), e);
+        }
+    }
+
+    // Drain what is left before the datasource goes away
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        flusher.join(TimeUnit.SECONDS.toMillis(10));
+    }
+}
@@ -1,80 +0,0 @@
-package com.paymenthub.ms1.util;
-
-import org.bouncycastle.jce.provider.BouncyCastleProvider;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import javax.crypto.Cipher;
-import javax.crypto.spec.GCMParameterSpec;
-import javax.crypto.spec.SecretKeySpec;
-import java.nio.charset.StandardCharsets;
-import java.security.SecureRandom;
-import java.security.Security;
-import java.util.Arrays;
-import java.util.Base64;
-
-public class AESUtil {
-
-    private static final Logger log = LoggerFactory.getLogger(AESUtil.class);
-    private static final String ALGORITHM = "AES/GCM/NoPadding";
-    private static final int GCM_IV_LENGTH = 12;
-    private static final int GCM_TAG_LENGTH = 128;
-
-    static {
-        Security.addProvider(new BouncyCastleProvider());
-    }
-
-    // Encrypt plain text with AES key
-    public static String encrypt(String plainText, String base64Key) {
-        try {
-            byte[] keyBytes = Base64.getDecoder().decode(base64Key);
-            SecretKeySpec secretKey = new SecretKeySpec(keyBytes, "AES");
-
-            byte[] iv = new byte[GCM_IV_LENGTH];
-            new SecureRandom().nextBytes(iv);
-
-            Cipher cipher = Cipher.getInstance(ALGORITHM, "BC");
-            cipher.init(Cipher.ENCRYPT_MODE, secretKey, 
-                       new GCMParameterSpec(GCM_TAG_LENGTH, iv));
-
-            byte[] encrypted = cipher.doFinal(
-                plainText.getBytes(StandardCharsets.UTF_8));
-
-            // Combine IV + encrypted data
-            byte[] combined = new byte[iv.length + encrypted.length];
-            System.arraycopy(iv, 0, combined, 0, iv.length);
-            System.arraycopy(encrypted, 0, combined, iv.length, encrypted.length);
-
-            return Base64.getEncoder().encodeToString(combined);
-
-        } catch (Exception e) {
-            log.error("Encryption failed", e);
-            throw new RuntimeException("Encryption failed", e);
-        }
-    }
-
-    // Decrypt encrypted text with AES key
-    public static String decrypt(String encryptedData, String base64Key) {
-        try {
-            byte[] keyBytes = Base64.getDecoder().decode(base64Key);
-            SecretKeySpec secretKey = new SecretKeySpec(keyBytes, "AES");
-
-            byte[] combined = Base64.getDecoder().decode(encryptedData);
-            byte[] iv = Arrays.copyOfRange(combined, 0, GCM_IV_LENGTH);
-            byte[] ciphertext = Arrays.copyOfRange(combined, 
-                                                   GCM_IV_LENGTH, 
-                                                   combined.length);
-
-            Cipher cipher = Cipher.getInstance(ALGORITHM, "BC");
-            cipher.init(Cipher.DECRYPT_MODE, secretKey, 
-                       new GCMParameterSpec(GCM_TAG_LENGTH, iv));
-
-            byte[] decrypted = cipher.doFinal(ciphertext);
-            return new String(decrypted, StandardCharsets.UTF_8);
-
-        } catch (Exception e) {
-            log.error("Decryption failed", e);
-            throw new RuntimeException("Decryption failed", e);
-        }
-    }
-}
\ No newline at end of file
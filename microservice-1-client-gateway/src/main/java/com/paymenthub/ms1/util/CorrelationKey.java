@@ -0,0 +1,108 @@
+package com.paymenthub.ms1.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * correlationId ↔ 64-bit key for the pending-request registry.
+ *
+ * correlationId: "TXN-" [terminal "-"] stan
+ *
+ * Exact encoding (top bit clear) when the terminal is up to 8 chars of
+ * [0-9A-Z ] and the STAN is 6 digits:
+ *   bits 20..61  terminal, base 38 (0 = end, 1..37 = symbol)
+ *   bits  0..19  STAN
+ * Anything else (generated ids, odd terminals) falls back to a 63-bit
+ * hash of the whole id with the top bit set, so the two never collide.
+ */
+public final class CorrelationKey {
+
+    public static final String PREFIX = "TXN-";
+
+    private static final int STAN_BITS = 20;
+    private static final int STAN_LENGTH = 6;
+    private static final int MAX_TERMINAL_LENGTH = 8;
+    private static final int RADIX = 38;
+    private static final long HASHED = 1L << 63;
+
+    private CorrelationKey() {
+    }
+
+    // Built from ISO field 41 and 11; random id if the STAN is missing
+    public static String correlationId(String terminalId, String stan) {
+        if (stan == null || stan.isBlank()) {
+            return PREFIX + UUID.randomUUID().toString()
+                    .substring(0, 8).toUpperCase();
+        }
+        String terminal = terminalId == null ? "" : terminalId.trim();
+        return terminal.isEmpty()
+                ? PREFIX + stan
+                : PREFIX + terminal + "-" + stan;
+    }
+
+    public static long of(String correlationId) {
+        long exact = encode(correlationId);
+        return exact >= 0 ? exact : hashed(correlationId);
+    }
+
+    // -1 when the id doesn't fit the exact layout
+    private static long encode(String id) {
+        if (id == null || !id.startsWith(PREFIX)) {
+            return -1;
+        }
+        int dash = id.lastIndexOf('-');
+        int stanStart = dash + 1;
+        if (id.length() - stanStart != STAN_LENGTH) {
+            return -1;
+        }
+        long stan = 0;
+        for (int i = stanStart; i < id.length(); i++) {
+            char c = id.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            stan = stan * 10 + (c - '0');
+        }
+
+        // dash == PREFIX.length() - 1 → no terminal part
+        int terminalLength = dash - PREFIX.length();
+        if (terminalLength > MAX_TERMINAL_LENGTH) {
+            return -1;
+        }
+        long terminal = 0;
+        for (int i = 0; i < MAX_TERMINAL_LENGTH; i++) {
+            int symbol = 0;
+            if (i < terminalLength) {
+                symbol = symbol(id.charAt(PREFIX.length() + i));
+                if (symbol == 0) {
+                    return -1;
+                }
+            }
+            terminal = terminal * RADIX + symbol;
+        }
+        return terminal << STAN_BITS | stan;
+    }
+
+    private static int symbol(char c) {
+        if (c >= '0' && c <= '9') {
+            return 1 + (c - '0');
+        }
+        if (c >= 'A' && c <= 'Z') {
+            return 11 + (c - 'A');
+        }
+        return c == ' ' ? 37 : 0;
+    }
+
+    // FNV-1a over UTF-8, finished with a murmur mix
+    private static long hashed(String id) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : String.valueOf(id).getBytes(StandardCharsets.UTF_8)) {
+            h ^= b;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h | HASHED;
+    }
+}
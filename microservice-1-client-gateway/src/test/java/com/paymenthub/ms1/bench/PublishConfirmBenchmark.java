@@ -0,0 +1,149 @@
+package com.paymenthub.ms1.bench;
+
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory;
+import org.springframework.amqp.rabbit.connection.CachingConnectionFactory.ConfirmType;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitAdmin;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Publish throughput and confirm latency against a real broker:
+ *
+ *   none        no confirms (before user-016)
+ *   sync        wait for each confirm before the next publish
+ *   correlated  async confirms + returns, as the services run now
+ *
+ * Not a test — run by hand against a broker you can load:
+ *
+ *   mvn -pl microservice-1-client-gateway test-compile
+ *   java -cp target/test-classes:target/classes:$(deps) \
+ *        com.paymenthub.ms1.bench.PublishConfirmBenchmark \
+ *        localhost 5672 admin admin123 [messages=50000] [bytes=600] [threads=16]
+ *
+ * Each mode publishes to a fresh auto-delete queue through the default
+ * exchange with mandatory=true, from `threads` publisher threads.
+ */
+public final class PublishConfirmBenchmark {
+
+    private PublishConfirmBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 5672;
+        String user = args.length > 2 ? args[2] : "admin";
+        String pass = args.length > 3 ? args[3] : "admin123";
+        int messages = args.length > 4 ? Integer.parseInt(args[4]) : 50_000;
+        int bytes = args.length > 5 ? Integer.parseInt(args[5]) : 600;
+        int threads = args.length > 6 ? Integer.parseInt(args[6]) : 16;
+
+        byte[] body = new byte[bytes];
+        Arrays.fill(body, (byte) 'x');
+
+        for (ConfirmType mode : new ConfirmType[] {
+                ConfirmType.NONE, ConfirmType.SIMPLE, ConfirmType.CORRELATED }) {
+            CachingConnectionFactory factory = new CachingConnectionFactory(host, port);
+            factory.setUsername(user);
+            factory.setPassword(pass);
+            factory.setPublisherConfirmType(mode);
+            factory.setPublisherReturns(mode == ConfirmType.CORRELATED);
+            factory.setChannelCacheSize(threads * 2);
+            try {
+                run(factory, mode, messages / 10, body, threads);   // warm-up
+                run(factory, mode, messages, body, threads);
+            } finally {
+                factory.destroy();
+            }
+        }
+    }
+
+    private static void run(CachingConnectionFactory factory, ConfirmType mode,
+                            int messages, byte[] body, int threads) throws Exception {
+        RabbitAdmin admin = new RabbitAdmin(factory);
+        Queue queue = new AnonymousQueue();
+        admin.declareQueue(queue);
+
+        RabbitTemplate template = new RabbitTemplate(factory);
+        template.setMandatory(true);
+        long[] latencies = new long[messages];
+        CountDownLatch confirmed = new CountDownLatch(messages);
+        AtomicInteger nacks = new AtomicInteger();
+        template.setConfirmCallback((correlation, ack, cause) -> {
+            Timed timed = (Timed) correlation;
+            latencies[timed.index] = System.nanoTime() - timed.sentAt;
+            if (!ack || correlation.getReturned() != null) {
+                nacks.incrementAndGet();
+            }
+            confirmed.countDown();
+        });
+
+        AtomicInteger next = new AtomicInteger();
+        ExecutorService publishers = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            publishers.execute(() -> {
+                int i;
+                while ((i = next.getAndIncrement()) < messages) {
+                    Message message = new Message(body, new MessageProperties());
+                    long sentAt = System.nanoTime();
+                    switch (mode) {
+                        case NONE -> {
+                            template.send("", queue.getName(), message);
+                            latencies[i] = System.nanoTime() - sentAt;
+                            confirmed.countDown();
+                        }
+                        case SIMPLE -> {
+                            template.invoke(ops -> {
+                                ops.send("", queue.getName(), message);
+                                ops.waitForConfirmsOrDie(10_000);
+                                return null;
+                            });
+                            latencies[i] = System.nanoTime() - sentAt;
+                            confirmed.countDown();
+                        }
+                        case CORRELATED -> template.send("", queue.getName(), message,
+                                new Timed(i, sentAt));
+                    }
+                }
+            });
+        }
+        publishers.shutdown();
+        boolean done = confirmed.await(5, TimeUnit.MINUTES);
+        long elapsed = System.nanoTime() - start;
+        admin.deleteQueue(queue.getName());
+
+        Arrays.sort(latencies);
+        System.out.printf("%-10s %8d msgs  %9.0f msg/s  p50 %7.1fµs  p99 %8.1fµs  "
+                        + "max %8.1fµs  nacks %d%s%n",
+                mode.name().toLowerCase(), messages,
+                messages / (elapsed / 1e9),
+                latencies[messages / 2] / 1e3,
+                latencies[(int) (messages * 0.99)] / 1e3,
+                latencies[messages - 1] / 1e3,
+                nacks.get(), done ? "" : "  (TIMED OUT)");
+    }
+
+    // Latency is publish → confirm callback
+    private static final class Timed extends CorrelationData {
+
+        final int index;
+        final long sentAt;
+
+        Timed(int index, long sentAt) {
+            super(Integer.toString(index));
+            this.index = index;
+            this.sentAt = sentAt;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.paymenthub.ms1.bench;
+
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Platform vs virtual threads (spring.threads.virtual.enabled) on the
+ * gateway's blocking request shape:
+ *
+ *   Redis session GET → publish → wait for the downstream answer → DB write
+ *
+ * Each wait is a real blocking call (sleep / future.get), so a platform
+ * thread is held for the whole request while a virtual one unmounts.
+ * `clients` callers keep requests in flight against:
+ *
+ *   platform  a 500-thread pool — server.tomcat.threads.max
+ *   virtual   one virtual thread per request (JDK 21+ only)
+ *
+ * Not a test — run by hand, on a JDK 21 runtime to get both rows:
+ *
+ *   mvn -pl microservice-1-client-gateway test-compile
+ *   java -cp target/test-classes:target/classes:$(deps) \
+ *        com.paymenthub.ms1.bench.ThreadingModeBenchmark \
+ *        [clients=5000] [requests=100000] [downstream-ms=50]
+ *
+ * Latency is submit → done, so time spent queued for a pool thread
+ * counts.
+ */
+public final class ThreadingModeBenchmark {
+
+    private static final int PLATFORM_THREADS = 500;
+    private static final long REDIS_MS = 1;
+    private static final long PUBLISH_MS = 1;
+    private static final long DB_MS = 2;
+
+    private ThreadingModeBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int clients = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        long downstreamMs = args.length > 2 ? Long.parseLong(args[2]) : 50;
+
+        // Stands in for MS2/MS3: answers each request downstreamMs later
+        ScheduledExecutorService downstream = Executors.newScheduledThreadPool(2);
+
+        System.out.printf("%-9s %8s %9s %10s %9s %9s %9s%n",
+                "mode", "clients", "requests", "req/s", "p50 ms", "p99 ms", "max ms");
+
+        ThreadPoolTaskExecutor platform = new ThreadPoolTaskExecutor();
+        platform.setCorePoolSize(PLATFORM_THREADS);
+        platform.setMaxPoolSize(PLATFORM_THREADS);
+        platform.setThreadNamePrefix("http-nio-");
+        platform.initialize();
+        run("platform", platform, downstream, clients, requests / 10, downstreamMs);  // warm-up
+        run("platform", platform, downstream, clients, requests, downstreamMs);
+        platform.shutdown();
+
+        if (Runtime.version().feature() >= 21) {
+            Executor virtual = new VirtualThreadTaskExecutor("http-virtual-");
+            run("virtual", virtual, downstream, clients, requests / 10, downstreamMs);
+            run("virtual", virtual, downstream, clients, requests, downstreamMs);
+        } else {
+            System.out.printf("%-9s skipped - virtual threads need JDK 21, running %s%n",
+                    "virtual", Runtime.version());
+        }
+        downstream.shutdown();
+    }
+
+    private static void run(String mode, Executor executor, ScheduledExecutorService downstream,
+                            int clients, int requests, long downstreamMs)
+            throws InterruptedException {
+        Semaphore inFlight = new Semaphore(clients);
+        CountDownLatch done = new CountDownLatch(requests);
+        long[] latencies = new long[requests];
+        AtomicInteger failures = new AtomicInteger();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            inFlight.acquire();
+            int n = i;
+            long submitted = System.nanoTime();
+            executor.execute(() -> {
+                try {
+                    handle(downstream, downstreamMs);
+                } catch (Exception e) {
+                    failures.incrementAndGet();
+                } finally {
+                    latencies[n] = System.nanoTime() - submitted;
+                    inFlight.release();
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        Arrays.sort(latencies);
+        System.out.printf("%-9s %8d %9d %10.0f %9.1f %9.1f %9.1f%s%n",
+                mode, clients, requests, requests / seconds,
+                latencies[requests / 2] / 1e6,
+                latencies[(int) (requests * 0.99)] / 1e6,
+                latencies[requests - 1] / 1e6,
+                failures.get() > 0 ? "  (" + failures.get() + " failed)" : "");
+    }
+
+    private static void handle(ScheduledExecutorService downstream, long downstreamMs)
+            throws Exception {
+        Thread.sleep(REDIS_MS);                           // session lookup
+        Thread.sleep(PUBLISH_MS);                         // publish to the router
+        CompletableFuture<String> answer = new CompletableFuture<>();
+        downstream.schedule(() -> answer.complete("00"), downstreamMs, TimeUnit.MILLISECONDS);
+        answer.get(28, TimeUnit.SECONDS);                 // pending response
+        Thread.sleep(DB_MS);                              // status update
+    }
+}
@@ -0,0 +1,181 @@
+package com.paymenthub.ms1.service;
+
+import com.paymenthub.ms1.service.AdmissionController.Permit;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class AdmissionControllerTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AdmissionController admission = new AdmissionController();
+
+    // Samples taken right away are always under targetLatencyMs
+    private AdmissionController admission(int initialLimit, long targetLatencyMs) {
+        ReflectionTestUtils.setField(admission, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(admission, "enabled", true);
+        ReflectionTestUtils.setField(admission, "initialLimit", initialLimit);
+        ReflectionTestUtils.setField(admission, "minLimit", 2);
+        ReflectionTestUtils.setField(admission, "maxLimit", 12);
+        ReflectionTestUtils.setField(admission, "targetLatencyMs", targetLatencyMs);
+        ReflectionTestUtils.setField(admission, "backoffRatio", 0.5);
+        admission.init();
+        return admission;
+    }
+
+    private double limit(String lane) {
+        return meterRegistry.get("txn.admission.limit").tag("lane", lane).gauge().value();
+    }
+
+    private double inFlight(String lane) {
+        return meterRegistry.get("txn.admission.inflight").tag("lane", lane).gauge().value();
+    }
+
+    private double rejected(String lane) {
+        return meterRegistry.get("txn.admission.rejected").tag("lane", lane).counter().count();
+    }
+
+    private List<Permit> fill(String destination) {
+        List<Permit> permits = new ArrayList<>();
+        Permit permit;
+        while ((permit = admission.tryAcquire(destination)) != null) {
+            permits.add(permit);
+        }
+        return permits;
+    }
+
+    @Test
+    void admitsUpToTheLimitThenRejects() {
+        admission(3, 10_000);
+
+        List<Permit> permits = fill("NPCI");
+
+        assertThat(permits).hasSize(3);
+        assertThat(inFlight("ms2")).isEqualTo(3);
+        assertThat(rejected("ms2")).isEqualTo(1);
+        permits.get(0).release(false);
+        assertThat(admission.tryAcquire("NPCI")).isNotNull();
+    }
+
+    @Test
+    void fastResponsesGrowTheLimitByAboutOnePerLimitsWorth() {
+        admission(10, 10_000);
+
+        for (int i = 0; i < 10; i++) {
+            admission.tryAcquire("NPCI").release(false);
+        }
+
+        // 10 steps of +1/limit from 10
+        assertThat(limit("ms2")).isCloseTo(10.95, within(0.01));
+        List<Permit> held = fill("NPCI");
+        assertThat(held).hasSize(10);
+        held.forEach(Permit::abandon);
+
+        for (int i = 0; i < 1000; i++) {
+            admission.tryAcquire("RUPAY").release(false);
+        }
+        assertThat(limit("ms2")).isEqualTo(12);   // max-limit
+    }
+
+    @Test
+    void timeoutCutsTheLimitOncePerTargetWindow() throws InterruptedException {
+        admission(10, 100);
+
+        admission.tryAcquire("NPCI").release(true);
+        assertThat(limit("ms2")).isEqualTo(5);
+
+        // Same burst: counted as one signal
+        admission.tryAcquire("NPCI").release(true);
+        admission.tryAcquire("NPCI").release(true);
+        assertThat(limit("ms2")).isEqualTo(5);
+
+        Thread.sleep(150);
+        admission.tryAcquire("NPCI").release(true);
+        assertThat(limit("ms2")).isEqualTo(2.5);
+
+        Thread.sleep(150);
+        admission.tryAcquire("NPCI").release(true);
+        assertThat(limit("ms2")).isEqualTo(2);   // min-limit
+    }
+
+    @Test
+    void slowResponseCountsAsCongestion() throws InterruptedException {
+        admission(10, 50);
+
+        Permit permit = admission.tryAcquire("NPCI");
+        Thread.sleep(80);
+        permit.release(false);
+
+        assertThat(limit("ms2")).isEqualTo(5);
+    }
+
+    @Test
+    void abandonFreesTheSlotWithoutASample() {
+        admission(4, 100);
+
+        for (int i = 0; i < 20; i++) {
+            fill("NPCI").forEach(Permit::abandon);
+        }
+
+        assertThat(limit("ms2")).isEqualTo(4);
+        assertThat(inFlight("ms2")).isZero();
+    }
+
+    @Test
+    void permitIsReleasedOnlyOnce() {
+        admission(4, 100);
+
+        Permit permit = admission.tryAcquire("NPCI");
+        admission.tryAcquire("NPCI");
+        permit.release(true);
+        permit.release(true);
+        permit.abandon();
+
+        assertThat(inFlight("ms2")).isEqualTo(1);
+        assertThat(limit("ms2")).isEqualTo(2);
+    }
+
+    @Test
+    void lanesAreIsolated() {
+        admission(3, 10_000);
+
+        List<Permit> card = fill("VISA");
+        assertThat(card).hasSize(3);
+        assertThat(admission.tryAcquire("mastercard")).isNull();
+
+        // The card lane being full doesn't touch NPCI, RUPAY or unknown
+        assertThat(admission.tryAcquire("NPCI")).isNotNull();
+        assertThat(admission.tryAcquire("RUPAY")).isNotNull();
+        assertThat(admission.tryAcquire(null)).isNotNull();
+        assertThat(rejected("ms2")).isZero();
+        assertThat(rejected("ms3")).isEqualTo(2);
+
+        card.get(0).release(true);
+        assertThat(limit("ms3")).isEqualTo(2);
+        assertThat(limit("ms2")).isEqualTo(3);
+    }
+
+    @Test
+    void disabledAdmitsEverythingAndLeavesTheLimitAlone() {
+        admission(2, 10_000);
+        ReflectionTestUtils.setField(admission, "enabled", false);
+
+        for (int i = 0; i < 10; i++) {
+            admission.tryAcquire("VISA").release(true);
+        }
+        List<Permit> held = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            held.add(admission.tryAcquire("VISA"));
+        }
+
+        assertThat(held).doesNotContainNull();
+        assertThat(inFlight("ms3")).isEqualTo(10);
+        assertThat(limit("ms3")).isEqualTo(2);
+    }
+}
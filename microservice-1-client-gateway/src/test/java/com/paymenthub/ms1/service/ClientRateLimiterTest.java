@@ -0,0 +1,128 @@
+package com.paymenthub.ms1.service;
+
+import com.paymenthub.ms1.config.RateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ClientRateLimiterTest {
+
+    private final ClientRateLimiter limiter = new ClientRateLimiter();
+    private final RateLimitProperties properties = new RateLimitProperties();
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp() {
+        // Slow refill so nothing comes back while a test runs
+        properties.getDefaults().setRatePerSecond(1);
+        properties.getDefaults().setBurst(5);
+        ReflectionTestUtils.setField(limiter, "properties", properties);
+        ReflectionTestUtils.setField(limiter, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(limiter, "meterRegistry", meterRegistry);
+    }
+
+    private int admitted(String clientId, int attempts) {
+        int admitted = 0;
+        for (int i = 0; i < attempts; i++) {
+            if (limiter.tryAcquire(clientId)) {
+                admitted++;
+            }
+        }
+        return admitted;
+    }
+
+    private void redisGrants(Long... grants) {
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenReturn(grants[0], Arrays.copyOfRange(grants, 1, grants.length));
+    }
+
+    // ── local ────────────────────────────────────────────────────
+    @Test
+    void disabledAdmitsEverything() {
+        properties.setEnabled(false);
+        assertThat(admitted("CLIENT1", 100)).isEqualTo(100);
+    }
+
+    @Test
+    void burstIsAdmittedThenThrottled() {
+        assertThat(admitted("CLIENT1", 8)).isEqualTo(5);
+        assertThat(meterRegistry.get("txn.ratelimit.throttled").tag("client", "CLIENT1")
+                .counter().count()).isEqualTo(3);
+    }
+
+    @Test
+    void batchIsAllOrNothing() {
+        assertThat(limiter.tryAcquire("CLIENT1", 3)).isTrue();
+        assertThat(limiter.tryAcquire("CLIENT1", 3)).isFalse();
+        assertThat(limiter.tryAcquire("CLIENT1", 2)).isTrue();
+        assertThat(limiter.tryAcquire("CLIENT1")).isFalse();
+    }
+
+    @Test
+    void clientsHaveTheirOwnLimits() {
+        RateLimitProperties.Limit vip = new RateLimitProperties.Limit();
+        vip.setRatePerSecond(1);
+        vip.setBurst(20);
+        properties.getClients().put("VIP", vip);
+
+        assertThat(admitted("CLIENT1", 10)).isEqualTo(5);
+        assertThat(admitted("CLIENT2", 10)).isEqualTo(5);
+        assertThat(admitted("VIP", 30)).isEqualTo(20);
+    }
+
+    @Test
+    void tokensRefillOverTime() throws InterruptedException {
+        properties.getDefaults().setRatePerSecond(100);
+        properties.getDefaults().setBurst(2);
+        assertThat(admitted("CLIENT1", 3)).isEqualTo(2);
+        Thread.sleep(50);
+        assertThat(limiter.tryAcquire("CLIENT1")).isTrue();
+    }
+
+    // ── redis ────────────────────────────────────────────────────
+    @Test
+    void leaseServesManyRequestsPerRoundTrip() {
+        properties.setMode("redis");
+        properties.setLeaseSize(4);
+        properties.getDefaults().setBurst(100);
+        redisGrants(4L, 4L, 0L);
+
+        assertThat(admitted("CLIENT1", 8)).isEqualTo(8);
+        verify(redisTemplate, times(2)).execute(any(RedisScript.class), anyList(),
+                any(Object[].class));
+        // Bucket empty in Redis → throttled, not admitted locally
+        assertThat(limiter.tryAcquire("CLIENT1")).isFalse();
+    }
+
+    @Test
+    void redisOutageFallsBackToTheLocalLimit() {
+        properties.setMode("redis");
+        when(redisTemplate.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+
+        assertThat(admitted("CLIENT1", 8)).isEqualTo(5);
+    }
+
+    @Test
+    void localModeNeverCallsRedis() {
+        admitted("CLIENT1", 8);
+        verify(redisTemplate, never()).execute(any(RedisScript.class), anyList(),
+                any(Object[].class));
+    }
+}
@@ -0,0 +1,111 @@
+package com.paymenthub.ms1.service;
+
+import com.paymenthub.common.dto.TransactionResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DuplicateGuardTest {
+
+    private static final String FIELD_7 = "1017203005";
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private DuplicateGuard guard(int maxEntries) {
+        DuplicateGuard guard = new DuplicateGuard();
+        ReflectionTestUtils.setField(guard, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(guard, "maxEntries", maxEntries);
+        guard.registerMetrics();
+        return guard;
+    }
+
+    private static TransactionResponse response(String code) {
+        return TransactionResponse.builder().responseCode(code).build();
+    }
+
+    private double replayed() {
+        return meterRegistry.get("txn.dedup.hits").tag("result", "replayed").counter().count();
+    }
+
+    @Test
+    void answerIsReplayableAcrossExactlyOneRotation() {
+        DuplicateGuard guard = guard(1000);
+        TransactionResponse approved = response("00");
+        guard.remember(42L, FIELD_7, approved);
+
+        assertThat(guard.recent(42L, FIELD_7)).isSameAs(approved);
+        guard.rotate();
+        assertThat(guard.recent(42L, FIELD_7)).isSameAs(approved);
+        guard.rotate();
+        assertThat(guard.recent(42L, FIELD_7)).isNull();
+        assertThat(replayed()).isEqualTo(2);
+    }
+
+    @Test
+    void newerAnswerInTheCurrentGenerationWins() {
+        DuplicateGuard guard = guard(1000);
+        guard.remember(42L, FIELD_7, response("91"));
+        guard.rotate();
+        TransactionResponse approved = response("00");
+        guard.remember(42L, FIELD_7, approved);
+
+        assertThat(guard.recent(42L, FIELD_7)).isSameAs(approved);
+    }
+
+    @Test
+    void maxEntriesRotatesEarly() {
+        DuplicateGuard guard = guard(2);
+        for (long key = 1; key <= 3; key++) {
+            guard.remember(key, FIELD_7, response("00"));
+        }
+        // The third entry overflowed: all three moved to the previous generation
+        guard.remember(4L, FIELD_7, response("00"));
+        guard.remember(5L, FIELD_7, response("00"));
+        assertThat(guard.recent(1L, FIELD_7)).isNotNull();
+        assertThat(guard.recent(5L, FIELD_7)).isNotNull();
+
+        // Second overflow drops them, with no scheduled rotation at all
+        guard.remember(6L, FIELD_7, response("00"));
+        assertThat(guard.recent(1L, FIELD_7)).isNull();
+        assertThat(guard.recent(3L, FIELD_7)).isNull();
+        assertThat(guard.recent(4L, FIELD_7)).isNotNull();
+        assertThat(guard.recent(6L, FIELD_7)).isNotNull();
+    }
+
+    @Test
+    void differentField7IsNotAReplay() {
+        DuplicateGuard guard = guard(1000);
+        guard.remember(42L, FIELD_7, response("00"));
+
+        assertThat(guard.recent(42L, "1017203006")).isNull();
+        assertThat(guard.recent(42L, null)).isNull();
+        assertThat(guard.recent(43L, FIELD_7)).isNull();
+        assertThat(replayed()).isZero();
+    }
+
+    @Test
+    void field7IsComparedWholeNotByHash() {
+        // Two valid MMDDhhmmss values with the same String.hashCode()
+        String original = "0902105307";
+        String reused = "0126091530";
+        assertThat(reused.hashCode()).isEqualTo(original.hashCode());
+
+        DuplicateGuard guard = guard(1000);
+        guard.remember(42L, original, response("00"));
+
+        assertThat(guard.recent(42L, reused)).isNull();
+        assertThat(guard.recent(42L, original)).isNotNull();
+    }
+
+    @Test
+    void missingField7MatchesOnlyAnotherMissingField7() {
+        DuplicateGuard guard = guard(1000);
+        TransactionResponse approved = response("00");
+        guard.remember(42L, null, approved);
+
+        assertThat(guard.recent(42L, null)).isSameAs(approved);
+        assertThat(guard.recent(42L, FIELD_7)).isNull();
+    }
+}
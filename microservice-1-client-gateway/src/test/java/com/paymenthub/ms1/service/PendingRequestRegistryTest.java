@@ -0,0 +1,135 @@
+package com.paymenthub.ms1.service;
+
+import com.paymenthub.common.dto.TransactionResponse;
+import com.paymenthub.ms1.service.PendingRequestRegistry.PendingTransaction;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Random;
+import java.util.concurrent.TimeoutException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PendingRequestRegistryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PendingRequestRegistry registry;
+
+    private PendingRequestRegistry registry(long timeoutMs) {
+        registry = new PendingRequestRegistry();
+        ReflectionTestUtils.setField(registry, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(registry, "timeoutMs", timeoutMs);
+        ReflectionTestUtils.setField(registry, "tickMs", 10L);
+        ReflectionTestUtils.setField(registry, "ticksPerWheel", 64);
+        registry.init();
+        return registry;
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    private static TransactionResponse response(String code) {
+        return TransactionResponse.builder().responseCode(code).build();
+    }
+
+    @Test
+    void completeResolvesTheWaiter() {
+        PendingRequestRegistry registry = registry(28_000);
+        PendingTransaction pending = registry.register(42L, "7");
+        assertThat(registry.size()).isEqualTo(1);
+
+        assertThat(registry.complete(42L, response("00"))).isSameAs(pending);
+        assertThat(pending.join().getResponseCode()).isEqualTo("00");
+        assertThat(registry.size()).isZero();
+        assertThat(registry.get(42L)).isNull();
+    }
+
+    @Test
+    void keyInFlightIsNotRegisteredTwice() {
+        PendingRequestRegistry registry = registry(28_000);
+        PendingTransaction first = registry.register(42L, "7");
+        assertThat(registry.register(42L, "8")).isNull();
+        assertThat(registry.get(42L)).isSameAs(first);
+        assertThat(registry.get(42L).transmissionDateTime()).isEqualTo("7");
+    }
+
+    @Test
+    void lateOrUnknownResponseIsDropped() {
+        PendingRequestRegistry registry = registry(28_000);
+        assertThat(registry.complete(99L, response("00"))).isNull();
+
+        registry.register(42L, "7");
+        registry.complete(42L, response("00"));
+        assertThat(registry.complete(42L, response("05"))).isNull();
+    }
+
+    @Test
+    void failByKeyFailsTheWaiter() {
+        PendingRequestRegistry registry = registry(28_000);
+        PendingTransaction pending = registry.register(42L, "7");
+        registry.fail(42L, new IllegalStateException("publish nacked"));
+        assertThat(pending).isCompletedExceptionally();
+        assertThat(registry.size()).isZero();
+    }
+
+    @Test
+    void failByEntrySparesAReusedKey() {
+        PendingRequestRegistry registry = registry(28_000);
+        PendingTransaction old = registry.register(42L, "7");
+        registry.complete(42L, response("00"));
+        PendingTransaction reused = registry.register(42L, "9");
+
+        assertThat(registry.fail(old, new IllegalStateException("late nack"))).isFalse();
+        assertThat(reused).isNotDone();
+        assertThat(registry.get(42L)).isSameAs(reused);
+        assertThat(registry.fail(reused, new IllegalStateException("nack"))).isTrue();
+    }
+
+    @Test
+    void unansweredRequestExpires() {
+        PendingRequestRegistry registry = registry(50);
+        PendingTransaction pending = registry.register(42L, "7");
+
+        assertThat(pending).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(Exception.class)
+                .withCauseInstanceOf(TimeoutException.class);
+        assertThat(registry.size()).isZero();
+        assertThat(registry.complete(42L, response("00"))).isNull();
+        assertThat(meterRegistry.counter("txn.pending.expiries").count()).isEqualTo(1);
+    }
+
+    @Test
+    void tablesSurviveGrowthAndInterleavedDeletes() {
+        PendingRequestRegistry registry = registry(28_000);
+        Random random = new Random(10);
+        long[] keys = new long[20_000];
+        PendingTransaction[] entries = new PendingTransaction[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            // Sequential high bits, like correlation keys from one instance
+            keys[i] = (1L << 40) + i * 64L;
+            entries[i] = registry.register(keys[i], Integer.toString(i));
+        }
+        boolean[] removed = new boolean[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            if (random.nextBoolean()) {
+                registry.complete(keys[i], response("00"));
+                removed[i] = true;
+            }
+        }
+        int left = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (removed[i]) {
+                assertThat(registry.get(keys[i])).isNull();
+            } else {
+                assertThat(registry.get(keys[i])).isSameAs(entries[i]);
+                left++;
+            }
+        }
+        assertThat(registry.size()).isEqualTo(left);
+    }
+}
@@ -0,0 +1,171 @@
+package com.paymenthub.ms1.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RevocationListTest {
+
+    private final StringRedisTemplate redisTemplate = mock(StringRedisTemplate.class);
+    @SuppressWarnings("unchecked")
+    private final ValueOperations<String, String> values = mock(ValueOperations.class);
+    @SuppressWarnings("unchecked")
+    private final ZSetOperations<String, String> recent = mock(ZSetOperations.class);
+    private final RevocationList revocations = new RevocationList();
+
+    // Revoked ids as Redis holds them (session:revoked:<tokenId>)
+    private final Set<String> redisRevoked = new LinkedHashSet<>();
+
+    @BeforeEach
+    void setUp() {
+        when(redisTemplate.opsForValue()).thenReturn(values);
+        when(redisTemplate.opsForZSet()).thenReturn(recent);
+        when(redisTemplate.hasKey(anyString())).thenAnswer(invocation -> redisRevoked.contains(
+                invocation.<String>getArgument(0).substring("session:revoked:".length())));
+        when(redisTemplate.scan(any(ScanOptions.class)))
+                .thenAnswer(invocation -> cursor(redisRevoked.stream()
+                        .map(id -> "session:revoked:" + id).toList()));
+        ReflectionTestUtils.setField(revocations, "redisTemplate", redisTemplate);
+        ReflectionTestUtils.setField(revocations, "revocationChannel", "session:revoked");
+        ReflectionTestUtils.setField(revocations, "expectedRevocations", 1000L);
+        ReflectionTestUtils.setField(revocations, "falsePositiveRate", 0.001);
+        ReflectionTestUtils.setField(revocations, "rebuildIntervalMs", 600_000L);
+        ReflectionTestUtils.setField(revocations, "catchUpIntervalMs", 5000L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Cursor<String> cursor(List<String> keys) {
+        Iterator<String> iterator = keys.iterator();
+        Cursor<String> cursor = mock(Cursor.class);
+        when(cursor.hasNext()).thenAnswer(invocation -> iterator.hasNext());
+        when(cursor.next()).thenAnswer(invocation -> iterator.next());
+        return cursor;
+    }
+
+    @Test
+    void unrevokedTokenIsAnsweredWithoutRedis() {
+        redisRevoked.add("revoked-1");
+        revocations.init();
+
+        assertThat(revocations.isRevoked("live-1")).isFalse();
+        assertThat(revocations.isRevoked("revoked-1")).isTrue();
+        verify(redisTemplate, never()).hasKey("session:revoked:live-1");
+    }
+
+    @Test
+    void failedInitialLoadChecksRedisForEveryToken() {
+        when(redisTemplate.scan(any(ScanOptions.class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+        revocations.init();
+
+        assertThat(revocations.isRevoked("live-1")).isFalse();
+        verify(redisTemplate).hasKey("session:revoked:live-1");
+    }
+
+    @Test
+    void revokeWritesKeyLogAndBroadcast() {
+        revocations.init();
+
+        revocations.revoke("token-1", 600);
+
+        verify(values).set("session:revoked:token-1", "1", Duration.ofSeconds(600));
+        verify(recent).add(eq("session:revocations"), eq("token-1"), anyDouble());
+        verify(redisTemplate).convertAndSend("session:revoked", "token-1");
+        redisRevoked.add("token-1");
+        assertThat(revocations.isRevoked("token-1")).isTrue();
+    }
+
+    @Test
+    void alreadyExpiredTokenIsNotRevoked() {
+        revocations.init();
+
+        revocations.revoke("token-1", 0);
+
+        verify(values, never()).set(anyString(), anyString(), any(Duration.class));
+        verify(redisTemplate, never()).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void broadcastFromAnotherInstanceIsSeen() {
+        revocations.init();
+        redisRevoked.add("token-1");
+        assertThat(revocations.isRevoked("token-1")).isFalse();   // not heard of yet
+
+        revocations.onMessage(new DefaultMessage("session:revoked".getBytes(StandardCharsets.UTF_8),
+                "token-1".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertThat(revocations.isRevoked("token-1")).isTrue();
+    }
+
+    @Test
+    void missedBroadcastIsPickedUpByCatchUp() {
+        revocations.init();
+        redisRevoked.add("token-1");
+        when(recent.rangeByScore(eq("session:revocations"), anyDouble(), anyDouble()))
+                .thenReturn(Set.of("token-1"));
+
+        revocations.catchUp();
+
+        assertThat(revocations.isRevoked("token-1")).isTrue();
+        // The log is trimmed to what rebuild() would not yet have seen
+        verify(recent).removeRangeByScore(eq("session:revocations"),
+                eq(Double.NEGATIVE_INFINITY), anyDouble());
+    }
+
+    @Test
+    void catchUpRereadsOneIntervalBackFromTheLastRead() {
+        long before = System.currentTimeMillis();
+        revocations.init();
+
+        revocations.catchUp();
+        long firstRead = (long) ReflectionTestUtils.getField(revocations, "caughtUpTo");
+        revocations.catchUp();
+
+        ArgumentCaptor<Double> from = ArgumentCaptor.forClass(Double.class);
+        verify(recent, times(2)).rangeByScore(eq("session:revocations"), from.capture(),
+                eq(Double.POSITIVE_INFINITY));
+        assertThat(from.getAllValues().get(0)).isGreaterThanOrEqualTo(before - 5000.0);
+        assertThat(from.getAllValues().get(1)).isEqualTo(firstRead - 5000.0);
+    }
+
+    @Test
+    void rebuildDropsExpiredRevocations() {
+        redisRevoked.add("token-1");
+        revocations.init();
+        assertThat(revocations.isRevoked("token-1")).isTrue();
+
+        redisRevoked.clear();   // its key expired with the token
+        revocations.rebuild();
+        clearInvocations(redisTemplate);
+
+        assertThat(revocations.isRevoked("token-1")).isFalse();
+        verify(redisTemplate, never()).hasKey(anyString());
+    }
+}
@@ -0,0 +1,65 @@
+package com.paymenthub.ms1.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SessionCacheTest {
+
+    private static final long REDIS_TTL = 86_400_000L;
+
+    private final SessionCache cache = new SessionCache();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxSize", 1000);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 60L);
+        ReflectionTestUtils.setField(cache, "tombstoneMs", 10_000L);
+        cache.registerMetrics();
+    }
+
+    @Test
+    void cachesWhatRedisReturned() {
+        cache.put("s1", "CLIENT1", REDIS_TTL, cache.stamp());
+        assertThat(cache.get("s1")).isEqualTo("CLIENT1");
+    }
+
+    @Test
+    void logoutDuringTheRedisReadIsNotUndone() {
+        long stamp = cache.stamp();     // miss → Redis GET starts
+        cache.evict("s1");              // logout + pub/sub land
+        cache.put("s1", "CLIENT1", REDIS_TTL, stamp);   // GET's stale answer
+        assertThat(cache.get("s1")).isNull();
+    }
+
+    @Test
+    void readAfterTheLogoutMayCacheAgain() {
+        cache.evict("s1");
+        cache.put("s1", "CLIENT1", REDIS_TTL, cache.stamp());
+        assertThat(cache.get("s1")).isEqualTo("CLIENT1");
+    }
+
+    @Test
+    void otherSessionsAreUnaffected() {
+        long stamp = cache.stamp();
+        cache.evict("s1");
+        cache.put("s2", "CLIENT2", REDIS_TTL, stamp);
+        assertThat(cache.get("s2")).isEqualTo("CLIENT2");
+    }
+
+    @Test
+    void expiredTombstonesAreDropped() {
+        ReflectionTestUtils.setField(cache, "tombstoneMs", 0L);
+        long stamp = cache.stamp();
+        cache.evict("s1");
+        cache.expireTombstones();
+        // Past tombstone-ms the race window is assumed closed
+        cache.put("s1", "CLIENT1", REDIS_TTL, stamp);
+        assertThat(cache.get("s1")).isEqualTo("CLIENT1");
+    }
+}
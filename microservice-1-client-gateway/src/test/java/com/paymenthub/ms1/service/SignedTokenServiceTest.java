@@ -0,0 +1,98 @@
+package com.paymenthub.ms1.service;
+
+import com.paymenthub.ms1.service.SignedTokenService.Claims;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SignedTokenServiceTest {
+
+    private static final String SECRET = Base64.getEncoder().encodeToString(
+            "session-token-hmac-secret-for-tests".getBytes(StandardCharsets.UTF_8));
+
+    private static SignedTokenService tokens(String secret) {
+        SignedTokenService tokens = new SignedTokenService();
+        ReflectionTestUtils.setField(tokens, "tokenSecret", secret);
+        tokens.init();
+        return tokens;
+    }
+
+    private final SignedTokenService tokens = tokens(SECRET);
+
+    // Flips one bit in the base64url part before or after the dot
+    private static String flip(String token, boolean payload) {
+        int dot = token.indexOf('.');
+        String part = payload ? token.substring(0, dot) : token.substring(dot + 1);
+        byte[] bytes = Base64.getUrlDecoder().decode(part);
+        bytes[bytes.length / 2] ^= 1;
+        String flipped = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+        return payload ? flipped + token.substring(dot) : token.substring(0, dot + 1) + flipped;
+    }
+
+    @Test
+    void issuedTokenVerifiesWithItsClaims() {
+        String token = tokens.issue("client-ü-1", 3600);
+
+        Claims claims = tokens.verify(token);
+
+        assertThat(claims.clientId()).isEqualTo("client-ü-1");
+        assertThat(claims.remainingSeconds()).isBetween(3598L, 3600L);
+        assertThat(claims.tokenId()).isNotBlank();
+        assertThat(tokens.verify(tokens.issue("client-ü-1", 3600)).tokenId())
+                .isNotEqualTo(claims.tokenId());
+    }
+
+    @Test
+    void tamperedPayloadOrSignatureIsRejected() {
+        String token = tokens.issue("client-1", 3600);
+
+        assertThatThrownBy(() -> tokens.verify(flip(token, true)))
+                .hasMessageContaining("session");
+        assertThatThrownBy(() -> tokens.verify(flip(token, false)))
+                .hasMessageContaining("session");
+    }
+
+    @Test
+    void clientIdCannotBeSwappedBetweenTokens() {
+        String mine = tokens.issue("client-1", 3600);
+        String theirs = tokens.issue("client-2", 3600);
+        String spliced = theirs.substring(0, theirs.indexOf('.')) + mine.substring(mine.indexOf('.'));
+
+        assertThatThrownBy(() -> tokens.verify(spliced)).hasMessageContaining("session");
+    }
+
+    @Test
+    void tokenFromAnotherSecretIsRejected() {
+        String other = tokens(Base64.getEncoder().encodeToString(
+                "a-different-hmac-secret".getBytes(StandardCharsets.UTF_8)))
+                .issue("client-1", 3600);
+
+        assertThatThrownBy(() -> tokens.verify(other)).hasMessageContaining("session");
+    }
+
+    @Test
+    void expiredTokenFailsVerifyButStillParses() {
+        String token = tokens.issue("client-1", -1);
+
+        assertThatThrownBy(() -> tokens.verify(token)).hasMessageContaining("expired");
+        // Logout still needs the tokenId of an expired token
+        Claims claims = tokens.parse(token);
+        assertThat(claims.clientId()).isEqualTo("client-1");
+        assertThat(claims.remainingSeconds()).isNegative();
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        for (String token : new String[] { "", ".", "no-dot", "!!!.???", "AAAA.AAAA",
+                tokens.issue("client-1", 3600) + "x" }) {
+            assertThatThrownBy(() -> tokens.verify(token))
+                    .as(token)
+                    .hasMessageContaining("session");
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.paymenthub.ms1.service;
+
+import com.paymenthub.ms1.entity.ClientTransaction;
+import com.paymenthub.ms1.repository.ClientTransactionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionWriteBehindTest {
+
+    private static final long WAIT_MS = 2000;
+
+    private final ClientTransactionRepository repository = mock(ClientTransactionRepository.class);
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final TransactionWriteBehind writer = new TransactionWriteBehind();
+
+    // batchSize closes each batch, so batch boundaries are exact; the
+    // long linger never expires while a test enqueues
+    private void start(int batchSize) {
+        ReflectionTestUtils.setField(writer, "repository", repository);
+        ReflectionTestUtils.setField(writer, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(writer, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(writer, "queueCapacity", 100);
+        ReflectionTestUtils.setField(writer, "batchSize", batchSize);
+        ReflectionTestUtils.setField(writer, "flushIntervalMs", 500L);
+        ReflectionTestUtils.setField(writer, "enqueueTimeoutMs", 100L);
+        writer.start();
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        writer.stop();
+    }
+
+    private static ClientTransaction txn(String correlationId) {
+        return ClientTransaction.builder()
+                .correlationId(correlationId)
+                .terminalId("TERM0001")
+                .status("PENDING")
+                .requestPayload("encrypted")
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<ClientTransaction> savedBatch() {
+        ArgumentCaptor<List<ClientTransaction>> saved = ArgumentCaptor.forClass(List.class);
+        verify(repository, timeout(WAIT_MS)).saveAll(saved.capture());
+        return saved.getValue();
+    }
+
+    @Test
+    void updateInTheSameBatchIsFoldedIntoTheInsert() {
+        start(2);
+        ClientTransaction txn = txn("c1");
+        writer.enqueue(txn);
+        writer.enqueueStatusUpdate("c1", "SUCCESS", "{\"39\":\"00\"}");
+
+        assertThat(savedBatch()).containsExactly(txn);
+        assertThat(txn.getStatus()).isEqualTo("SUCCESS");
+        assertThat(txn.getResponsePayload()).isEqualTo("{\"39\":\"00\"}");
+        verify(jdbcTemplate, never()).update(anyString(), any(Object[].class));
+        verify(repository, never()).updateStatusAndResponse(any(), any(), any());
+    }
+
+    @Test
+    void updateAfterAnEarlierBatchIsOneUpdateInQueueOrder() {
+        start(2);
+        ClientTransaction first = txn("c1");
+        ClientTransaction second = txn("c2");
+        writer.enqueue(first);
+        writer.enqueue(second);
+        assertThat(savedBatch()).containsExactly(first, second);
+
+        writer.enqueueStatusUpdate("c2", "FAILED", "{\"39\":\"05\"}");
+        writer.enqueueStatusUpdate("c1", "SUCCESS", "{\"39\":\"00\"}");
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<Object[]> args = ArgumentCaptor.forClass(Object[].class);
+        verify(jdbcTemplate, timeout(WAIT_MS)).update(sql.capture(), args.capture());
+        assertThat(sql.getValue()).contains("FROM (VALUES (?, ?, ?), (?, ?, ?))");
+        assertThat(args.getValue()).containsExactly(
+                "c2", "FAILED", "{\"39\":\"05\"}",
+                "c1", "SUCCESS", "{\"39\":\"00\"}");
+        // The rows already written keep their insert-time status
+        assertThat(first.getStatus()).isEqualTo("PENDING");
+    }
+
+    @Test
+    void failedUpdateChunkFallsBackToOneUpdatePerRow() {
+        start(2);
+        when(jdbcTemplate.update(anyString(), any(Object[].class)))
+                .thenThrow(new QueryTimeoutException("statement timeout"));
+        when(repository.updateStatusAndResponse(anyString(), anyString(), anyString()))
+                .thenReturn(1);
+
+        writer.enqueueStatusUpdate("c1", "SUCCESS", "{\"39\":\"00\"}");
+        writer.enqueueStatusUpdate("c2", "TIMEOUT", "{}");
+
+        verify(repository, timeout(WAIT_MS))
+                .updateStatusAndResponse("c2", "TIMEOUT", "{}");
+        InOrder order = inOrder(jdbcTemplate, repository);
+        order.verify(jdbcTemplate).update(anyString(), any(Object[].class));
+        order.verify(repository).updateStatusAndResponse("c1", "SUCCESS", "{\"39\":\"00\"}");
+        order.verify(repository).updateStatusAndResponse("c2", "TIMEOUT", "{}");
+    }
+
+    @Test
+    void failedInsertBatchIsRetriedRowByRow() {
+        start(3);
+        when(repository.saveAll(any()))
+                .thenThrow(new DataIntegrityViolationException("duplicate correlation_id"));
+        ClientTransaction ok1 = txn("c1");
+        ClientTransaction duplicate = txn("c2");
+        ClientTransaction ok2 = txn("c3");
+        // The failed batch may already have assigned sequence ids
+        ok1.setId(101L);
+        when(repository.save(duplicate))
+                .thenThrow(new DataIntegrityViolationException("duplicate correlation_id"));
+
+        writer.enqueue(ok1);
+        writer.enqueue(duplicate);
+        writer.enqueue(ok2);
+
+        // One bad row doesn't stop the rows after it
+        verify(repository, timeout(WAIT_MS)).save(ok2);
+        InOrder order = inOrder(repository);
+        order.verify(repository).saveAll(any());
+        order.verify(repository).save(ok1);
+        order.verify(repository).save(duplicate);
+        order.verify(repository).save(ok2);
+        assertThat(ok1.getId()).isNull();
+    }
+
+    @Test
+    void stopDrainsWhatIsQueued() throws InterruptedException {
+        start(100);
+        ClientTransaction txn = txn("c1");
+        writer.enqueue(txn);
+        writer.stop();
+        verify(repository).saveAll(eq(List.of(txn)));
+    }
+}
@@ -0,0 +1,50 @@
+package com.paymenthub.ms2.config;
+
+import com.paymenthub.common.resilience.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class ResilienceConfig {
+
+    @Value("${sarvatra.circuit-breaker.window-size:50}")
+    private int windowSize;
+
+    @Value("${sarvatra.circuit-breaker.min-calls:20}")
+    private int minCalls;
+
+    @Value("${sarvatra.circuit-breaker.failure-rate-threshold:50}")
+    private double failureRateThreshold;
+
+    @Value("${sarvatra.circuit-breaker.slow-call-ms:10000}")
+    private long slowCallMs;
+
+    @Value("${sarvatra.circuit-breaker.open-ms:10000}")
+    private long openMs;
+
+    @Value("${sarvatra.circuit-breaker.half-open-calls:5}")
+    private int halfOpenCalls;
+
+    // Around the Sarvatra HTTP call; the bulkhead is SarvatraClient's
+    // max-in-flight
+    @Bean
+    @ConditionalOnProperty(name = "sarvatra.mode", havingValue = "http")
+    public CircuitBreaker sarvatraCircuitBreaker(MeterRegistry meterRegistry) {
+        return CircuitBreaker.builder()
+                .name("sarvatra")
+                .windowSize(windowSize)
+                .minCalls(minCalls)
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallMs(slowCallMs)
+                .openMs(openMs)
+                .halfOpenCalls(halfOpenCalls)
+                .listener((from, to) -> log.warn("⚡ Sarvatra circuit {} → {}", from, to))
+                .meterRegistry(meterRegistry)
+                .build();
+    }
+}
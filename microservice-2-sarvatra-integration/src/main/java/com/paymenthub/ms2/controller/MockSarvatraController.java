@@ -3,39 +3,64 @@ package com.paymenthub.ms2.controller;
 import com.paymenthub.ms2.dto.SarvatraEncryptedRequest;
 import com.paymenthub.ms2.dto.SarvatraResponse;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 @RestController
 @RequestMapping("/api/transaction")
 @Slf4j
 public class MockSarvatraController {
 
+    // Simulated switch latency
+    @Value("${sarvatra.mock.delay-ms:1000}")
+    private long delayMs;
+
+    // Share of calls answered 503 — to exercise MS2's circuit breaker
+    @Value("${sarvatra.mock.failure-rate:0.0}")
+    private double failureRate;
+
+    // Answered after delay-ms without holding a request thread, so a
+    // load test can keep thousands of calls in flight against it
     @PostMapping("/process")
-    public SarvatraResponse mockSarvatraEndpoint(@RequestBody SarvatraEncryptedRequest request,
+    public CompletableFuture<SarvatraResponse> mockSarvatraEndpoint(@RequestBody SarvatraEncryptedRequest request,
                                                    @RequestHeader(value = "X-Correlation-ID", required = false) String correlationId) {
         log.info("Mock Sarvatra received request - Correlation ID: {}", correlationId);
-        log.info("Encrypted data received: ct={}, sk={}, iv={}, api={}, ts={}", 
-                request.getCt().substring(0, 20) + "...",
-                request.getSk().substring(0, 20) + "...",
-                request.getIv().substring(0, 20) + "...",
-                request.getApi().substring(0, 20) + "...",
-                request.getTs().substring(0, 20) + "...");
-
-        // Simulate processing delay
-        try {
-            Thread.sleep(1000);
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        log.info("Encrypted data received: ct={}, sk={}, iv={}, api={}, ts={}",
+                preview(request.getCt()),
+                preview(request.getSk()),
+                preview(request.getIv()),
+                preview(request.getApi()),
+                preview(request.getTs()));
+
+        if (ThreadLocalRandom.current().nextDouble() < failureRate) {
+            return CompletableFuture.supplyAsync(() -> {
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Mock Sarvatra failure");
+            }, CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS));
         }
 
         // Return success response
-        return SarvatraResponse.builder()
-                .responseCode("00")
-                .responseMessage("Transaction Successful")
-                .transactionId("SARV-" + System.currentTimeMillis())
-                .rrn("RRN" + System.currentTimeMillis())
-                .approvalCode("APP" + (int)(Math.random() * 1000000))
-                .balance("50000.00")
-                .build();
+        return CompletableFuture.supplyAsync(() -> SarvatraResponse.builder()
+                        .responseCode("00")
+                        .responseMessage("Transaction Successful")
+                        .transactionId("SARV-" + System.currentTimeMillis())
+                        .rrn("RRN" + System.currentTimeMillis())
+                        .approvalCode("APP" + ThreadLocalRandom.current().nextInt(1000000))
+                        .balance("50000.00")
+                        .build(),
+                CompletableFuture.delayedExecutor(delayMs, TimeUnit.MILLISECONDS));
+    }
+
+    // First 20 chars — fields can be shorter (iv, api, ts) or missing
+    private static String preview(String value) {
+        if (value == null) {
+            return null;
+        }
+        return value.length() <= 20 ? value : value.substring(0, 20) + "...";
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,275 @@
+package com.paymenthub.ms2.crypto;
+
+import com.paymenthub.common.crypto.IvSource;
+import com.paymenthub.common.exception.EncryptionException;
+import com.paymenthub.ms2.dto.SarvatraEncryptedRequest;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.OAEPParameterSpec;
+import javax.crypto.spec.PSource;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.SecureRandom;
+import java.security.spec.MGF1ParameterSpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hybrid envelope for the Sarvatra request:
+ *   ct  AES-256-GCM(plain ISO JSON), ciphertext + tag
+ *   sk  RSA-OAEP(SHA-256) wrap of the AES session key
+ *   iv  GCM nonce
+ *   api sarvatra.api-key
+ *   ts  epoch millis
+ *
+ * The public key is parsed once. sarvatra.public-key unset → a
+ * throwaway key pair, good only against MockSarvatraController.
+ *
+ * The RSA wrap is what costs; how often it happens depends on what
+ * the network spec allows:
+ *   reuse-allowed: true   one session key (and its wrapped form) for
+ *                         up to max-age-ms or max-messages, whichever
+ *                         comes first; nonces stay unique under it
+ *                         because they come from one IvSource
+ *   reuse-allowed: false  one key per request, wrapped ahead of demand
+ *                         on precompute-threads into a pool-size pool;
+ *                         an empty pool falls back to wrapping inline
+ *
+ * Metrics: sarvatra.sessionkey.wraps, sarvatra.sessionkey.misses,
+ * sarvatra.sessionkey.ready
+ */
+@Component
+@ConditionalOnProperty(name = "sarvatra.mode", havingValue = "http")
+@Slf4j
+public class SarvatraEncryptor {
+
+    private static final String AES = "AES/GCM/NoPadding";
+    private static final String RSA = "RSA/ECB/OAEPPadding";
+    private static final OAEPParameterSpec OAEP = new OAEPParameterSpec(
+            "SHA-256", "MGF1", MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT);
+    private static final int GCM_TAG_LENGTH = 128;
+    private static final int AES_KEY_BYTES = 32;
+    private static final int CIPHER_POOL_SIZE = 64;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sarvatra.public-key:}")
+    private String publicKeyBase64;
+
+    @Value("${sarvatra.api-key:paymenthub}")
+    private String apiKey;
+
+    @Value("${sarvatra.session-key.reuse-allowed:false}")
+    private boolean reuseAllowed;
+
+    @Value("${sarvatra.session-key.max-age-ms:60000}")
+    private long maxAgeMs;
+
+    @Value("${sarvatra.session-key.max-messages:10000}")
+    private long maxMessages;
+
+    @Value("${sarvatra.session-key.pool-size:256}")
+    private int poolSize;
+
+    @Value("${sarvatra.session-key.precompute-threads:1}")
+    private int precomputeThreads;
+
+    private final IvSource ivSource = new IvSource();
+    private final SecureRandom random = new SecureRandom();
+    private final BlockingQueue<Cipher> aesCiphers = new ArrayBlockingQueue<>(CIPHER_POOL_SIZE);
+    private PublicKey publicKey;
+
+    // reuse-allowed: the live key; replaced under rotateLock
+    private volatile SessionKey current;
+    private final Object rotateLock = new Object();
+
+    // otherwise: single-use keys wrapped ahead of demand
+    private BlockingQueue<SessionKey> ready;
+    private ExecutorService precomputer;
+    private final AtomicInteger refillers = new AtomicInteger();
+
+    private Counter wraps;
+    private Counter misses;
+
+    // Use is counted down per message; expiry is wall-clock
+    private record SessionKey(SecretKeySpec key, String wrapped, long expiresAt,
+                              AtomicLong remaining) {
+
+        boolean tryUse(long now) {
+            return now < expiresAt && remaining.decrementAndGet() >= 0;
+        }
+    }
+
+    @PostConstruct
+    void init() throws GeneralSecurityException {
+        if (publicKeyBase64.isBlank()) {
+            log.warn("⚠️ sarvatra.public-key not set — using a throwaway key (mock only)");
+            KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+            kpg.initialize(2048);
+            publicKey = kpg.generateKeyPair().getPublic();
+        } else {
+            publicKey = KeyFactory.getInstance("RSA").generatePublic(
+                    new X509EncodedKeySpec(Base64.getDecoder().decode(publicKeyBase64.trim())));
+        }
+        wraps = Counter.builder("sarvatra.sessionkey.wraps").register(meterRegistry);
+        misses = Counter.builder("sarvatra.sessionkey.misses").register(meterRegistry);
+
+        if (!reuseAllowed) {
+            ready = new ArrayBlockingQueue<>(poolSize);
+            CustomizableThreadFactory threadFactory =
+                    new CustomizableThreadFactory("sarvatra-keys-");
+            threadFactory.setDaemon(true);
+            precomputer = Executors.newFixedThreadPool(precomputeThreads, threadFactory);
+            Gauge.builder("sarvatra.sessionkey.ready", ready, BlockingQueue::size)
+                    .register(meterRegistry);
+            topUp();
+        }
+        log.info("🔐 Sarvatra encryptor ready | sessionKeys={}", reuseAllowed
+                ? "reused ≤" + maxAgeMs + "ms/≤" + maxMessages + " msgs"
+                : "per request, " + poolSize + " precomputed");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (precomputer != null) {
+            precomputer.shutdownNow();
+        }
+    }
+
+    public SarvatraEncryptedRequest encrypt(String plainJson) {
+        SessionKey sessionKey = nextSessionKey();
+        byte[] iv = ivSource.next();
+        Cipher aes = acquireAes();
+        try {
+            aes.init(Cipher.ENCRYPT_MODE, sessionKey.key(),
+                    new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+            byte[] ct = aes.doFinal(plainJson.getBytes(StandardCharsets.UTF_8));
+
+            Base64.Encoder b64 = Base64.getEncoder();
+            return SarvatraEncryptedRequest.builder()
+                    .ct(b64.encodeToString(ct))
+                    .sk(sessionKey.wrapped())
+                    .iv(b64.encodeToString(iv))
+                    .api(apiKey)
+                    .ts(Long.toString(System.currentTimeMillis()))
+                    .build();
+        } catch (GeneralSecurityException e) {
+            throw new EncryptionException("Sarvatra request encryption failed", e);
+        } finally {
+            aesCiphers.offer(aes);
+        }
+    }
+
+    // ── Session keys ─────────────────────────────────────────────
+
+    private SessionKey nextSessionKey() {
+        if (reuseAllowed) {
+            return reusedSessionKey();
+        }
+        SessionKey sessionKey = ready.poll();
+        if (sessionKey == null) {
+            misses.increment();   // demand outran the precompute threads
+            sessionKey = newSessionKey(1, Long.MAX_VALUE);
+        }
+        topUp();
+        return sessionKey;
+    }
+
+    // Only the thread that finds the key used up pays for the wrap;
+    // the rest keep going on the live key
+    private SessionKey reusedSessionKey() {
+        long now = System.currentTimeMillis();
+        SessionKey live = current;
+        if (live != null && live.tryUse(now)) {
+            return live;
+        }
+        synchronized (rotateLock) {
+            live = current;
+            if (live != null && live.tryUse(now)) {
+                return live;
+            }
+            live = newSessionKey(maxMessages, now + maxAgeMs);
+            live.tryUse(now);
+            current = live;
+            return live;
+        }
+    }
+
+    // Below half full → refill on up to precompute-threads workers
+    private void topUp() {
+        if (ready.size() >= poolSize / 2) {
+            return;
+        }
+        int running = refillers.get();
+        if (running >= precomputeThreads || !refillers.compareAndSet(running, running + 1)) {
+            return;
+        }
+        try {
+            precomputer.execute(() -> {
+                try {
+                    while (ready.remainingCapacity() > 0) {
+                        ready.offer(newSessionKey(1, Long.MAX_VALUE));
+                    }
+                } catch (RuntimeException e) {
+                    log.error("❌ Session key precompute failed", e);
+                } finally {
+                    refillers.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException e) {
+            refillers.decrementAndGet();   // shutting down
+        }
+    }
+
+    private SessionKey newSessionKey(long uses, long expiresAt) {
+        byte[] keyBytes = new byte[AES_KEY_BYTES];
+        random.nextBytes(keyBytes);
+        SecretKeySpec key = new SecretKeySpec(keyBytes, "AES");
+        try {
+            // RSA ciphers are only touched here — rarely, or off the
+            // request path — so they are not pooled
+            Cipher rsa = Cipher.getInstance(RSA);
+            rsa.init(Cipher.WRAP_MODE, publicKey, OAEP);
+            String wrapped = Base64.getEncoder().encodeToString(rsa.wrap(key));
+            wraps.increment();
+            return new SessionKey(key, wrapped, expiresAt, new AtomicLong(uses));
+        } catch (GeneralSecurityException e) {
+            throw new EncryptionException("Session key wrap failed", e);
+        }
+    }
+
+    private Cipher acquireAes() {
+        Cipher cipher = aesCiphers.poll();
+        if (cipher != null) {
+            return cipher;
+        }
+        try {
+            return Cipher.getInstance(AES);
+        } catch (GeneralSecurityException e) {
+            throw new EncryptionException("AES-GCM unavailable", e);
+        }
+    }
+}
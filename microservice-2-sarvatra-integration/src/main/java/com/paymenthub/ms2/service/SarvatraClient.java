@@ -0,0 +1,159 @@
+package com.paymenthub.ms2.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymenthub.common.resilience.Bulkhead;
+import com.paymenthub.ms2.crypto.SarvatraEncryptor;
+import com.paymenthub.ms2.dto.SarvatraEncryptedRequest;
+import com.paymenthub.ms2.dto.SarvatraResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Non-blocking Sarvatra HTTP client (sarvatra.mode=http).
+ *
+ * One JDK HttpClient for the process: connections are kept alive and
+ * reused across requests. sendAsync returns as soon as the request is
+ * handed off, so a listener thread is never parked on the network —
+ * in-flight calls are bounded by max-in-flight instead of by listener
+ * concurrency. A listener only waits (up to acquire-timeout-ms) when
+ * that many calls are already out, which pushes back on the queue
+ * rather than piling up more work than Sarvatra can take.
+ *
+ * Metrics: bulkhead.inflight{name=sarvatra}, bulkhead.rejected,
+ * sarvatra.call.time{outcome}
+ */
+@Component
+@ConditionalOnProperty(name = "sarvatra.mode", havingValue = "http")
+@Slf4j
+public class SarvatraClient {
+
+    @Autowired
+    private SarvatraEncryptor encryptor;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${sarvatra.url:http://localhost:8082/api/transaction/process}")
+    private String url;
+
+    @Value("${sarvatra.max-in-flight:500}")
+    private int maxInFlight;
+
+    @Value("${sarvatra.acquire-timeout-ms:1000}")
+    private long acquireTimeoutMs;
+
+    @Value("${sarvatra.connect-timeout-ms:2000}")
+    private long connectTimeoutMs;
+
+    @Value("${sarvatra.timeout-ms:25000}")
+    private long timeoutMs;
+
+    @Value("${sarvatra.callback-threads:8}")
+    private int callbackThreads;
+
+    private HttpClient httpClient;
+    private ExecutorService callbackExecutor;
+    private Bulkhead inFlight;
+    private URI endpoint;
+    private Timer succeeded;
+    private Timer failed;
+
+    @PostConstruct
+    void init() {
+        endpoint = URI.create(url);
+        inFlight = new Bulkhead("sarvatra", maxInFlight, meterRegistry);
+        // Completions (response parse + publish to MS1) run here,
+        // not on the client's selector thread
+        CustomizableThreadFactory threadFactory = new CustomizableThreadFactory("sarvatra-");
+        threadFactory.setDaemon(true);
+        callbackExecutor = Executors.newFixedThreadPool(callbackThreads, threadFactory);
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .executor(callbackExecutor)
+                .build();
+
+        succeeded = Timer.builder("sarvatra.call.time").tag("outcome", "success")
+                .register(meterRegistry);
+        failed = Timer.builder("sarvatra.call.time").tag("outcome", "failure")
+                .register(meterRegistry);
+        log.info("🌐 Sarvatra client ready | url={} maxInFlight={}", url, maxInFlight);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        callbackExecutor.shutdown();
+    }
+
+    // Completes on a callback thread; fails with
+    // RejectedExecutionException when no slot frees up in time
+    public CompletableFuture<SarvatraResponse> send(String correlationId, String plainJson) {
+        try {
+            if (!inFlight.tryAcquire(acquireTimeoutMs)) {
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                        "Sarvatra in-flight limit " + maxInFlight + " reached"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return CompletableFuture.failedFuture(e);
+        }
+
+        long start = System.nanoTime();
+        CompletableFuture<SarvatraResponse> call;
+        try {
+            SarvatraEncryptedRequest body = encryptor.encrypt(plainJson);
+            HttpRequest request = HttpRequest.newBuilder(endpoint)
+                    .timeout(Duration.ofMillis(timeoutMs))
+                    .header("Content-Type", "application/json")
+                    .header("X-Correlation-ID", correlationId)
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(
+                            objectMapper.writeValueAsBytes(body)))
+                    .build();
+            call = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                    .thenApply(this::parse);
+        } catch (IOException | RuntimeException e) {
+            call = CompletableFuture.failedFuture(e);
+        }
+
+        return call.whenComplete((response, error) -> {
+            inFlight.release();
+            (error == null ? succeeded : failed)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        });
+    }
+
+    private SarvatraResponse parse(HttpResponse<byte[]> response) {
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("Sarvatra HTTP " + response.statusCode());
+        }
+        try {
+            return objectMapper.readValue(response.body(), SarvatraResponse.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Bad Sarvatra response", e);
+        }
+    }
+}
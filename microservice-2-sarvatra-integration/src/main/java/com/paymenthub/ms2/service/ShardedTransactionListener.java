@@ -0,0 +1,31 @@
+package com.paymenthub.ms2.service;
+
+import com.paymenthub.common.dto.RabbitMessage;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumes the terminal-affine shard queues (rabbitmq.sharding.enabled)
+ * with one ordered consumer per queue. The shared queue keeps its own
+ * listener, so anything still on it drains while sharding rolls out.
+ * In sarvatra.mode=http the processor keeps the order past the
+ * listener by chaining each terminal's Sarvatra calls.
+ */
+@Component
+@ConditionalOnProperty(name = "rabbitmq.sharding.enabled", havingValue = "true")
+public class ShardedTransactionListener {
+
+    @Autowired
+    private TransactionProcessorService processor;
+
+    @RabbitListener(
+        queues = "#{T(com.paymenthub.common.amqp.Shards).names("
+               + "'${rabbitmq.queues.from-router}', ${rabbitmq.sharding.shards:8})}",
+        containerFactory = "shardListenerContainerFactory"
+    )
+    public void processTransaction(RabbitMessage message) {
+        processor.processInTerminalOrder(message);
+    }
+}
@@ -1,16 +1,24 @@
 package com.paymenthub.ms2.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.paymenthub.common.dto.RabbitMessage;
 import com.paymenthub.common.dto.TransactionResponse;
+import com.paymenthub.common.iso.IsoFieldExtractor;
+import com.paymenthub.common.iso.IsoFields;
+import com.paymenthub.common.resilience.CircuitBreaker;
+import com.paymenthub.ms2.dto.SarvatraResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 
 @Service
 @Slf4j
@@ -25,19 +33,48 @@ public class TransactionProcessorService {
     @Value("${rabbitmq.routing-keys.to-ms1}")
     private String toMs1RoutingKey;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    // Set only with sarvatra.mode=http
+    @Autowired(required = false)
+    private SarvatraClient sarvatraClient;
+
+    @Autowired(required = false)
+    private CircuitBreaker sarvatraCircuitBreaker;
+
+    // MTI, amount, terminal — the only fields logged here
+    private static final IsoFieldExtractor ISO_FIELDS =
+            new IsoFieldExtractor(0, 4, 41);
+
+    // terminal → its last Sarvatra call, while one is outstanding;
+    // shard listener only
+    private final Map<String, CompletableFuture<Void>> terminalTails =
+            new ConcurrentHashMap<>();
 
     // ─────────────────────────────────────────────────────────────
     // Receives plain ISO 8583 JSON from Router
     //
-    // PHASE 1 (now):  return mock SUCCESS immediately for testing
-    // PHASE 2 (next): encrypt for NPCI standard + call Sarvatra
+    // sarvatra.mode=mock: mock SUCCESS straight back (no network)
+    // sarvatra.mode=http: encrypt + call Sarvatra asynchronously; the
+    //   listener thread returns once the request is sent and the
+    //   reply to MS1 is published from the HTTP completion
     // ─────────────────────────────────────────────────────────────
     @RabbitListener(
         queues = "${rabbitmq.queues.from-router}",
-        concurrency = "10-50"
+        concurrency = "${rabbitmq.listener-concurrency:10-50}"
     )
     public void processTransaction(RabbitMessage message) {
+        process(message, false);
+    }
+
+    // Shard queues: a shard's one consumer hands over a terminal's
+    // messages in order, but the listener returns before Sarvatra
+    // answers — so each terminal's calls are chained here, the next
+    // sent only once the previous has been answered. Other terminals
+    // on the same shard are not held up.
+    public void processInTerminalOrder(RabbitMessage message) {
+        process(message, true);
+    }
+
+    private void process(RabbitMessage message, boolean terminalOrdered) {
         long start = System.currentTimeMillis();
 
         log.info("📨 MS2 received | correlationId={} | source={} | dest={}",
@@ -46,26 +83,31 @@ public class TransactionProcessorService {
                 message.getDestination());
 
         try {
-            // Read the plain ISO JSON to log some fields
-            @SuppressWarnings("unchecked")
-            Map<String, String> isoFields = objectMapper.readValue(
-                    message.getPlainJsonPayload(), Map.class);
+            // Stream the few ISO fields we log — no full Map parse
+            IsoFields isoFields = ISO_FIELDS.extract(
+                    message.getPlainJsonPayload());
 
             log.info("📋 ISO fields | MTI={} | Terminal={} | Amount={}",
-                    isoFields.get("0"),   // Field 0  = MTI
-                    isoFields.get("41"),  // Field 41 = Terminal ID
-                    isoFields.get("4"));  // Field 4  = Amount
-
-            // ── PHASE 1: Mock response ────────────────────────────────
-            // TODO Phase 2: encrypt isoFields for NPCI
-            //               call Sarvatra HTTP endpoint
-            //               parse real NPCI response
+                    isoFields.get(0),   // Field 0  = MTI
+                    isoFields.get(41),  // Field 41 = Terminal ID
+                    isoFields.get(4));  // Field 4  = Amount
+
+            if (sarvatraClient != null) {
+                String terminalId = isoFields.get(41);
+                if (terminalOrdered && terminalId != null) {
+                    callSarvatraAfter(terminalId, message, start);
+                } else {
+                    callSarvatra(message, start);
+                }
+                return;
+            }
+
+            // ── Mock response (sarvatra.mode=mock) ────────────────
             TransactionResponse response = buildMockSuccessResponse(
                     message.getCorrelationId());
 
             // Send response back to MS1
-            rabbitTemplate.convertAndSend(
-                    exchange, toMs1RoutingKey, response);
+            reply(message, response);
 
             log.info("✅ MS2 mock response sent in {}ms | correlationId={}",
                     System.currentTimeMillis() - start,
@@ -79,12 +121,115 @@ public class TransactionProcessorService {
             TransactionResponse errorResponse = buildErrorResponse(
                     message.getCorrelationId(), e.getMessage());
 
-            rabbitTemplate.convertAndSend(
-                    exchange, toMs1RoutingKey, errorResponse);
+            reply(message, errorResponse);
+        }
+    }
+
+    // Runs on the terminal's shard consumer only, so the put and the
+    // previous tail it displaces can't race another message of the
+    // same terminal
+    private void callSarvatraAfter(String terminalId, RabbitMessage message, long start) {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        CompletableFuture<Void> previous = terminalTails.put(terminalId, done);
+        CompletableFuture<Void> ready = previous != null
+                ? previous
+                : CompletableFuture.completedFuture(null);
+        // Even a call that throws must release the next one
+        CompletableFuture<Void> call = ready.thenCompose(ignored -> callSarvatra(message, start));
+        call.whenComplete((ignored, error) -> {
+            if (error != null) {
+                log.error("❌ Ordered Sarvatra call failed | correlationId={}",
+                        message.getCorrelationId(), unwrap(error));
+            }
+            terminalTails.remove(terminalId, done);
+            done.complete(null);
+        });
+    }
+
+    // The message is acked when this returns, before Sarvatra answers:
+    // a crash mid-call loses the reply, and MS1 times the request out
+    // rather than having it replayed to the switch.
+    // Completes once the reply to MS1 is published.
+    private CompletableFuture<Void> callSarvatra(RabbitMessage message, long start) {
+        String correlationId = message.getCorrelationId();
+
+        // Circuit open: answer now instead of queueing a call that
+        // would miss MS1's deadline anyway
+        long permit = sarvatraCircuitBreaker.tryAcquire();
+        if (permit == CircuitBreaker.REJECTED) {
+            log.warn("⚡ Sarvatra circuit {}, declined | correlationId={}",
+                    sarvatraCircuitBreaker.state(), correlationId);
+            reply(message, buildBusyResponse(correlationId, "Sarvatra unavailable - Please try again"));
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long callStart = System.nanoTime();
+        return sarvatraClient.send(correlationId, message.getPlainJsonPayload())
+                .handle((sarvatra, error) -> {
+                    long took = System.nanoTime() - callStart;
+                    TransactionResponse response;
+                    if (error == null) {
+                        sarvatraCircuitBreaker.onSuccess(permit, took);
+                        response = fromSarvatra(correlationId, sarvatra);
+                    } else if (unwrap(error) instanceof RejectedExecutionException) {
+                        // Bulkhead full — never reached Sarvatra
+                        sarvatraCircuitBreaker.onIgnored(permit);
+                        log.warn("🚦 Sarvatra busy, declined | correlationId={}", correlationId);
+                        response = buildBusyResponse(correlationId, "Sarvatra busy - Please try again");
+                    } else {
+                        sarvatraCircuitBreaker.onFailure(permit, took);
+                        log.error("❌ Sarvatra call failed | correlationId={}",
+                                correlationId, unwrap(error));
+                        response = buildErrorResponse(correlationId, unwrap(error).getMessage());
+                    }
+                    try {
+                        reply(message, response);
+                    } catch (RuntimeException e) {
+                        log.error("❌ Reply publish failed | correlationId={}", correlationId, e);
+                        return null;
+                    }
+                    log.info("✅ MS2 Sarvatra response sent in {}ms | correlationId={} | code={}",
+                            System.currentTimeMillis() - start, correlationId,
+                            response.getResponseCode());
+                    return null;
+                });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null
+                ? error.getCause()
+                : error;
+    }
+
+    // ── Straight to the MS1 instance that asked ──────────────────
+    // Default exchange routes by queue name; no replyTo means an
+    // older gateway build, which still reads the shared queue
+    private void reply(RabbitMessage message, TransactionResponse response) {
+        String replyTo = message.getReplyTo();
+        CorrelationData confirm = new CorrelationData(response.getCorrelationId());
+        if (replyTo == null || replyTo.isBlank()) {
+            rabbitTemplate.convertAndSend(exchange, toMs1RoutingKey, response, confirm);
+            return;
         }
+        rabbitTemplate.convertAndSend("", replyTo, response, confirm);
     }
 
-    // ── Mock success response (PHASE 1 only) ─────────────────────
+    // ── Sarvatra answer → MS1 response ───────────────────────────
+    private TransactionResponse fromSarvatra(String correlationId, SarvatraResponse sarvatra) {
+        return TransactionResponse.builder()
+                .correlationId(correlationId)
+                .status("00".equals(sarvatra.getResponseCode()) ? "SUCCESS" : "FAILED")
+                .responseCode(sarvatra.getResponseCode())
+                .responseMessage(sarvatra.getResponseMessage())
+                .transactionId(sarvatra.getTransactionId())
+                .rrn(sarvatra.getRrn())
+                .approvalCode(sarvatra.getApprovalCode())
+                .balance(sarvatra.getBalance())
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
+    // ── Mock success response (sarvatra.mode=mock) ────────────────
     private TransactionResponse buildMockSuccessResponse(String correlationId) {
         return TransactionResponse.builder()
                 .correlationId(correlationId)
@@ -99,6 +244,17 @@ public class TransactionProcessorService {
                 .build();
     }
 
+    // ── Circuit open / in-flight limit reached — retryable decline ─
+    private TransactionResponse buildBusyResponse(String correlationId, String reason) {
+        return TransactionResponse.builder()
+                .correlationId(correlationId)
+                .status("FAILED")
+                .responseCode("91")            // 91 = Issuer/switch inoperative
+                .responseMessage(reason)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
     // ── Error response so MS1 never hangs ────────────────────────
     private TransactionResponse buildErrorResponse(
             String correlationId, String errorMessage) {
@@ -0,0 +1,111 @@
+package com.paymenthub.ms2.crypto;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.LoggerFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SarvatraEncryptor.encrypt throughput, as encryptions/sec/core, for
+ * each session-key mode:
+ *
+ *   reuse        reuse-allowed: true, one RSA wrap per max-messages
+ *   precompute   reuse-allowed: false, keys wrapped on one precompute
+ *                thread; demand beyond its wrap rate is served inline
+ *                (the misses column)
+ *
+ * "/core" divides by availableProcessors, which also pay for the
+ * precompute thread. Callers are one thread per core.
+ *
+ * Not a test — run by hand:
+ *
+ *   mvn -pl microservice-2-sarvatra-integration test-compile
+ *   java -cp target/test-classes:target/classes:$(deps) \
+ *        com.paymenthub.ms2.crypto.SarvatraEncryptorBenchmark [seconds=5]
+ *
+ * The payload is a 16-field ISO 0200 as MS2 forwards it; the key is a
+ * throwaway RSA-2048 one, the size Sarvatra issues.
+ */
+public final class SarvatraEncryptorBenchmark {
+
+    private static final String ISO = "{\"0\":\"0200\",\"2\":\"4111111111111111\","
+            + "\"3\":\"000000\",\"4\":\"000000001000\",\"7\":\"1017203005\","
+            + "\"11\":\"123456\",\"12\":\"203005\",\"13\":\"1017\",\"14\":\"2812\","
+            + "\"22\":\"051\",\"25\":\"00\",\"35\":\"4111111111111111=28121010000000000000\","
+            + "\"37\":\"629020123456\",\"41\":\"TERM0001\",\"42\":\"MERCHANT0000001\","
+            + "\"49\":\"356\"}";
+
+    private SarvatraEncryptorBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 5;
+        int cores = Runtime.getRuntime().availableProcessors();
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        System.out.printf("%-11s %6s %14s %14s %8s %8s%n",
+                "mode", "cores", "enc/s", "enc/s/core", "wraps", "misses");
+        for (boolean reuse : new boolean[] { true, false }) {
+            SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+            SarvatraEncryptor encryptor = encryptor(meterRegistry, reuse);
+            try {
+                run(encryptor, cores, seconds);   // warm-up
+                double wrapsBefore = meterRegistry.get("sarvatra.sessionkey.wraps").counter().count();
+                double missesBefore = meterRegistry.get("sarvatra.sessionkey.misses").counter().count();
+                double perSecond = run(encryptor, cores, seconds);
+                System.out.printf("%-11s %6d %14.0f %14.0f %8.0f %8.0f%n",
+                        reuse ? "reuse" : "precompute", cores, perSecond, perSecond / cores,
+                        meterRegistry.get("sarvatra.sessionkey.wraps").counter().count() - wrapsBefore,
+                        meterRegistry.get("sarvatra.sessionkey.misses").counter().count() - missesBefore);
+            } finally {
+                ReflectionTestUtils.invokeMethod(encryptor, "shutdown");
+            }
+        }
+    }
+
+    private static SarvatraEncryptor encryptor(SimpleMeterRegistry meterRegistry, boolean reuse) {
+        SarvatraEncryptor encryptor = new SarvatraEncryptor();
+        ReflectionTestUtils.setField(encryptor, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(encryptor, "publicKeyBase64", "");
+        ReflectionTestUtils.setField(encryptor, "apiKey", "paymenthub");
+        ReflectionTestUtils.setField(encryptor, "reuseAllowed", reuse);
+        ReflectionTestUtils.setField(encryptor, "maxAgeMs", 60_000L);
+        ReflectionTestUtils.setField(encryptor, "maxMessages", 10_000L);
+        ReflectionTestUtils.setField(encryptor, "poolSize", 256);
+        ReflectionTestUtils.setField(encryptor, "precomputeThreads", 1);
+        ReflectionTestUtils.invokeMethod(encryptor, "init");
+        return encryptor;
+    }
+
+    // encryptions per second across all caller threads
+    private static double run(SarvatraEncryptor encryptor, int threads, long seconds)
+            throws InterruptedException {
+        AtomicLong done = new AtomicLong();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        List<Thread> callers = new ArrayList<>(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            Thread caller = new Thread(() -> {
+                long calls = 0;
+                while (System.nanoTime() < deadline) {
+                    for (int i = 0; i < 100; i++) {
+                        encryptor.encrypt(ISO);
+                    }
+                    calls += 100;
+                }
+                done.addAndGet(calls);
+            }, "caller-" + t);
+            caller.start();
+            callers.add(caller);
+        }
+        for (Thread caller : callers) {
+            caller.join();
+        }
+        return done.get() / ((System.nanoTime() - start) / 1e9);
+    }
+}
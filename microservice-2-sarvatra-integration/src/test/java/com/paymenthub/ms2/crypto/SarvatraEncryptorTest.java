@@ -0,0 +1,153 @@
+package com.paymenthub.ms2.crypto;
+
+import com.paymenthub.ms2.dto.SarvatraEncryptedRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.OAEPParameterSpec;
+import javax.crypto.spec.PSource;
+import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.spec.MGF1ParameterSpec;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SarvatraEncryptorTest {
+
+    private static final String ISO = "{\"0\":\"0200\",\"4\":\"000000001000\",\"41\":\"TERM0001\"}";
+
+    // One RSA key for the class; generating it is the slow part
+    private static KeyPair keyPair;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SarvatraEncryptor encryptor = new SarvatraEncryptor();
+
+    @BeforeAll
+    static void generateKey() throws Exception {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
+        kpg.initialize(2048);
+        keyPair = kpg.generateKeyPair();
+    }
+
+    private void start(boolean reuseAllowed, long maxAgeMs, long maxMessages, int poolSize) {
+        ReflectionTestUtils.setField(encryptor, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(encryptor, "publicKeyBase64",
+                Base64.getEncoder().encodeToString(keyPair.getPublic().getEncoded()));
+        ReflectionTestUtils.setField(encryptor, "apiKey", "paymenthub");
+        ReflectionTestUtils.setField(encryptor, "reuseAllowed", reuseAllowed);
+        ReflectionTestUtils.setField(encryptor, "maxAgeMs", maxAgeMs);
+        ReflectionTestUtils.setField(encryptor, "maxMessages", maxMessages);
+        ReflectionTestUtils.setField(encryptor, "poolSize", poolSize);
+        ReflectionTestUtils.setField(encryptor, "precomputeThreads", 1);
+        ReflectionTestUtils.invokeMethod(encryptor, "init");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(encryptor, "shutdown");
+    }
+
+    private double count(String name) {
+        return meterRegistry.get(name).counter().count();
+    }
+
+    // What Sarvatra does with the envelope: unwrap sk, open ct
+    private static String decrypt(SarvatraEncryptedRequest request) throws Exception {
+        Base64.Decoder b64 = Base64.getDecoder();
+        Cipher rsa = Cipher.getInstance("RSA/ECB/OAEPPadding");
+        rsa.init(Cipher.UNWRAP_MODE, keyPair.getPrivate(), new OAEPParameterSpec(
+                "SHA-256", "MGF1", MGF1ParameterSpec.SHA256, PSource.PSpecified.DEFAULT));
+        Key key = rsa.unwrap(b64.decode(request.getSk()), "AES", Cipher.SECRET_KEY);
+        Cipher aes = Cipher.getInstance("AES/GCM/NoPadding");
+        aes.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, b64.decode(request.getIv())));
+        return new String(aes.doFinal(b64.decode(request.getCt())), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    void reusedKeyRotatesAfterMaxMessages() throws Exception {
+        start(true, 60_000, 3, 256);
+
+        SarvatraEncryptedRequest first = encryptor.encrypt(ISO);
+        SarvatraEncryptedRequest second = encryptor.encrypt(ISO);
+        SarvatraEncryptedRequest third = encryptor.encrypt(ISO);
+        SarvatraEncryptedRequest fourth = encryptor.encrypt(ISO);
+
+        assertThat(second.getSk()).isEqualTo(first.getSk());
+        assertThat(third.getSk()).isEqualTo(first.getSk());
+        assertThat(fourth.getSk()).isNotEqualTo(first.getSk());
+        assertThat(count("sarvatra.sessionkey.wraps")).isEqualTo(2);
+        // Same key, never the same nonce
+        assertThat(Set.of(first.getIv(), second.getIv(), third.getIv())).hasSize(3);
+        assertThat(decrypt(third)).isEqualTo(ISO);
+        assertThat(decrypt(fourth)).isEqualTo(ISO);
+    }
+
+    @Test
+    void reusedKeyRotatesAfterMaxAge() throws Exception {
+        start(true, 50, 10_000, 256);
+
+        SarvatraEncryptedRequest first = encryptor.encrypt(ISO);
+        SarvatraEncryptedRequest second = encryptor.encrypt(ISO);
+        Thread.sleep(100);
+        SarvatraEncryptedRequest afterExpiry = encryptor.encrypt(ISO);
+
+        assertThat(second.getSk()).isEqualTo(first.getSk());
+        assertThat(afterExpiry.getSk()).isNotEqualTo(first.getSk());
+        assertThat(count("sarvatra.sessionkey.wraps")).isEqualTo(2);
+        assertThat(decrypt(afterExpiry)).isEqualTo(ISO);
+    }
+
+    @Test
+    void perRequestKeysComeFromThePrecomputedPool() throws Exception {
+        start(false, 60_000, 10_000, 4);
+        awaitReady(4);
+
+        Set<String> sessionKeys = new HashSet<>();
+        for (int i = 0; i < 4; i++) {
+            SarvatraEncryptedRequest request = encryptor.encrypt(ISO);
+            sessionKeys.add(request.getSk());
+            assertThat(decrypt(request)).isEqualTo(ISO);
+        }
+
+        assertThat(sessionKeys).hasSize(4);
+        assertThat(count("sarvatra.sessionkey.misses")).isZero();
+    }
+
+    @Test
+    void emptyPoolFallsBackToWrappingInline() throws Exception {
+        start(false, 60_000, 10_000, 2);
+        awaitReady(2);
+        // No refills from here on: the third request finds the pool empty
+        ReflectionTestUtils.invokeMethod(encryptor, "shutdown");
+
+        SarvatraEncryptedRequest first = encryptor.encrypt(ISO);
+        SarvatraEncryptedRequest second = encryptor.encrypt(ISO);
+        assertThat(count("sarvatra.sessionkey.misses")).isZero();
+        double wrapsBefore = count("sarvatra.sessionkey.wraps");
+
+        SarvatraEncryptedRequest inline = encryptor.encrypt(ISO);
+
+        assertThat(count("sarvatra.sessionkey.misses")).isEqualTo(1);
+        assertThat(count("sarvatra.sessionkey.wraps")).isEqualTo(wrapsBefore + 1);
+        assertThat(Set.of(first.getSk(), second.getSk(), inline.getSk())).hasSize(3);
+        assertThat(decrypt(inline)).isEqualTo(ISO);
+    }
+
+    private void awaitReady(int keys) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (meterRegistry.get("sarvatra.sessionkey.ready").gauge().value() < keys) {
+            assertThat(System.currentTimeMillis()).isLessThan(deadline);
+            Thread.sleep(10);
+        }
+    }
+}
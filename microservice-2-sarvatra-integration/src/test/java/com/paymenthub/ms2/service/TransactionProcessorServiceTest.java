@@ -0,0 +1,97 @@
+package com.paymenthub.ms2.service;
+
+import com.paymenthub.common.dto.RabbitMessage;
+import com.paymenthub.common.resilience.CircuitBreaker;
+import com.paymenthub.ms2.dto.SarvatraResponse;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class TransactionProcessorServiceTest {
+
+    private final TransactionProcessorService processor = new TransactionProcessorService();
+    private final SarvatraClient sarvatraClient = mock(SarvatraClient.class);
+
+    // correlationId → the call's still-open answer
+    private final Map<String, CompletableFuture<SarvatraResponse>> calls = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        when(sarvatraClient.send(anyString(), anyString())).thenAnswer(invocation -> {
+            CompletableFuture<SarvatraResponse> call = new CompletableFuture<>();
+            calls.put(invocation.getArgument(0), call);
+            return call;
+        });
+        CircuitBreaker breaker = CircuitBreaker.builder()
+                .name("sarvatra").windowSize(10).minCalls(10).failureRateThreshold(100)
+                .openMs(1000).halfOpenCalls(1).meterRegistry(new SimpleMeterRegistry())
+                .build();
+        ReflectionTestUtils.setField(processor, "rabbitTemplate", mock(RabbitTemplate.class));
+        ReflectionTestUtils.setField(processor, "exchange", "payment.hub.exchange");
+        ReflectionTestUtils.setField(processor, "toMs1RoutingKey", "ms1.txn.response");
+        ReflectionTestUtils.setField(processor, "sarvatraClient", sarvatraClient);
+        ReflectionTestUtils.setField(processor, "sarvatraCircuitBreaker", breaker);
+    }
+
+    private static RabbitMessage message(String correlationId, String terminalId) {
+        return RabbitMessage.builder()
+                .correlationId(correlationId)
+                .plainJsonPayload("{\"0\":\"0200\",\"4\":\"000000001000\",\"41\":\""
+                        + terminalId + "\"}")
+                .replyTo("ms1.reply.test")
+                .build();
+    }
+
+    private static SarvatraResponse approved() {
+        SarvatraResponse response = new SarvatraResponse();
+        response.setResponseCode("00");
+        return response;
+    }
+
+    @Test
+    void sameTerminalWaitsForThePreviousAnswer() {
+        processor.processInTerminalOrder(message("a1", "TERM0001"));
+        processor.processInTerminalOrder(message("a2", "TERM0001"));
+        processor.processInTerminalOrder(message("a3", "TERM0001"));
+        assertThat(calls).containsOnlyKeys("a1");
+
+        calls.get("a1").complete(approved());
+        assertThat(calls).containsOnlyKeys("a1", "a2");
+
+        // A failed call still releases the next one
+        calls.get("a2").completeExceptionally(new IllegalStateException("Sarvatra HTTP 503"));
+        assertThat(calls).containsOnlyKeys("a1", "a2", "a3");
+    }
+
+    @Test
+    void otherTerminalsAreNotHeldUp() {
+        processor.processInTerminalOrder(message("a1", "TERM0001"));
+        processor.processInTerminalOrder(message("b1", "TERM0002"));
+        assertThat(calls).containsOnlyKeys("a1", "b1");
+    }
+
+    @Test
+    void sharedQueueIsNotChained() {
+        processor.processTransaction(message("a1", "TERM0001"));
+        processor.processTransaction(message("a2", "TERM0001"));
+        assertThat(calls).containsOnlyKeys("a1", "a2");
+    }
+
+    @Test
+    void finishedTerminalLeavesNoTail() {
+        processor.processInTerminalOrder(message("a1", "TERM0001"));
+        calls.get("a1").complete(approved());
+        assertThat((Map<?, ?>) ReflectionTestUtils.getField(processor, "terminalTails")).isEmpty();
+    }
+}
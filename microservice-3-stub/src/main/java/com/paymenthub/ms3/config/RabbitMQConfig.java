@@ -3,22 +3,53 @@ package com.paymenthub.ms3.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.paymenthub.common.amqp.CompressingMessageConverter;
+import com.paymenthub.common.amqp.PaymentHubMessageConverter;
+import com.paymenthub.common.amqp.Shards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.DirectRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 
 @Configuration
+@Slf4j
 public class RabbitMQConfig {
 
     @Value("${rabbitmq.exchange}")
     private String exchange;
 
+    @Value("${rabbitmq.converter.binary-outbound:false}")
+    private boolean binaryOutbound;
+
+    @Value("${rabbitmq.compression.outbound:false}")
+    private boolean compressOutbound;
+
+    @Value("${rabbitmq.compression.threshold-bytes:1024}")
+    private int compressionThreshold;
+
+    @Value("${rabbitmq.compression.level:1}")
+    private int compressionLevel;
+
+    @Value("${spring.application.name}")
+    private String applicationName;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Value("${rabbitmq.queues.from-router}")
     private String fromRouterQueue;
 
@@ -31,6 +62,10 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.routing-keys.to-ms1}")
     private String toMs1RoutingKey;
 
+    @Value("${rabbitmq.sharding.shards:8}")
+    private int shards;
+
+    // ── Exchange ──────────────────────────────────────────────────
     @Bean
     public DirectExchange paymentExchange() {
         return ExchangeBuilder
@@ -39,6 +74,7 @@ public class RabbitMQConfig {
                 .build();
     }
 
+    // ── Queues ────────────────────────────────────────────────────
     @Bean
     public Queue fromRouterQueue() {
         return QueueBuilder.durable(fromRouterQueue).build();
@@ -49,6 +85,8 @@ public class RabbitMQConfig {
         return QueueBuilder.durable(toMs1Queue).build();
     }
 
+    // ── Bindings ──────────────────────────────────────────────────
+
     @Bean
     public Binding fromRouterBinding() {
         return BindingBuilder
@@ -65,28 +103,100 @@ public class RabbitMQConfig {
                 .with(toMs1RoutingKey);
     }
 
+    // ── Shard Queues ──────────────────────────────────────────────
+    // <from-router>.0..N-1 (rabbitmq.sharding.enabled); the router
+    // declares the same set
     @Bean
-    public MessageConverter jsonMessageConverter() {
+    @ConditionalOnProperty(name = "rabbitmq.sharding.enabled", havingValue = "true")
+    public Declarables fromRouterShardQueues() {
+        return Shards.declarables(paymentExchange(), fromRouterQueue,
+                fromRouterRoutingKey, shards);
+    }
+
+    // ── Message Converter ─────────────────────────────────────────
+    // Reads binary or JSON by content type; writes binary only
+    // when rabbitmq.converter.binary-outbound is on
+    @Bean
+    public MessageConverter messageConverter() {
         ObjectMapper mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
         mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        return new Jackson2JsonMessageConverter(mapper);
+        MessageConverter converter = new PaymentHubMessageConverter(
+                new Jackson2JsonMessageConverter(mapper), binaryOutbound);
+        // Always inflates content-encoding: deflate; bodies of
+        // threshold-bytes+ are deflated only with compression.outbound on
+        return new CompressingMessageConverter(converter, compressOutbound,
+                compressionThreshold, compressionLevel, meterRegistry, applicationName);
     }
 
+    // ── Rabbit Template ───────────────────────────────────────────
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
-        template.setMessageConverter(jsonMessageConverter());
+        template.setMessageConverter(messageConverter());
+
+        // Confirms + returns arrive asynchronously (publisher-confirm-type:
+        // correlated); mandatory brings unroutable messages back. A nack
+        // or return is counted and logged with its correlationId
+        template.setMandatory(true);
+        Counter acks = confirmCounter("ack");
+        Counter nacks = confirmCounter("nack");
+        Counter returns = confirmCounter("returned");
+        template.setConfirmCallback((correlation, ack, cause) -> {
+            String id = correlation == null ? null : correlation.getId();
+            if (!ack) {
+                nacks.increment();
+                log.error("❌ Publish nacked | correlationId={} cause={}", id, cause);
+            } else if (correlation != null && correlation.getReturned() != null) {
+                returns.increment();
+                log.error("❌ Publish returned | correlationId={} reason={}",
+                        id, correlation.getReturned().getReplyText());
+            } else {
+                acks.increment();
+            }
+        });
         return template;
     }
 
+    private Counter confirmCounter(String result) {
+        return Counter.builder("amqp.publish.confirms")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    // ── Listener Factory ──────────────────────────────────────────
     @Bean
     public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
-            ConnectionFactory connectionFactory) {
+            ConnectionFactory connectionFactory, Environment environment) {
         SimpleRabbitListenerContainerFactory factory =
                 new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
-        factory.setMessageConverter(jsonMessageConverter());
+        factory.setMessageConverter(messageConverter());
+        // spring.threads.virtual.enabled=true (Java 21+): consumers run on
+        // virtual threads instead of the container's platform threads
+        if (Threading.VIRTUAL.isActive(environment)) {
+            factory.setTaskExecutor(
+                    new VirtualThreadTaskExecutor("ms3-listener-"));
+        }
+        return factory;
+    }
+
+    // Exactly one consumer per shard queue, each on its own channel:
+    // a terminal's messages are handled one at a time, in order,
+    // while the shards run in parallel
+    @Bean
+    @ConditionalOnProperty(name = "rabbitmq.sharding.enabled", havingValue = "true")
+    public DirectRabbitListenerContainerFactory shardListenerContainerFactory(
+            ConnectionFactory connectionFactory, Environment environment) {
+        DirectRabbitListenerContainerFactory factory =
+                new DirectRabbitListenerContainerFactory();
+        factory.setConnectionFactory(connectionFactory);
+        factory.setMessageConverter(messageConverter());
+        factory.setConsumersPerQueue(1);
+        if (Threading.VIRTUAL.isActive(environment)) {
+            factory.setTaskExecutor(
+                    new VirtualThreadTaskExecutor("ms3-shard-"));
+        }
         return factory;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,56 @@
+package com.paymenthub.ms3.config;
+
+import com.paymenthub.common.resilience.Bulkhead;
+import com.paymenthub.common.resilience.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class ResilienceConfig {
+
+    @Value("${network.max-concurrent:200}")
+    private int maxConcurrent;
+
+    @Value("${network.circuit-breaker.window-size:50}")
+    private int windowSize;
+
+    @Value("${network.circuit-breaker.min-calls:20}")
+    private int minCalls;
+
+    @Value("${network.circuit-breaker.failure-rate-threshold:50}")
+    private double failureRateThreshold;
+
+    @Value("${network.circuit-breaker.slow-call-ms:10000}")
+    private long slowCallMs;
+
+    @Value("${network.circuit-breaker.open-ms:10000}")
+    private long openMs;
+
+    @Value("${network.circuit-breaker.half-open-calls:5}")
+    private int halfOpenCalls;
+
+    // ── Around the VISA / Mastercard network call ────────────────
+    @Bean
+    public CircuitBreaker networkCircuitBreaker(MeterRegistry meterRegistry) {
+        return CircuitBreaker.builder()
+                .name("visa-mc")
+                .windowSize(windowSize)
+                .minCalls(minCalls)
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallMs(slowCallMs)
+                .openMs(openMs)
+                .halfOpenCalls(halfOpenCalls)
+                .listener((from, to) -> log.warn("⚡ VISA/MC circuit {} → {}", from, to))
+                .meterRegistry(meterRegistry)
+                .build();
+    }
+
+    @Bean
+    public Bulkhead networkBulkhead(MeterRegistry meterRegistry) {
+        return new Bulkhead("visa-mc", maxConcurrent, meterRegistry);
+    }
+}
@@ -0,0 +1,29 @@
+package com.paymenthub.ms3.service;
+
+import com.paymenthub.common.dto.RabbitMessage;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Consumes the terminal-affine shard queues (rabbitmq.sharding.enabled)
+ * with one ordered consumer per queue. The shared queue keeps its own
+ * listener, so anything still on it drains while sharding rolls out.
+ */
+@Component
+@ConditionalOnProperty(name = "rabbitmq.sharding.enabled", havingValue = "true")
+public class ShardedTransactionListener {
+
+    @Autowired
+    private TransactionProcessorService processor;
+
+    @RabbitListener(
+        queues = "#{T(com.paymenthub.common.amqp.Shards).names("
+               + "'${rabbitmq.queues.from-router}', ${rabbitmq.sharding.shards:8})}",
+        containerFactory = "shardListenerContainerFactory"
+    )
+    public void processTransaction(RabbitMessage message) {
+        processor.processTransaction(message);
+    }
+}
@@ -1,16 +1,20 @@
 package com.paymenthub.ms3.service;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.paymenthub.common.dto.RabbitMessage;
 import com.paymenthub.common.dto.TransactionResponse;
+import com.paymenthub.common.iso.IsoFieldExtractor;
+import com.paymenthub.common.iso.IsoFields;
+import com.paymenthub.common.resilience.Bulkhead;
+import com.paymenthub.common.resilience.CircuitBreaker;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Service
 @Slf4j
@@ -25,7 +29,19 @@ public class TransactionProcessorService {
     @Value("${rabbitmq.routing-keys.to-ms1}")
     private String toMs1RoutingKey;
 
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    @Autowired
+    private CircuitBreaker networkCircuitBreaker;
+
+    @Autowired
+    private Bulkhead networkBulkhead;
+
+    // Share of mock network calls that fail — to exercise the breaker
+    @Value("${network.mock.failure-rate:0.0}")
+    private double mockFailureRate;
+
+    // MTI, amount, terminal — the only fields logged here
+    private static final IsoFieldExtractor ISO_FIELDS =
+            new IsoFieldExtractor(0, 4, 41);
 
     // ─────────────────────────────────────────────────────────────
     // MS3 handles VISA / MASTERCARD destinations
@@ -34,7 +50,7 @@ public class TransactionProcessorService {
     // ─────────────────────────────────────────────────────────────
     @RabbitListener(
         queues = "${rabbitmq.queues.from-router}",
-        concurrency = "10-50"
+        concurrency = "${rabbitmq.listener-concurrency:10-50}"
     )
     public void processTransaction(RabbitMessage message) {
         long start = System.currentTimeMillis();
@@ -45,23 +61,20 @@ public class TransactionProcessorService {
                 message.getDestination());
 
         try {
-            @SuppressWarnings("unchecked")
-            Map<String, String> isoFields = objectMapper.readValue(
-                    message.getPlainJsonPayload(), Map.class);
+            IsoFields isoFields = ISO_FIELDS.extract(
+                    message.getPlainJsonPayload());
 
             log.info("📋 ISO fields | MTI={} | Terminal={} | Amount={}",
-                    isoFields.get("0"),
-                    isoFields.get("41"),
-                    isoFields.get("4"));
+                    isoFields.get(0),
+                    isoFields.get(41),
+                    isoFields.get(4));
 
-            // ── PHASE 1: Mock response ────────────────────────────
-            TransactionResponse response = buildMockSuccessResponse(
+            TransactionResponse response = callNetwork(
                     message.getCorrelationId());
 
-            rabbitTemplate.convertAndSend(
-                    exchange, toMs1RoutingKey, response);
+            reply(message, response);
 
-            log.info("✅ MS3 mock response sent in {}ms | correlationId={}",
+            log.info("✅ MS3 response sent in {}ms | correlationId={}",
                     System.currentTimeMillis() - start,
                     message.getCorrelationId());
 
@@ -72,11 +85,57 @@ public class TransactionProcessorService {
             TransactionResponse errorResponse = buildErrorResponse(
                     message.getCorrelationId(), e.getMessage());
 
-            rabbitTemplate.convertAndSend(
-                    exchange, toMs1RoutingKey, errorResponse);
+            reply(message, errorResponse);
         }
     }
 
+    // ── VISA / MC network call, behind breaker + bulkhead ────────
+    // Open circuit or no free slot → 91 at once, the network is not
+    // touched. A bulkhead rejection is not held against the network.
+    private TransactionResponse callNetwork(String correlationId) {
+        long permit = networkCircuitBreaker.tryAcquire();
+        if (permit == CircuitBreaker.REJECTED) {
+            log.warn("⚡ VISA/MC circuit {}, declined | correlationId={}",
+                    networkCircuitBreaker.state(), correlationId);
+            return buildUnavailableResponse(correlationId,
+                    "VISA/MC unavailable - Please try again");
+        }
+        if (!networkBulkhead.tryAcquire()) {
+            networkCircuitBreaker.onIgnored(permit);
+            log.warn("🚦 VISA/MC busy, declined | correlationId={}", correlationId);
+            return buildUnavailableResponse(correlationId,
+                    "VISA/MC busy - Please try again");
+        }
+        long start = System.nanoTime();
+        try {
+            // ── PHASE 1: Mock response ────────────────────────────
+            if (ThreadLocalRandom.current().nextDouble() < mockFailureRate) {
+                throw new IllegalStateException("Mock VISA/MC failure");
+            }
+            TransactionResponse response = buildMockSuccessResponse(correlationId);
+            networkCircuitBreaker.onSuccess(permit, System.nanoTime() - start);
+            return response;
+        } catch (RuntimeException e) {
+            networkCircuitBreaker.onFailure(permit, System.nanoTime() - start);
+            throw e;
+        } finally {
+            networkBulkhead.release();
+        }
+    }
+
+    // ── Straight to the MS1 instance that asked ──────────────────
+    // Default exchange routes by queue name; no replyTo means an
+    // older gateway build, which still reads the shared queue
+    private void reply(RabbitMessage message, TransactionResponse response) {
+        String replyTo = message.getReplyTo();
+        CorrelationData confirm = new CorrelationData(response.getCorrelationId());
+        if (replyTo == null || replyTo.isBlank()) {
+            rabbitTemplate.convertAndSend(exchange, toMs1RoutingKey, response, confirm);
+            return;
+        }
+        rabbitTemplate.convertAndSend("", replyTo, response, confirm);
+    }
+
     private TransactionResponse buildMockSuccessResponse(String correlationId) {
         return TransactionResponse.builder()
                 .correlationId(correlationId)
@@ -91,6 +150,18 @@ public class TransactionProcessorService {
                 .build();
     }
 
+    // ── Circuit open / no free slot — retryable decline ──────────
+    private TransactionResponse buildUnavailableResponse(
+            String correlationId, String reason) {
+        return TransactionResponse.builder()
+                .correlationId(correlationId)
+                .status("FAILED")
+                .responseCode("91")
+                .responseMessage(reason)
+                .timestamp(System.currentTimeMillis())
+                .build();
+    }
+
     private TransactionResponse buildErrorResponse(
             String correlationId, String errorMessage) {
         return TransactionResponse.builder()
@@ -0,0 +1,58 @@
+package com.paymenthub.router.backpressure;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Load on one destination queue, as last sampled. Written by the
+ * sampler thread only; the router's listener threads read
+ * {@link #saturated} and bump {@link #forwarded}.
+ */
+final class QueuePressure {
+
+    private static final double RATE_SMOOTHING = 0.3;   // EWMA weight of the newest sample
+
+    final String queue;
+
+    // Forwarded here since the last sample — arrivals, so that
+    // depth change + arrivals = what the consumers drained
+    final AtomicLong forwarded = new AtomicLong();
+
+    volatile long depth;
+    volatile int consumers;
+    volatile double drainPerSecond;   // < 0 until two samples exist
+    volatile boolean saturated;
+
+    private long sampledAt;
+
+    QueuePressure(String queue) {
+        this.queue = queue;
+        this.drainPerSecond = -1;
+    }
+
+    void sample(long newDepth, int newConsumers, long now) {
+        long arrivals = forwarded.getAndSet(0);
+        if (sampledAt > 0 && now > sampledAt) {
+            long drained = Math.max(0, depth + arrivals - newDepth);
+            double rate = drained * 1000.0 / (now - sampledAt);
+            drainPerSecond = drainPerSecond < 0
+                    ? rate
+                    : RATE_SMOOTHING * rate + (1 - RATE_SMOOTHING) * drainPerSecond;
+        }
+        depth = newDepth;
+        consumers = newConsumers;
+        sampledAt = now;
+    }
+
+    // How long a message published now would sit before a consumer
+    // takes it: 0 for an empty queue or before a rate is known,
+    // unbounded while nothing drains
+    long estimatedWaitMs() {
+        if (depth == 0 || (drainPerSecond < 0 && consumers > 0)) {
+            return 0;
+        }
+        if (consumers == 0 || drainPerSecond <= 0) {
+            return Long.MAX_VALUE;
+        }
+        return (long) (depth * 1000 / drainPerSecond);
+    }
+}
@@ -0,0 +1,235 @@
+package com.paymenthub.router.backpressure;
+
+import com.paymenthub.common.amqp.Shards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Watches the MS2/MS3 request queues (and their shards) so the router
+ * stops feeding a queue whose messages would expire before a consumer
+ * reaches them.
+ *
+ * Every sample-interval-ms each queue is passively declared for its
+ * depth and consumer count; depth change plus what the router forwarded
+ * in between gives the consumers' drain rate, and depth / drain rate
+ * the wait a new message would see. A queue is saturated at max-depth
+ * messages or max-wait-ms of estimated wait (the latter only from
+ * min-depth up, so a near-empty queue is never judged on a noisy rate),
+ * and recovers once both are under resume-ratio of their limit.
+ *
+ * What happens to traffic for a saturated queue is the policy:
+ *   shed      decline with 91 straight back to the MS1 instance
+ *   overflow  divert to the overflow queue; the router re-routes it
+ *             once nothing is saturated
+ *   pause     stop consuming from MS1 until nothing is saturated
+ *
+ * Metrics, tagged by queue:
+ *   router.queue.depth / .drain.rate / .wait / .saturated
+ *   router.backpressure.actions   messages shed or diverted
+ */
+@Component
+@Slf4j
+public class QueuePressureMonitor {
+
+    public enum Policy { SHED, OVERFLOW, PAUSE }
+
+    public static final String ROUTE_LISTENER_ID = "router-from-ms1";
+    public static final String OVERFLOW_LISTENER_ID = "router-overflow";
+
+    @Autowired
+    private AmqpAdmin amqpAdmin;
+
+    @Autowired
+    private RabbitListenerEndpointRegistry listenerRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${rabbitmq.backpressure.enabled:true}")
+    private boolean enabled;
+
+    @Value("${rabbitmq.backpressure.policy:shed}")
+    private String policyName;
+
+    @Value("${rabbitmq.backpressure.max-depth:5000}")
+    private long maxDepth;
+
+    @Value("${rabbitmq.backpressure.max-wait-ms:15000}")
+    private long maxWaitMs;
+
+    @Value("${rabbitmq.backpressure.min-depth:100}")
+    private long minDepth;
+
+    @Value("${rabbitmq.backpressure.resume-ratio:0.7}")
+    private double resumeRatio;
+
+    @Value("${rabbitmq.queues.to-ms2}")
+    private String toMs2Queue;
+
+    @Value("${rabbitmq.queues.to-ms3}")
+    private String toMs3Queue;
+
+    @Value("${rabbitmq.routing-keys.to-ms2}")
+    private String toMs2RoutingKey;
+
+    @Value("${rabbitmq.routing-keys.to-ms3}")
+    private String toMs3RoutingKey;
+
+    @Value("${rabbitmq.sharding.enabled:false}")
+    private boolean sharding;
+
+    @Value("${rabbitmq.sharding.shards:8}")
+    private int shards;
+
+    private Policy policy;
+
+    // routing key → its queue's pressure; fixed after init
+    private final Map<String, QueuePressure> byRoutingKey = new HashMap<>();
+    private final Map<String, Counter> actions = new HashMap<>();
+
+    private volatile boolean anySaturated;
+
+    @PostConstruct
+    void init() {
+        policy = Policy.valueOf(policyName.trim().toUpperCase(Locale.ROOT));
+        track(toMs2RoutingKey, toMs2Queue);
+        track(toMs3RoutingKey, toMs3Queue);
+        if (sharding) {
+            for (int i = 0; i < shards; i++) {
+                track(Shards.name(toMs2RoutingKey, i), Shards.name(toMs2Queue, i));
+                track(Shards.name(toMs3RoutingKey, i), Shards.name(toMs3Queue, i));
+            }
+        }
+    }
+
+    private void track(String routingKey, String queue) {
+        QueuePressure pressure = new QueuePressure(queue);
+        byRoutingKey.put(routingKey, pressure);
+        Gauge.builder("router.queue.depth", pressure, p -> p.depth)
+                .tag("queue", queue).register(meterRegistry);
+        Gauge.builder("router.queue.drain.rate", pressure, p -> Math.max(0, p.drainPerSecond))
+                .tag("queue", queue).register(meterRegistry);
+        Gauge.builder("router.queue.wait", pressure, p -> Math.min(p.estimatedWaitMs(), 3_600_000))
+                .tag("queue", queue).baseUnit("milliseconds").register(meterRegistry);
+        Gauge.builder("router.queue.saturated", pressure, p -> p.saturated ? 1 : 0)
+                .tag("queue", queue).register(meterRegistry);
+        actions.put(routingKey, Counter.builder("router.backpressure.actions")
+                .tag("queue", queue)
+                .tag("policy", policy.name().toLowerCase(Locale.ROOT))
+                .register(meterRegistry));
+    }
+
+    public Policy policy() {
+        return policy;
+    }
+
+    // Per message — one map lookup, no broker call
+    public boolean isSaturated(String routingKey) {
+        if (!enabled || !anySaturated) {
+            return false;
+        }
+        QueuePressure pressure = byRoutingKey.get(routingKey);
+        return pressure != null && pressure.saturated;
+    }
+
+    public void recordForwarded(String routingKey) {
+        QueuePressure pressure = byRoutingKey.get(routingKey);
+        if (pressure != null) {
+            pressure.forwarded.incrementAndGet();
+        }
+    }
+
+    public void recordAction(String routingKey) {
+        Counter counter = actions.get(routingKey);
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    // ── Sampler ──────────────────────────────────────────────────
+    @Scheduled(fixedDelayString = "${rabbitmq.backpressure.sample-interval-ms:1000}")
+    public void sample() {
+        if (!enabled) {
+            return;
+        }
+        boolean saturatedNow = false;
+        for (QueuePressure pressure : byRoutingKey.values()) {
+            QueueInformation info;
+            try {
+                info = amqpAdmin.getQueueInfo(pressure.queue);
+            } catch (RuntimeException e) {
+                log.warn("⚠️ Queue depth sample failed | queue={}", pressure.queue, e);
+                saturatedNow |= pressure.saturated;   // keep the last verdict rather than guess
+                continue;
+            }
+            if (info == null) {
+                pressure.saturated = false;   // not declared (yet) — nothing waiting on it
+                continue;
+            }
+            pressure.sample(info.getMessageCount(), info.getConsumerCount(),
+                    System.currentTimeMillis());
+            updateVerdict(pressure);
+            saturatedNow |= pressure.saturated;
+        }
+        anySaturated = saturatedNow;
+        applyListenerPolicy(saturatedNow);
+    }
+
+    private void updateVerdict(QueuePressure pressure) {
+        long depth = pressure.depth;
+        long waitMs = pressure.estimatedWaitMs();
+        if (!pressure.saturated) {
+            if (depth >= maxDepth || (depth >= minDepth && waitMs >= maxWaitMs)) {
+                pressure.saturated = true;
+                log.warn("🚦 Queue saturated, policy={} | queue={} depth={} consumers={} "
+                                + "drain={}/s wait={}ms",
+                        policy, pressure.queue, depth, pressure.consumers,
+                        Math.round(pressure.drainPerSecond), waitMs);
+            }
+        } else if (depth < maxDepth * resumeRatio
+                && (depth < minDepth || waitMs < maxWaitMs * resumeRatio)) {
+            pressure.saturated = false;
+            log.info("✅ Queue recovered | queue={} depth={} wait={}ms",
+                    pressure.queue, depth, waitMs);
+        }
+    }
+
+    // pause: the MS1 listener runs only while nothing is saturated
+    // overflow: the overflow drain runs only while nothing is saturated
+    private void applyListenerPolicy(boolean saturated) {
+        String listenerId = switch (policy) {
+            case PAUSE -> ROUTE_LISTENER_ID;
+            case OVERFLOW -> OVERFLOW_LISTENER_ID;
+            case SHED -> null;
+        };
+        if (listenerId == null) {
+            return;
+        }
+        MessageListenerContainer container = listenerRegistry.getListenerContainer(listenerId);
+        if (container == null) {
+            return;
+        }
+        if (saturated && container.isRunning()) {
+            log.warn("⏸️ Stopping listener {} while a destination is saturated", listenerId);
+            container.stop();
+        } else if (!saturated && !container.isRunning()) {
+            log.info("▶️ Starting listener {}", listenerId);
+            container.start();
+        }
+    }
+}
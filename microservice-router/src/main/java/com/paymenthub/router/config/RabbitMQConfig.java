@@ -3,22 +3,52 @@ package com.paymenthub.router.config;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.paymenthub.common.amqp.CompressingMessageConverter;
+import com.paymenthub.common.amqp.PaymentHubMessageConverter;
+import com.paymenthub.common.amqp.Shards;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 
 @Configuration
+@Slf4j
 public class RabbitMQConfig {
 
     @Value("${rabbitmq.exchange}")
     private String exchange;
 
+    @Value("${rabbitmq.converter.binary-outbound:false}")
+    private boolean binaryOutbound;
+
+    @Value("${rabbitmq.compression.outbound:false}")
+    private boolean compressOutbound;
+
+    @Value("${rabbitmq.compression.threshold-bytes:1024}")
+    private int compressionThreshold;
+
+    @Value("${rabbitmq.compression.level:1}")
+    private int compressionLevel;
+
+    @Value("${spring.application.name}")
+    private String applicationName;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Value("${rabbitmq.queues.from-ms1}")
     private String fromMs1Queue;
 
@@ -37,6 +67,15 @@ public class RabbitMQConfig {
     @Value("${rabbitmq.routing-keys.to-ms3}")
     private String toMs3RoutingKey;
 
+    @Value("${rabbitmq.queues.overflow}")
+    private String overflowQueue;
+
+    @Value("${rabbitmq.routing-keys.overflow}")
+    private String overflowRoutingKey;
+
+    @Value("${rabbitmq.sharding.shards:8}")
+    private int shards;
+
     // ── Exchange ──────────────────────────────────────────────────
     @Bean
     public DirectExchange paymentExchange() {
@@ -92,31 +131,97 @@ public class RabbitMQConfig {
                 .with(toMs3RoutingKey);
     }
 
+    // Parking for traffic to a saturated destination (backpressure
+    // policy: overflow); expires with MS1's own timeout
+    @Bean
+    @ConditionalOnProperty(name = "rabbitmq.backpressure.policy", havingValue = "overflow")
+    public Declarables overflowQueue() {
+        Queue queue = QueueBuilder.durable(overflowQueue)
+                .withArgument("x-message-ttl", 30000)
+                .build();
+        return new Declarables(queue,
+                BindingBuilder.bind(queue).to(paymentExchange()).with(overflowRoutingKey));
+    }
+
+    // ── Shard queues (rabbitmq.sharding.enabled) ─────────────────
+    // <queue>.0..N-1 per processor; MS2/MS3 declare the same set
+    @Bean
+    @ConditionalOnProperty(name = "rabbitmq.sharding.enabled", havingValue = "true")
+    public Declarables toMs2ShardQueues() {
+        return Shards.declarables(paymentExchange(), toMs2Queue, toMs2RoutingKey, shards);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "rabbitmq.sharding.enabled", havingValue = "true")
+    public Declarables toMs3ShardQueues() {
+        return Shards.declarables(paymentExchange(), toMs3Queue, toMs3RoutingKey, shards);
+    }
+
     // ── Message Converter ─────────────────────────────────────────
+    // Reads binary or JSON by content type; writes binary only
+    // when rabbitmq.converter.binary-outbound is on
     @Bean
-    public MessageConverter jsonMessageConverter() {
+    public MessageConverter messageConverter() {
         ObjectMapper mapper = new ObjectMapper();
         mapper.registerModule(new JavaTimeModule());
         mapper.disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
-        return new Jackson2JsonMessageConverter(mapper);
+        MessageConverter converter = new PaymentHubMessageConverter(
+                new Jackson2JsonMessageConverter(mapper), binaryOutbound);
+        // Always inflates content-encoding: deflate; bodies of
+        // threshold-bytes+ are deflated only with compression.outbound on
+        return new CompressingMessageConverter(converter, compressOutbound,
+                compressionThreshold, compressionLevel, meterRegistry, applicationName);
     }
 
     // ── Rabbit Template ───────────────────────────────────────────
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate template = new RabbitTemplate(connectionFactory);
-        template.setMessageConverter(jsonMessageConverter());
+        template.setMessageConverter(messageConverter());
+
+        // Confirms + returns arrive asynchronously (publisher-confirm-type:
+        // correlated); mandatory brings unroutable messages back. A nack
+        // or return is counted and logged with its correlationId
+        template.setMandatory(true);
+        Counter acks = confirmCounter("ack");
+        Counter nacks = confirmCounter("nack");
+        Counter returns = confirmCounter("returned");
+        template.setConfirmCallback((correlation, ack, cause) -> {
+            String id = correlation == null ? null : correlation.getId();
+            if (!ack) {
+                nacks.increment();
+                log.error("❌ Publish nacked | correlationId={} cause={}", id, cause);
+            } else if (correlation != null && correlation.getReturned() != null) {
+                returns.increment();
+                log.error("❌ Publish returned | correlationId={} reason={}",
+                        id, correlation.getReturned().getReplyText());
+            } else {
+                acks.increment();
+            }
+        });
         return template;
     }
 
+    private Counter confirmCounter(String result) {
+        return Counter.builder("amqp.publish.confirms")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
     // ── Listener Factory ──────────────────────────────────────────
     @Bean
     public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
-            ConnectionFactory connectionFactory) {
+            ConnectionFactory connectionFactory, Environment environment) {
         SimpleRabbitListenerContainerFactory factory =
                 new SimpleRabbitListenerContainerFactory();
         factory.setConnectionFactory(connectionFactory);
-        factory.setMessageConverter(jsonMessageConverter());
+        factory.setMessageConverter(messageConverter());
+        // spring.threads.virtual.enabled=true (Java 21+): consumers run on
+        // virtual threads instead of the container's platform threads
+        if (Threading.VIRTUAL.isActive(environment)) {
+            factory.setTaskExecutor(
+                    new VirtualThreadTaskExecutor("router-listener-"));
+        }
         return factory;
     }
 }
\ No newline at end of file
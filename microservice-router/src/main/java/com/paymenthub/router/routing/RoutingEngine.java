@@ -0,0 +1,102 @@
+package com.paymenthub.router.routing;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Holds the live {@link RoutingTable}.
+ *
+ * routing.table-file set → the table is loaded from that file and the
+ * file is polled; a changed file is compiled off to the side and
+ * swapped in with one volatile write, so in-flight lookups finish on
+ * the old table and no restart is needed. A file that fails to parse
+ * or compile is logged and the current table stays live.
+ * Unset → the bundled routing-table.json, fixed for the process.
+ */
+@Component
+@Slf4j
+public class RoutingEngine {
+
+    private static final String BUNDLED_TABLE = "routing-table.json";
+
+    @Value("${routing.table-file:}")
+    private String tableFile;
+
+    @Value("${rabbitmq.routing-keys.to-ms2}")
+    private String toMs2RoutingKey;
+
+    @Value("${rabbitmq.routing-keys.to-ms3}")
+    private String toMs3RoutingKey;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private volatile RoutingTable table;
+    private long loadedModified;
+
+    @PostConstruct
+    void init() throws IOException {
+        if (tableFile.isBlank()) {
+            try (InputStream in = new ClassPathResource(BUNDLED_TABLE).getInputStream()) {
+                table = compile(mapper.readValue(in, RoutingTableDefinition.class));
+            }
+            logLoaded("classpath:" + BUNDLED_TABLE);
+            return;
+        }
+        // A bad table at startup is fatal — there is nothing to fall back to
+        Path path = Path.of(tableFile);
+        loadedModified = Files.getLastModifiedTime(path).toMillis();
+        table = compile(mapper.readValue(path.toFile(), RoutingTableDefinition.class));
+        logLoaded(tableFile);
+    }
+
+    // Never null; any argument may be
+    public String route(String destination, String mti, String processingCode, String panBin) {
+        return table.route(destination, mti, processingCode, panBin);
+    }
+
+    @Scheduled(fixedDelayString = "${routing.reload-interval-ms:5000}",
+               initialDelayString = "${routing.reload-interval-ms:5000}")
+    public void reloadIfChanged() {
+        if (tableFile.isBlank()) {
+            return;
+        }
+        Path path = Path.of(tableFile);
+        try {
+            long modified = Files.getLastModifiedTime(path).toMillis();
+            if (modified == loadedModified) {
+                return;
+            }
+            RoutingTable next = compile(mapper.readValue(path.toFile(),
+                    RoutingTableDefinition.class));
+            table = next;
+            loadedModified = modified;
+            logLoaded(tableFile);
+        } catch (IOException | RuntimeException e) {
+            log.error("❌ Routing table reload failed, keeping current table | file={}",
+                    tableFile, e);
+        }
+    }
+
+    private RoutingTable compile(RoutingTableDefinition definition) {
+        return RoutingTable.compile(definition,
+                Map.of("MS2", toMs2RoutingKey, "MS3", toMs3RoutingKey));
+    }
+
+    private void logLoaded(String source) {
+        RoutingTable current = table;
+        log.info("🗺️ Routing table loaded | source={} rules={} binRanges={} intervals={}",
+                source, current.ruleCount(), current.binRangeCount(),
+                current.binIntervalCount());
+    }
+}
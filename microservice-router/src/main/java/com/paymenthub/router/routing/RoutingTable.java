@@ -0,0 +1,303 @@
+package com.paymenthub.router.routing;
+
+import com.paymenthub.router.routing.RoutingTableDefinition.BinRange;
+import com.paymenthub.router.routing.RoutingTableDefinition.Rule;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Compiled, immutable routing table. Built once per table file and
+ * swapped in whole by {@link RoutingEngine}; lookups never lock and
+ * never allocate for the usual destination spellings.
+ *
+ * Lookup order, first hit wins:
+ *   1. rules, most specific first —
+ *      (dest, mti, type) (dest, mti, *) (dest, *, type) (dest, *, *)
+ *      (*, mti, type)    (*, mti, *)    (*, *, type)
+ *   2. BIN ranges on the PAN's first 8 digits, narrowest range wins
+ *      (equal widths: the later one in the file)
+ *   3. defaultRoute
+ *
+ * BIN ranges are flattened into disjoint intervals at compile time,
+ * and a 10,000-slot index on the first four digits narrows each lookup
+ * to the few intervals under that prefix — one array read plus a short
+ * binary search however many ranges there are.
+ */
+public final class RoutingTable {
+
+    static final String ANY = "*";
+
+    private static final int BIN_DIGITS = 8;
+    private static final int BIN_SPACE = 100_000_000;   // 00000000..99999999
+    private static final int BUCKET_WIDTH = 10_000;     // digits 5-8
+    private static final int BUCKETS = BIN_SPACE / BUCKET_WIDTH;
+    private static final int TXN_TYPES = 100;           // field 3, digits 1-2
+    private static final int ANY_TXN_TYPE = TXN_TYPES;  // wildcard slot
+
+    // destination ("*" = any) → mti ("*" = any) → route per txn type
+    private final Map<String, Map<String, String[]>> rules;
+    private final Map<String, String[]> anyDestination;
+
+    // One long per interval: start << 32 | index into binRoutes, so the
+    // search lands on the route too — no second array read per lookup.
+    // Interval i covers its start up to the next interval's start - 1
+    private final long[] binIntervals;
+    private final String[] binRoutes;   // distinct routes, [0] = null (no range)
+    // bucketFirst[p] = interval holding p * BUCKET_WIDTH; [BUCKETS] = last
+    private final int[] bucketFirst;
+
+    private final String defaultRoute;
+    private final int ruleCount;
+    private final int binRangeCount;
+
+    private RoutingTable(Map<String, Map<String, String[]>> rules, int[] binStarts,
+                         String[] binRoutes, String defaultRoute,
+                         int ruleCount, int binRangeCount) {
+        this.rules = rules;
+        this.anyDestination = rules.get(ANY);
+        List<String> distinct = new ArrayList<>();
+        distinct.add(null);
+        Map<String, Integer> routeIndex = new HashMap<>();
+        this.binIntervals = new long[binStarts.length];
+        for (int i = 0; i < binStarts.length; i++) {
+            int index = binRoutes[i] == null ? 0 : routeIndex.computeIfAbsent(binRoutes[i], r -> {
+                distinct.add(r);
+                return distinct.size() - 1;
+            });
+            binIntervals[i] = (long) binStarts[i] << 32 | index;
+        }
+        this.binRoutes = distinct.toArray(new String[0]);
+        this.bucketFirst = new int[BUCKETS + 1];
+        int interval = 0;
+        for (int p = 0; p <= BUCKETS; p++) {
+            long bucketStart = (long) p * BUCKET_WIDTH;
+            while (interval + 1 < binStarts.length && binStarts[interval + 1] <= bucketStart) {
+                interval++;
+            }
+            bucketFirst[p] = interval;
+        }
+        this.defaultRoute = defaultRoute;
+        this.ruleCount = ruleCount;
+        this.binRangeCount = binRangeCount;
+    }
+
+    // ── Lookup — any argument may be null ────────────────────────
+    public String route(String destination, String mti, String processingCode, String panBin) {
+        int txnType = txnType(processingCode);
+
+        if (destination != null) {
+            String route = match(destinationRules(destination), mti, txnType);
+            if (route != null) {
+                return route;
+            }
+        }
+        String route = match(anyDestination, mti, txnType);
+        if (route != null) {
+            return route;
+        }
+        route = binRoute(panBin);
+        return route != null ? route : defaultRoute;
+    }
+
+    public int ruleCount() {
+        return ruleCount;
+    }
+
+    public int binRangeCount() {
+        return binRangeCount;
+    }
+
+    public int binIntervalCount() {
+        return binIntervals.length;
+    }
+
+    // Compiled keys cover the as-written, upper and lower case
+    // spellings; anything else pays for one toUpperCase
+    private Map<String, String[]> destinationRules(String destination) {
+        Map<String, String[]> byMti = rules.get(destination);
+        return byMti != null ? byMti : rules.get(destination.toUpperCase(Locale.ROOT));
+    }
+
+    private static String match(Map<String, String[]> byMti, String mti, int txnType) {
+        if (byMti == null) {
+            return null;
+        }
+        if (mti != null) {
+            String route = pick(byMti.get(mti), txnType);
+            if (route != null) {
+                return route;
+            }
+        }
+        return pick(byMti.get(ANY), txnType);
+    }
+
+    private static String pick(String[] byTxnType, int txnType) {
+        if (byTxnType == null) {
+            return null;
+        }
+        if (txnType >= 0 && byTxnType[txnType] != null) {
+            return byTxnType[txnType];
+        }
+        return byTxnType[ANY_TXN_TYPE];
+    }
+
+    private String binRoute(String panBin) {
+        int bin = bin(panBin, '0');
+        if (bin < 0) {
+            return null;
+        }
+        // Last interval starting at or before bin, searched only
+        // among the intervals under its 4-digit prefix
+        int bucket = bin / BUCKET_WIDTH;
+        int from = bucketFirst[bucket];
+        long key = (long) bin << 32 | 0xFFFFFFFFL;   // above any interval starting at bin
+        int i = Arrays.binarySearch(binIntervals, from, bucketFirst[bucket + 1] + 1, key);
+        return binRoutes[(int) binIntervals[i >= 0 ? i : -i - 2]];
+    }
+
+    // Field 3's first two digits; -1 when absent or not numeric
+    private static int txnType(String processingCode) {
+        if (processingCode == null || processingCode.length() < 2) {
+            return -1;
+        }
+        int hi = processingCode.charAt(0) - '0';
+        int lo = processingCode.charAt(1) - '0';
+        return hi < 0 || hi > 9 || lo < 0 || lo > 9 ? -1 : hi * 10 + lo;
+    }
+
+    // Up to 8 leading digits, right-padded with pad; -1 if not digits
+    private static int bin(String digits, char pad) {
+        if (digits == null || digits.isEmpty()) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < BIN_DIGITS; i++) {
+            char c = i < digits.length() ? digits.charAt(i) : pad;
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    // ─────────────────────────────────────────────────────────────
+    // Compile — aliases maps route names (MS2, MS3) to routing keys;
+    // any other route is taken as a routing key as-is
+    // ─────────────────────────────────────────────────────────────
+    public static RoutingTable compile(RoutingTableDefinition definition,
+                                       Map<String, String> aliases) {
+        if (definition.getDefaultRoute() == null || definition.getDefaultRoute().isBlank()) {
+            throw new IllegalArgumentException("defaultRoute is required");
+        }
+        String defaultRoute = resolve(definition.getDefaultRoute(), aliases);
+
+        Map<String, Map<String, String[]>> rules = new HashMap<>();
+        for (Rule rule : definition.getRules()) {
+            addRule(rules, rule, resolve(rule.getRoute(), aliases));
+        }
+
+        List<BinRange> ranges = definition.getBinRanges();
+        List<int[]> bounds = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            BinRange range = ranges.get(i);
+            int from = bin(range.getFrom(), '0');
+            int to = bin(range.getTo(), '9');
+            if (from < 0 || to < 0 || from > to) {
+                throw new IllegalArgumentException("Bad BIN range " + range.getFrom()
+                        + ".." + range.getTo());
+            }
+            bounds.add(new int[] {from, to, i});
+        }
+        String[] rangeRoutes = new String[ranges.size()];
+        for (int i = 0; i < ranges.size(); i++) {
+            rangeRoutes[i] = resolve(ranges.get(i).getRoute(), aliases);
+        }
+        return flatten(rules, bounds, rangeRoutes, defaultRoute, definition.getRules().size());
+    }
+
+    private static void addRule(Map<String, Map<String, String[]>> rules, Rule rule,
+                                String route) {
+        String destination = wildcard(rule.getDestination());
+        String mti = wildcard(rule.getMti());
+        int txnType = ANY_TXN_TYPE;
+        if (!ANY.equals(wildcard(rule.getProcessingCode()))) {
+            txnType = txnType(rule.getProcessingCode());
+            if (txnType < 0) {
+                throw new IllegalArgumentException("Bad processingCode "
+                        + rule.getProcessingCode());
+            }
+        }
+        if (ANY.equals(destination) && ANY.equals(mti) && txnType == ANY_TXN_TYPE) {
+            throw new IllegalArgumentException("Rule matches everything — use defaultRoute");
+        }
+
+        List<String> spellings = ANY.equals(destination)
+                ? List.of(ANY)
+                : List.of(destination, destination.toUpperCase(Locale.ROOT),
+                          destination.toLowerCase(Locale.ROOT));
+        // Rules are keyed by the upper-case spelling; the others share its map
+        Map<String, String[]> byMti = rules.computeIfAbsent(
+                ANY.equals(destination) ? ANY : destination.toUpperCase(Locale.ROOT),
+                k -> new HashMap<>());
+        for (String spelling : spellings) {
+            rules.put(spelling, byMti);
+        }
+        byMti.computeIfAbsent(mti, k -> new String[TXN_TYPES + 1])[txnType] = route;
+    }
+
+    // Paints ranges widest first so narrower ones overwrite them, then
+    // reads the painted line back as disjoint intervals
+    private static RoutingTable flatten(Map<String, Map<String, String[]>> rules,
+                                        List<int[]> bounds, String[] rangeRoutes,
+                                        String defaultRoute, int ruleCount) {
+        bounds.sort(Comparator.comparingInt((int[] b) -> b[0] - b[1]));   // stable: file order kept
+
+        TreeMap<Integer, String> line = new TreeMap<>();
+        line.put(0, null);
+        for (int[] b : bounds) {
+            int from = b[0];
+            int end = b[1] + 1;
+            String after = line.floorEntry(end).getValue();
+            line.subMap(from, true, end, true).clear();
+            line.put(from, rangeRoutes[b[2]]);
+            if (end < BIN_SPACE) {
+                line.put(end, after);
+            }
+        }
+
+        int[] starts = new int[line.size()];
+        String[] routes = new String[line.size()];
+        int n = 0;
+        for (Map.Entry<Integer, String> e : line.entrySet()) {
+            if (n > 0 && Objects.equals(routes[n - 1], e.getValue())) {
+                continue;   // same route as the previous interval — merge
+            }
+            starts[n] = e.getKey();
+            routes[n] = e.getValue();
+            n++;
+        }
+        return new RoutingTable(rules, Arrays.copyOf(starts, n), Arrays.copyOf(routes, n),
+                defaultRoute, ruleCount, bounds.size());
+    }
+
+    private static String wildcard(String value) {
+        return value == null || value.isBlank() ? ANY : value.trim();
+    }
+
+    private static String resolve(String route, Map<String, String> aliases) {
+        if (route == null || route.isBlank()) {
+            throw new IllegalArgumentException("Route missing");
+        }
+        String key = aliases.get(route.trim().toUpperCase(Locale.ROOT));
+        return key != null ? key : route.trim();
+    }
+}
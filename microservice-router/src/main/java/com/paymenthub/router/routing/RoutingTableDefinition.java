@@ -0,0 +1,42 @@
+package com.paymenthub.router.routing;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Routing table as written in the JSON file. Compiled into a
+ * {@link RoutingTable} before use; never consulted per message.
+ *
+ * A route is MS2, MS3 (the router's configured routing keys) or a
+ * literal routing key.
+ */
+@Data
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class RoutingTableDefinition {
+
+    private String defaultRoute;
+    private List<Rule> rules = new ArrayList<>();
+    private List<BinRange> binRanges = new ArrayList<>();
+
+    // Any field left null matches everything
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class Rule {
+        private String destination;      // X-Destination, case-insensitive
+        private String mti;              // field 0, e.g. 0200
+        private String processingCode;   // field 3; first two digits = txn type
+        private String route;
+    }
+
+    // Inclusive; shorter than 8 digits means from → ...000, to → ...999
+    @Data
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    public static class BinRange {
+        private String from;
+        private String to;
+        private String route;
+    }
+}
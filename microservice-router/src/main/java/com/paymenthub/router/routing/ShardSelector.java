@@ -0,0 +1,42 @@
+package com.paymenthub.router.routing;
+
+import com.paymenthub.common.amqp.Shards;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * rabbitmq.sharding.enabled → MS2/MS3 traffic goes to
+ * &lt;routing key&gt;.&lt;shard&gt; instead of the shared queue, one shard
+ * per terminal, so a terminal's messages stay in order (a reversal
+ * can't overtake its original) while shards run in parallel.
+ * Other routing keys from the table are left as they are.
+ */
+@Component
+public class ShardSelector {
+
+    @Value("${rabbitmq.sharding.enabled:false}")
+    private boolean enabled;
+
+    @Value("${rabbitmq.sharding.shards:8}")
+    private int shards;
+
+    @Value("${rabbitmq.routing-keys.to-ms2}")
+    private String toMs2RoutingKey;
+
+    @Value("${rabbitmq.routing-keys.to-ms3}")
+    private String toMs3RoutingKey;
+
+    // No terminal (network messages, old MS1 builds) → spread by
+    // correlationId; there is no ordering to keep
+    public String shardRoutingKey(String routingKey, String terminalId, String correlationId) {
+        if (!enabled
+                || !(routingKey.equals(toMs2RoutingKey) || routingKey.equals(toMs3RoutingKey))) {
+            return routingKey;
+        }
+        String key = terminalId != null ? terminalId : correlationId;
+        if (key == null) {
+            return routingKey;
+        }
+        return Shards.name(routingKey, Shards.of(key, shards));
+    }
+}
@@ -1,13 +1,25 @@
 package com.paymenthub.router.service;
 
+import com.paymenthub.common.amqp.RoutingHeaders;
 import com.paymenthub.common.dto.RabbitMessage;
+import com.paymenthub.common.dto.TransactionResponse;
+import com.paymenthub.common.iso.IsoFieldExtractor;
+import com.paymenthub.common.iso.IsoFields;
+import com.paymenthub.router.backpressure.QueuePressureMonitor;
+import com.paymenthub.router.routing.RoutingEngine;
+import com.paymenthub.router.routing.ShardSelector;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+
 @Service
 @Slf4j
 public class RouterService {
@@ -18,35 +30,92 @@ public class RouterService {
     @Value("${rabbitmq.exchange}")
     private String exchange;
 
-    @Value("${rabbitmq.routing-keys.to-ms2}")
-    private String toMs2RoutingKey;
+    @Autowired
+    private RoutingEngine routingEngine;
+
+    @Autowired
+    private ShardSelector shardSelector;
+
+    @Autowired
+    private QueuePressureMonitor pressureMonitor;
+
+    @Value("${rabbitmq.routing-keys.to-ms1}")
+    private String toMs1RoutingKey;
+
+    @Value("${rabbitmq.routing-keys.overflow}")
+    private String overflowRoutingKey;
 
-    @Value("${rabbitmq.routing-keys.to-ms3}")
-    private String toMs3RoutingKey;
+    // Fallback for messages without routing headers: MTI, PAN,
+    // processing code, terminal
+    private static final IsoFieldExtractor ISO_FIELDS = new IsoFieldExtractor(0, 2, 3, 41);
 
     // ─────────────────────────────────────────────────────────────
     // Listens from MS1
-    // Reads destination field → forwards to correct MS
-    // No payload inspection. No business logic.
+    // Routes on the x-destination / x-mti / x-processing-code /
+    // x-pan-bin headers through the routing table → correct MS
+    // The body is never parsed: the same bytes (and content type /
+    // encoding) go out again. Messages without the headers (older
+    // MS1 builds) are decoded once to find the fields.
     // ─────────────────────────────────────────────────────────────
     @RabbitListener(
+        id = QueuePressureMonitor.ROUTE_LISTENER_ID,
         queues = "${rabbitmq.queues.from-ms1}",
-        concurrency = "10-50"
+        concurrency = "${rabbitmq.listener-concurrency:10-50}"
     )
-    public void route(RabbitMessage message) {
+    public void route(Message message) throws IOException {
         long start = System.currentTimeMillis();
 
-        String destination = message.getDestination();
-        String correlationId = message.getCorrelationId();
+        MessageProperties properties = message.getMessageProperties();
+        String destination = properties.getHeader(RoutingHeaders.DESTINATION);
+        String mti = properties.getHeader(RoutingHeaders.MTI);
+        String processingCode = properties.getHeader(RoutingHeaders.PROCESSING_CODE);
+        String panBin = properties.getHeader(RoutingHeaders.PAN_BIN);
+        String terminalId = properties.getHeader(RoutingHeaders.TERMINAL_ID);
+        String correlationId = properties.getCorrelationId();
+        if (destination == null) {
+            RabbitMessage decoded = (RabbitMessage)
+                    rabbitTemplate.getMessageConverter().fromMessage(message);
+            IsoFields isoFields = ISO_FIELDS.extract(decoded.getPlainJsonPayload());
+            destination = decoded.getDestination();
+            mti = isoFields.get(0);
+            processingCode = isoFields.get(3);
+            panBin = RoutingHeaders.panBin(isoFields.get(2));
+            terminalId = isoFields.get(41);
+            correlationId = decoded.getCorrelationId();
+        }
+
+        log.info("🔀 Router received | correlationId={} | destination={} | MTI={}",
+                correlationId, destination, mti);
 
-        log.info("🔀 Router received | correlationId={} | destination={}",
-                correlationId, destination);
+        // Current routing table — swapped live when the file changes
+        String routingKey = routingEngine.route(destination, mti, processingCode, panBin);
+        // Same terminal → same shard queue when sharding is on
+        routingKey = shardSelector.shardRoutingKey(routingKey, terminalId, correlationId);
 
-        // Decide where to send based on destination header
-        String routingKey = resolveRoutingKey(destination);
+        // Destination queue backed up past what it can drain in time
+        if (pressureMonitor.isSaturated(routingKey)) {
+            pressureMonitor.recordAction(routingKey);
+            if (pressureMonitor.policy() == QueuePressureMonitor.Policy.SHED) {
+                shed(properties.getReplyTo(), correlationId, routingKey);
+                return;
+            }
+            if (pressureMonitor.policy() == QueuePressureMonitor.Policy.OVERFLOW) {
+                log.warn("🚦 Diverted to overflow | {} → {}", correlationId, routingKey);
+                routingKey = overflowRoutingKey;
+            }
+            // PAUSE: the monitor has stopped this listener; what is
+            // already in hand still goes through
+        }
+        pressureMonitor.recordForwarded(routingKey);
 
-        // Forward the SAME message unchanged
-        rabbitTemplate.convertAndSend(exchange, routingKey, message);
+        // Received messages only carry receivedDeliveryMode — without
+        // this copy a persistent request would be re-published transient
+        properties.setDeliveryMode(properties.getReceivedDeliveryMode());
+
+        // Forward the SAME bytes unchanged
+        // Confirmed asynchronously (see RabbitMQConfig) — no wait here
+        rabbitTemplate.send(exchange, routingKey, message,
+                new CorrelationData(correlationId));
 
         log.info("✅ Routed in {}ms | {} → {}",
                 System.currentTimeMillis() - start,
@@ -55,29 +124,34 @@ public class RouterService {
     }
 
     // ─────────────────────────────────────────────────────────────
-    // Routing rules:
-    //   NPCI       → MS2
-    //   RUPAY      → MS2
-    //   VISA       → MS3
-    //   MASTERCARD → MS3
-    //   default    → MS2
+    // Overflow drain (policy: overflow) — started by the monitor only
+    // while no destination is saturated; re-routes from scratch
     // ─────────────────────────────────────────────────────────────
-    private String resolveRoutingKey(String destination) {
-        if (destination == null || destination.isBlank()) {
-            log.warn("⚠️ No destination set, defaulting to MS2");
-            return toMs2RoutingKey;
-        }
+    @RabbitListener(
+        id = QueuePressureMonitor.OVERFLOW_LISTENER_ID,
+        queues = "${rabbitmq.queues.overflow}",
+        autoStartup = "false"
+    )
+    public void drainOverflow(Message message) throws IOException {
+        route(message);
+    }
 
-        return switch (destination.toUpperCase()) {
-            case "NPCI",
-                 "RUPAY"      -> toMs2RoutingKey;
-            case "VISA",
-                 "MASTERCARD" -> toMs3RoutingKey;
-            default           -> {
-                log.warn("⚠️ Unknown destination '{}', defaulting to MS2",
-                        destination);
-                yield toMs2RoutingKey;
-            }
-        };
+    // ── Immediate decline — MS1 answers the client now instead of
+    // after its timeout; nothing reaches the saturated processor ──
+    private void shed(String replyTo, String correlationId, String routingKey) {
+        log.warn("🚦 Shed, destination saturated | {} → {}", correlationId, routingKey);
+        TransactionResponse decline = TransactionResponse.builder()
+                .correlationId(correlationId)
+                .status("FAILED")
+                .responseCode("91")            // 91 = Issuer/switch inoperative
+                .responseMessage("Destination busy - Please try again")
+                .timestamp(System.currentTimeMillis())
+                .build();
+        CorrelationData confirm = new CorrelationData(correlationId);
+        if (replyTo == null || replyTo.isBlank()) {
+            rabbitTemplate.convertAndSend(exchange, toMs1RoutingKey, decline, confirm);
+            return;
+        }
+        rabbitTemplate.convertAndSend("", replyTo, decline, confirm);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,298 @@
+package com.paymenthub.router.backpressure;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.QueueInformation;
+import org.springframework.amqp.rabbit.listener.MessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.RabbitListenerEndpointRegistry;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class QueuePressureMonitorTest {
+
+    private static final String MS2_QUEUE = "ms2.transaction.request";
+    private static final String MS3_QUEUE = "ms3.transaction.request";
+    private static final String MS2_KEY = "ms2.txn.request";
+    private static final String MS3_KEY = "ms3.txn.request";
+
+    private final AmqpAdmin amqpAdmin = mock(AmqpAdmin.class);
+    private final RabbitListenerEndpointRegistry listenerRegistry =
+            mock(RabbitListenerEndpointRegistry.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final QueuePressureMonitor monitor = new QueuePressureMonitor();
+
+    // max-depth 1000, resume under 700; wait judged from 100 messages up
+    private QueuePressureMonitor monitor(String policy, boolean sharding) {
+        ReflectionTestUtils.setField(monitor, "amqpAdmin", amqpAdmin);
+        ReflectionTestUtils.setField(monitor, "listenerRegistry", listenerRegistry);
+        ReflectionTestUtils.setField(monitor, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(monitor, "enabled", true);
+        ReflectionTestUtils.setField(monitor, "policyName", policy);
+        ReflectionTestUtils.setField(monitor, "maxDepth", 1000L);
+        ReflectionTestUtils.setField(monitor, "maxWaitMs", 15_000L);
+        ReflectionTestUtils.setField(monitor, "minDepth", 100L);
+        ReflectionTestUtils.setField(monitor, "resumeRatio", 0.7);
+        ReflectionTestUtils.setField(monitor, "toMs2Queue", MS2_QUEUE);
+        ReflectionTestUtils.setField(monitor, "toMs3Queue", MS3_QUEUE);
+        ReflectionTestUtils.setField(monitor, "toMs2RoutingKey", MS2_KEY);
+        ReflectionTestUtils.setField(monitor, "toMs3RoutingKey", MS3_KEY);
+        ReflectionTestUtils.setField(monitor, "sharding", sharding);
+        ReflectionTestUtils.setField(monitor, "shards", 2);
+        monitor.init();
+        when(amqpAdmin.getQueueInfo(MS3_QUEUE)).thenReturn(info(MS3_QUEUE, 0, 4));
+        return monitor;
+    }
+
+    private static QueueInformation info(String queue, int depth, int consumers) {
+        return new QueueInformation(queue, depth, consumers);
+    }
+
+    // The drain rate is per wall-clock ms; keep samples apart so every
+    // pair of them has one
+    private void sample() throws InterruptedException {
+        Thread.sleep(3);
+        monitor.sample();
+    }
+
+    private double gauge(String name, String queue) {
+        return meterRegistry.get(name).tag("queue", queue).gauge().value();
+    }
+
+    // A container whose running state follows stop()/start()
+    private MessageListenerContainer container(String listenerId) {
+        MessageListenerContainer container = mock(MessageListenerContainer.class);
+        AtomicBoolean running = new AtomicBoolean(true);
+        when(container.isRunning()).thenAnswer(invocation -> running.get());
+        doAnswer(invocation -> {
+            running.set(false);
+            return null;
+        }).when(container).stop();
+        doAnswer(invocation -> {
+            running.set(true);
+            return null;
+        }).when(container).start();
+        when(listenerRegistry.getListenerContainer(listenerId)).thenReturn(container);
+        return container;
+    }
+
+    @Test
+    void saturatesAtMaxDepthAndRecoversOnlyUnderResumeRatio() throws InterruptedException {
+        monitor("shed", false);
+        when(amqpAdmin.getQueueInfo(MS2_QUEUE)).thenReturn(
+                info(MS2_QUEUE, 500, 4),
+                info(MS2_QUEUE, 1000, 4),
+                info(MS2_QUEUE, 800, 4),
+                info(MS2_QUEUE, 700, 4),
+                info(MS2_QUEUE, 699, 4),
+                info(MS2_QUEUE, 900, 4));
+
+        sample();
+        assertThat(monitor.isSaturated(MS2_KEY)).isFalse();
+        sample();
+        assertThat(monitor.isSaturated(MS2_KEY)).isTrue();
+        assertThat(gauge("router.queue.saturated", MS2_QUEUE)).isEqualTo(1);
+        // Between resume and max: the verdict holds either way
+        sample();
+        assertThat(monitor.isSaturated(MS2_KEY)).isTrue();
+        sample();
+        assertThat(monitor.isSaturated(MS2_KEY)).isTrue();
+        sample();
+        assertThat(monitor.isSaturated(MS2_KEY)).isFalse();
+        sample();
+        assertThat(monitor.isSaturated(MS2_KEY)).isFalse();
+
+        assertThat(monitor.isSaturated(MS3_KEY)).isFalse();
+        assertThat(gauge("router.queue.depth", MS2_QUEUE)).isEqualTo(900);
+    }
+
+    @Test
+    void waitOnlyCountsFromMinDepth() throws InterruptedException {
+        monitor("shed", false);
+        // No consumers: nothing drains, so the wait is unbounded
+        when(amqpAdmin.getQueueInfo(MS2_QUEUE)).thenReturn(
+                info(MS2_QUEUE, 99, 0),
+                info(MS2_QUEUE, 100, 0),
+                info(MS2_QUEUE, 99, 4));
+
+        sample();
+        assertThat(monitor.isSaturated(MS2_KEY)).isFalse();
+        sample();
+        assertThat(monitor.isSaturated(MS2_KEY)).isTrue();
+        assertThat(gauge("router.queue.wait", MS2_QUEUE)).isEqualTo(3_600_000);
+        sample();
+        assertThat(monitor.isSaturated(MS2_KEY)).isFalse();
+    }
+
+    @Test
+    void forwardedMessagesCountTowardsTheDrainRate() throws InterruptedException {
+        monitor("shed", false);
+        when(amqpAdmin.getQueueInfo(MS2_QUEUE)).thenReturn(
+                info(MS2_QUEUE, 200, 4),
+                info(MS2_QUEUE, 200, 4));
+
+        sample();
+        // Depth unchanged although 50 arrived: the consumers took 50
+        for (int i = 0; i < 50; i++) {
+            monitor.recordForwarded(MS2_KEY);
+        }
+        sample();
+
+        assertThat(gauge("router.queue.drain.rate", MS2_QUEUE)).isPositive();
+        assertThat(monitor.isSaturated(MS2_KEY)).isFalse();
+    }
+
+    @Test
+    void drainRateIsAnEwmaOfDepthChangePlusArrivals() {
+        QueuePressure pressure = new QueuePressure(MS2_QUEUE);
+
+        pressure.sample(1000, 2, 10_000);
+        assertThat(pressure.drainPerSecond).isNegative();   // one sample: no rate yet
+        assertThat(pressure.estimatedWaitMs()).isZero();
+
+        pressure.forwarded.addAndGet(500);
+        pressure.sample(1200, 2, 11_000);                   // drained 300 in 1 s
+        assertThat(pressure.drainPerSecond).isEqualTo(300);
+        assertThat(pressure.estimatedWaitMs()).isEqualTo(4000);
+
+        pressure.sample(600, 2, 12_000);                    // drained 600 in 1 s
+        assertThat(pressure.drainPerSecond).isCloseTo(0.3 * 600 + 0.7 * 300, within(1e-9));
+        assertThat(pressure.estimatedWaitMs()).isEqualTo((long) (600 * 1000 / 390.0));
+
+        pressure.sample(900, 2, 14_000);                    // grew with no arrivals: 0 drained
+        assertThat(pressure.drainPerSecond).isCloseTo(0.7 * 390, within(1e-9));
+        assertThat(pressure.forwarded.get()).isZero();
+    }
+
+    @Test
+    void waitIsUnboundedWithoutConsumersAndZeroWhenEmpty() {
+        QueuePressure pressure = new QueuePressure(MS2_QUEUE);
+
+        pressure.sample(10, 0, 1000);
+        assertThat(pressure.estimatedWaitMs()).isEqualTo(Long.MAX_VALUE);
+        pressure.sample(0, 0, 2000);
+        assertThat(pressure.estimatedWaitMs()).isZero();
+    }
+
+    @Test
+    void pauseStopsTheMs1ListenerWhileSaturatedAndRestartsIt() throws InterruptedException {
+        monitor("pause", false);
+        MessageListenerContainer listener = container(QueuePressureMonitor.ROUTE_LISTENER_ID);
+        when(amqpAdmin.getQueueInfo(MS2_QUEUE)).thenReturn(
+                info(MS2_QUEUE, 10, 4),
+                info(MS2_QUEUE, 1200, 4),
+                info(MS2_QUEUE, 1100, 4),
+                info(MS2_QUEUE, 300, 4),
+                info(MS2_QUEUE, 200, 4));
+
+        sample();
+        verify(listener, never()).stop();
+        sample();
+        sample();
+        verify(listener, times(1)).stop();
+        assertThat(listener.isRunning()).isFalse();
+        sample();
+        sample();
+        verify(listener, times(1)).start();
+        assertThat(listener.isRunning()).isTrue();
+        // Pause holds traffic back instead of declining it
+        assertThat(monitor.policy()).isEqualTo(QueuePressureMonitor.Policy.PAUSE);
+    }
+
+    @Test
+    void overflowRunsTheOverflowDrainOnlyWhileNothingIsSaturated() throws InterruptedException {
+        monitor("overflow", false);
+        MessageListenerContainer drain = container(QueuePressureMonitor.OVERFLOW_LISTENER_ID);
+        when(amqpAdmin.getQueueInfo(MS2_QUEUE)).thenReturn(
+                info(MS2_QUEUE, 1000, 4),
+                info(MS2_QUEUE, 10, 4));
+
+        sample();
+        assertThat(drain.isRunning()).isFalse();
+        sample();
+        assertThat(drain.isRunning()).isTrue();
+        verify(listenerRegistry, never()).getListenerContainer(QueuePressureMonitor.ROUTE_LISTENER_ID);
+    }
+
+    @Test
+    void shedNeverTouchesListeners() throws InterruptedException {
+        monitor("shed", false);
+        when(amqpAdmin.getQueueInfo(MS2_QUEUE)).thenReturn(info(MS2_QUEUE, 5000, 4));
+
+        sample();
+
+        assertThat(monitor.isSaturated(MS2_KEY)).isTrue();
+        verifyNoInteractions(listenerRegistry);
+    }
+
+    @Test
+    void failedSampleKeepsTheLastVerdict() throws InterruptedException {
+        monitor("pause", false);
+        MessageListenerContainer listener = container(QueuePressureMonitor.ROUTE_LISTENER_ID);
+        when(amqpAdmin.getQueueInfo(MS2_QUEUE))
+                .thenReturn(info(MS2_QUEUE, 1000, 4))
+                .thenThrow(new AmqpIOException(new IOException("channel closed")));
+
+        sample();
+        sample();
+
+        assertThat(monitor.isSaturated(MS2_KEY)).isTrue();
+        // A broker hiccup doesn't resume MS1 traffic
+        verify(listener, never()).start();
+    }
+
+    @Test
+    void undeclaredQueueIsNotSaturated() throws InterruptedException {
+        monitor("shed", false);
+        when(amqpAdmin.getQueueInfo(MS2_QUEUE))
+                .thenReturn(info(MS2_QUEUE, 1000, 4))
+                .thenReturn(null);
+
+        sample();
+        sample();
+
+        assertThat(monitor.isSaturated(MS2_KEY)).isFalse();
+    }
+
+    @Test
+    void shardQueuesAreTrackedUnderTheirOwnRoutingKeys() throws InterruptedException {
+        monitor("shed", true);
+        when(amqpAdmin.getQueueInfo(anyString()))
+                .thenAnswer(invocation -> info(invocation.getArgument(0), 0, 1));
+        when(amqpAdmin.getQueueInfo("ms3.transaction.request.1"))
+                .thenReturn(info("ms3.transaction.request.1", 2000, 1));
+
+        sample();
+
+        assertThat(monitor.isSaturated("ms3.txn.request.1")).isTrue();
+        assertThat(monitor.isSaturated("ms3.txn.request.0")).isFalse();
+        assertThat(monitor.isSaturated(MS3_KEY)).isFalse();
+        verify(amqpAdmin).getQueueInfo("ms2.transaction.request.0");
+        verify(amqpAdmin).getQueueInfo("ms2.transaction.request.1");
+    }
+
+    @Test
+    void disabledNeverSamplesOrSaturates() {
+        monitor("shed", false);
+        ReflectionTestUtils.setField(monitor, "enabled", false);
+
+        monitor.sample();
+
+        assertThat(monitor.isSaturated(MS2_KEY)).isFalse();
+        verify(amqpAdmin, never()).getQueueInfo(MS2_QUEUE);
+    }
+}
@@ -0,0 +1,119 @@
+package com.paymenthub.router.routing;
+
+import com.paymenthub.router.routing.RoutingTableDefinition.BinRange;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * BIN lookup cost against table size: RoutingTable.route with no rule
+ * match, so every call goes through the BIN index, for 10 up to 250k
+ * overlapping ranges. A plain binary search over a sorted array of the
+ * same interval count is printed alongside for comparison.
+ *
+ * Not a test — run by hand:
+ *
+ *   mvn -pl microservice-router test-compile
+ *   java -cp target/test-classes:target/classes:$(deps) \
+ *        com.paymenthub.router.routing.RoutingTableBenchmark [seconds=2]
+ *
+ * Ranges start anywhere in the 8-digit space with log-uniform widths
+ * (1 .. 1,000,000 BINs), so wide ranges are overlapped by narrow ones
+ * the way issuer tables are. Lookups are random 8-digit BINs.
+ */
+public final class RoutingTableBenchmark {
+
+    private static final int[] RANGE_COUNTS = { 10, 1_000, 10_000, 100_000, 250_000 };
+    private static final int PROBES = 1 << 16;
+
+    private RoutingTableBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 2;
+        Random random = new Random(20);
+
+        String[] bins = new String[PROBES];
+        int[] binValues = new int[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            binValues[i] = random.nextInt(100_000_000);
+            bins[i] = String.format("%08d", binValues[i]);
+        }
+
+        System.out.printf("%9s %10s %11s %11s %15s%n",
+                "ranges", "intervals", "compile ms", "lookup ns", "bsearch ns");
+        for (int count : RANGE_COUNTS) {
+            RoutingTableDefinition definition = new RoutingTableDefinition();
+            definition.setDefaultRoute("MS2");
+            definition.setBinRanges(ranges(random, count));
+
+            long compileStart = System.nanoTime();
+            RoutingTable table = RoutingTable.compile(definition, Map.of());
+            double compileMs = (System.nanoTime() - compileStart) / 1e6;
+
+            int[] sorted = random.ints(table.binIntervalCount(), 0, 100_000_000).sorted().toArray();
+
+            lookups(table, bins, seconds);     // warm-up
+            double lookupNs = lookups(table, bins, seconds);
+            bsearch(sorted, binValues, seconds);
+            double bsearchNs = bsearch(sorted, binValues, seconds);
+
+            System.out.printf("%9d %10d %11.1f %11.1f %15.1f%n",
+                    count, table.binIntervalCount(), compileMs, lookupNs, bsearchNs);
+        }
+    }
+
+    private static List<BinRange> ranges(Random random, int count) {
+        List<BinRange> ranges = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int width = (int) Math.pow(10, random.nextDouble() * 6);
+            int from = random.nextInt(100_000_000 - width);
+            BinRange range = new BinRange();
+            range.setFrom(String.format("%08d", from));
+            range.setTo(String.format("%08d", from + width - 1));
+            range.setRoute("route." + (i % 16));
+            ranges.add(range);
+        }
+        return ranges;
+    }
+
+    // ns per route() call
+    private static double lookups(RoutingTable table, String[] bins, long seconds) {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long calls = 0;
+        int sink = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() < deadline) {
+            for (String bin : bins) {
+                sink += table.route(null, null, null, bin).length();
+            }
+            calls += bins.length;
+        }
+        double ns = (double) (System.nanoTime() - start) / calls;
+        if (sink == 42) {
+            System.out.print("");
+        }
+        return ns;
+    }
+
+    private static double bsearch(int[] sorted, int[] bins, long seconds) {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long calls = 0;
+        int sink = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() < deadline) {
+            for (int bin : bins) {
+                sink += Arrays.binarySearch(sorted, bin);
+            }
+            calls += bins.length;
+        }
+        double ns = (double) (System.nanoTime() - start) / calls;
+        if (sink == 42) {
+            System.out.print("");
+        }
+        return ns;
+    }
+}
@@ -0,0 +1,190 @@
+package com.paymenthub.router.routing;
+
+import com.paymenthub.router.routing.RoutingTableDefinition.BinRange;
+import com.paymenthub.router.routing.RoutingTableDefinition.Rule;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class RoutingTableTest {
+
+    private static final Map<String, String> ALIASES =
+            Map.of("MS2", "router.to.ms2", "MS3", "router.to.ms3");
+
+    private static Rule rule(String destination, String mti, String processingCode, String route) {
+        Rule rule = new Rule();
+        rule.setDestination(destination);
+        rule.setMti(mti);
+        rule.setProcessingCode(processingCode);
+        rule.setRoute(route);
+        return rule;
+    }
+
+    private static BinRange range(String from, String to, String route) {
+        BinRange range = new BinRange();
+        range.setFrom(from);
+        range.setTo(to);
+        range.setRoute(route);
+        return range;
+    }
+
+    private static RoutingTable table(List<Rule> rules, List<BinRange> binRanges) {
+        RoutingTableDefinition definition = new RoutingTableDefinition();
+        definition.setDefaultRoute("MS2");
+        definition.setRules(rules);
+        definition.setBinRanges(binRanges);
+        return RoutingTable.compile(definition, ALIASES);
+    }
+
+    private static RoutingTable bins(BinRange... ranges) {
+        return table(List.of(), List.of(ranges));
+    }
+
+    // ── Rules ────────────────────────────────────────────────────
+    @Test
+    void mostSpecificRuleWins() {
+        RoutingTable table = table(List.of(
+                rule("VISA", null, null, "MS3"),
+                rule("VISA", "0200", null, "visa.purchase"),
+                rule("VISA", "0200", "31", "visa.balance"),
+                rule(null, "0800", null, "network.mgmt")), List.of());
+
+        assertThat(table.route("VISA", "0200", "310000", null)).isEqualTo("visa.balance");
+        assertThat(table.route("VISA", "0200", "000000", null)).isEqualTo("visa.purchase");
+        assertThat(table.route("VISA", "0100", "000000", null)).isEqualTo("router.to.ms3");
+        // A destination rule beats an any-destination one
+        assertThat(table.route("VISA", "0800", null, null)).isEqualTo("router.to.ms3");
+        assertThat(table.route("NPCI", "0800", null, null)).isEqualTo("network.mgmt");
+        assertThat(table.ruleCount()).isEqualTo(4);
+    }
+
+    @Test
+    void destinationIsCaseInsensitive() {
+        RoutingTable table = table(List.of(rule("Visa", null, null, "MS3")), List.of());
+        assertThat(table.route("VISA", null, null, null)).isEqualTo("router.to.ms3");
+        assertThat(table.route("visa", null, null, null)).isEqualTo("router.to.ms3");
+        assertThat(table.route("vIsA", null, null, null)).isEqualTo("router.to.ms3");
+    }
+
+    @Test
+    void unmatchedFallsBackToBinThenDefault() {
+        RoutingTable table = table(List.of(rule("VISA", null, null, "MS3")),
+                List.of(range("4", "4", "bin.route")));
+        assertThat(table.route("VISA", null, null, "41111111")).isEqualTo("router.to.ms3");
+        assertThat(table.route("AMEX", null, null, "41111111")).isEqualTo("bin.route");
+        assertThat(table.route("AMEX", null, null, "51111111")).isEqualTo("router.to.ms2");
+        assertThat(table.route(null, null, null, null)).isEqualTo("router.to.ms2");
+        assertThat(table.route(null, null, "xx", "4abc")).isEqualTo("router.to.ms2");
+    }
+
+    // ── BIN ranges ───────────────────────────────────────────────
+    @Test
+    void shortBoundsPadToAFullRange() {
+        RoutingTable table = bins(range("4", "4", "visa"));
+        assertThat(table.route(null, null, null, "40000000")).isEqualTo("visa");
+        assertThat(table.route(null, null, null, "49999999")).isEqualTo("visa");
+        assertThat(table.route(null, null, null, "4")).isEqualTo("visa");
+        assertThat(table.route(null, null, null, "39999999")).isEqualTo("router.to.ms2");
+        assertThat(table.route(null, null, null, "50000000")).isEqualTo("router.to.ms2");
+        // null before, the range, null after
+        assertThat(table.binIntervalCount()).isEqualTo(3);
+    }
+
+    @Test
+    void narrowerRangeWinsWhateverTheFileOrder() {
+        for (boolean narrowFirst : new boolean[] { true, false }) {
+            BinRange wide = range("4", "4", "wide");
+            BinRange narrow = range("411111", "411111", "narrow");
+            RoutingTable table = narrowFirst ? bins(narrow, wide) : bins(wide, narrow);
+
+            assertThat(table.route(null, null, null, "41111100")).isEqualTo("narrow");
+            assertThat(table.route(null, null, null, "41111199")).isEqualTo("narrow");
+            assertThat(table.route(null, null, null, "41111099")).isEqualTo("wide");
+            assertThat(table.route(null, null, null, "41111200")).isEqualTo("wide");
+        }
+    }
+
+    @Test
+    void equalWidthsGoToTheLaterRange() {
+        RoutingTable table = bins(range("4000", "4999", "first"), range("4000", "4999", "second"));
+        assertThat(table.route(null, null, null, "45000000")).isEqualTo("second");
+        assertThat(table.binRangeCount()).isEqualTo(2);
+    }
+
+    @Test
+    void adjacentRangesWithOneRouteMerge() {
+        RoutingTable table = bins(range("40", "44", "visa"), range("45", "49", "visa"));
+        assertThat(table.binIntervalCount()).isEqualTo(3);
+        assertThat(table.route(null, null, null, "44999999")).isEqualTo("visa");
+        assertThat(table.route(null, null, null, "45000000")).isEqualTo("visa");
+    }
+
+    @Test
+    void rangeReachingTheTopOfTheBinSpace() {
+        RoutingTable table = bins(range("9", "9", "top"), range("0", "0", "bottom"));
+        assertThat(table.route(null, null, null, "99999999")).isEqualTo("top");
+        assertThat(table.route(null, null, null, "00000000")).isEqualTo("bottom");
+        assertThat(table.route(null, null, null, "50000000")).isEqualTo("router.to.ms2");
+    }
+
+    @Test
+    void flattenMatchesABruteForceScan() {
+        Random random = new Random(20);
+        for (int round = 0; round < 50; round++) {
+            List<BinRange> ranges = new ArrayList<>();
+            List<int[]> bounds = new ArrayList<>();
+            for (int i = 0; i < 12; i++) {
+                // Clustered under a few prefixes so ranges overlap and share buckets
+                int from = 41_000_000 + random.nextInt(200_000);
+                int to = from + random.nextInt(random.nextBoolean() ? 50 : 100_000);
+                ranges.add(range(String.valueOf(from), String.valueOf(to), "r" + i));
+                bounds.add(new int[] { from, to });
+            }
+            RoutingTable table = bins(ranges.toArray(new BinRange[0]));
+
+            for (int probe = 0; probe < 2_000; probe++) {
+                int bin = 40_999_990 + random.nextInt(320_000);
+                assertThat(table.route(null, null, null, String.valueOf(bin)))
+                        .as("BIN %d, round %d", bin, round)
+                        .isEqualTo(bruteForce(bounds, bin));
+            }
+        }
+    }
+
+    // Narrowest covering range; ties go to the later one
+    private static String bruteForce(List<int[]> bounds, int bin) {
+        int best = -1;
+        for (int i = 0; i < bounds.size(); i++) {
+            int[] b = bounds.get(i);
+            if (bin >= b[0] && bin <= b[1]
+                    && (best < 0 || b[1] - b[0] <= bounds.get(best)[1] - bounds.get(best)[0])) {
+                best = i;
+            }
+        }
+        return best < 0 ? "router.to.ms2" : "r" + best;
+    }
+
+    // ── Compile errors ───────────────────────────────────────────
+    @Test
+    void rejectsBadDefinitions() {
+        RoutingTableDefinition noDefault = new RoutingTableDefinition();
+        assertThatThrownBy(() -> RoutingTable.compile(noDefault, ALIASES))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> bins(range("5", "4", "backwards")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> bins(range("4x", "4", "letters")))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> table(List.of(rule(null, null, null, "MS3")), List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> table(List.of(rule("VISA", null, "ab", "MS3")), List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> table(List.of(rule("VISA", null, null, " ")), List.of()))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,174 @@
+package com.paymenthub.router.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.paymenthub.common.amqp.PaymentHubMessageConverter;
+import com.paymenthub.common.amqp.RoutingHeaders;
+import com.paymenthub.common.dto.RabbitMessage;
+import com.paymenthub.router.backpressure.QueuePressureMonitor;
+import com.paymenthub.router.routing.RoutingEngine;
+import com.paymenthub.router.routing.ShardSelector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.LoggerFactory;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Router per-message cost: RouterService.route(Message) forwarding the
+ * received bytes (user-019) against the old path that decoded the body
+ * into a RabbitMessage and re-encoded it for convertAndSend.
+ *
+ * Both run in-process against a RabbitTemplate whose send() only counts,
+ * so the numbers are the router's own CPU per message — routing table,
+ * shard and pressure checks included — without broker or network time.
+ * Logging is turned down to WARN for both.
+ *
+ * Not a test — run by hand:
+ *
+ *   mvn -pl microservice-router test-compile
+ *   java -cp target/test-classes:target/classes:$(deps) \
+ *        com.paymenthub.router.service.RouterPassthroughBenchmark [seconds=3]
+ *
+ * The request is a 16-field ISO 0200 as MS1 sends it, in both body
+ * formats (JSON, and the binary codec with converter.binary-outbound).
+ */
+public final class RouterPassthroughBenchmark {
+
+    private static final String ISO = "{\"0\":\"0200\",\"2\":\"4111111111111111\","
+            + "\"3\":\"000000\",\"4\":\"000000001000\",\"7\":\"1017203005\","
+            + "\"11\":\"123456\",\"12\":\"203005\",\"13\":\"1017\",\"14\":\"2812\","
+            + "\"22\":\"051\",\"25\":\"00\",\"35\":\"4111111111111111=28121010000000000000\","
+            + "\"37\":\"629020123456\",\"41\":\"TERM0001\",\"42\":\"MERCHANT0000001\","
+            + "\"49\":\"356\"}";
+
+    private static final AtomicLong SENT = new AtomicLong();
+
+    private RouterPassthroughBenchmark() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        long seconds = args.length > 0 ? Long.parseLong(args[0]) : 3;
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+
+        System.out.printf("%-7s %-18s %7s %12s %10s%n",
+                "body", "path", "bytes", "msg/s", "µs/msg");
+        for (boolean binary : new boolean[] { false, true }) {
+            MessageConverter converter = new PaymentHubMessageConverter(
+                    new Jackson2JsonMessageConverter(new ObjectMapper()), binary);
+            RouterService router = router(converter);
+            RoutingEngine engine = (RoutingEngine) ReflectionTestUtils.getField(router,
+                    "routingEngine");
+            Message request = request(converter);
+            String body = binary ? "binary" : "json";
+
+            Runnable passthrough = () -> {
+                try {
+                    router.route(request);
+                } catch (Exception e) {
+                    throw new IllegalStateException(e);
+                }
+            };
+            // Before user-019: listener decodes, convertAndSend re-encodes
+            Runnable decodeReencode = () -> {
+                RabbitMessage decoded = (RabbitMessage) converter.fromMessage(request);
+                String routingKey = engine.route(decoded.getDestination(), null, null, null);
+                Message out = converter.toMessage(decoded, new MessageProperties());
+                SENT.addAndGet(out.getBody().length + routingKey.length());
+            };
+
+            for (Object[] path : new Object[][] {
+                    { "decode + re-encode", decodeReencode },
+                    { "passthrough", passthrough } }) {
+                Runnable work = (Runnable) path[1];
+                run(work, seconds);   // warm-up
+                double perSecond = run(work, seconds);
+                System.out.printf("%-7s %-18s %7d %12.0f %10.2f%n",
+                        body, path[0], request.getBody().length, perSecond, 1e6 / perSecond);
+            }
+        }
+    }
+
+    private static double run(Runnable work, long seconds) {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        long ops = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() < deadline) {
+            for (int i = 0; i < 1000; i++) {
+                work.run();
+            }
+            ops += 1000;
+        }
+        return ops / ((System.nanoTime() - start) / 1e9);
+    }
+
+    // The request as MS1 publishes it: body from the shared converter,
+    // routing headers set by TransactionService.amqpProperties
+    private static Message request(MessageConverter converter) {
+        RabbitMessage message = RabbitMessage.builder()
+                .correlationId("c0ffee00-0000-4000-8000-000000000001")
+                .plainJsonPayload(ISO)
+                .source("TERMINAL-001")
+                .destination("VISA")
+                .timestamp(System.currentTimeMillis())
+                .replyTo("ms1.reply.gw-1")
+                .build();
+        MessageProperties properties = new MessageProperties();
+        properties.setCorrelationId(message.getCorrelationId());
+        properties.setReplyTo(message.getReplyTo());
+        properties.setHeader(RoutingHeaders.DESTINATION, "VISA");
+        properties.setHeader(RoutingHeaders.MTI, "0200");
+        properties.setHeader(RoutingHeaders.PROCESSING_CODE, "000000");
+        properties.setHeader(RoutingHeaders.PAN_BIN, "41111111");
+        properties.setHeader(RoutingHeaders.TERMINAL_ID, "TERM0001");
+        return converter.toMessage(message, properties);
+    }
+
+    private static RouterService router(MessageConverter converter) {
+        RabbitTemplate template = new RabbitTemplate() {
+            @Override
+            public void send(String exchange, String routingKey, Message message,
+                             CorrelationData correlationData) {
+                SENT.addAndGet(message.getBody().length);
+            }
+        };
+        template.setMessageConverter(converter);
+
+        RoutingEngine engine = new RoutingEngine();
+        ReflectionTestUtils.setField(engine, "tableFile", "");
+        ReflectionTestUtils.setField(engine, "toMs2RoutingKey", "ms2.txn.request");
+        ReflectionTestUtils.setField(engine, "toMs3RoutingKey", "ms3.txn.request");
+        ReflectionTestUtils.invokeMethod(engine, "init");
+
+        ShardSelector shards = new ShardSelector();
+        ReflectionTestUtils.setField(shards, "toMs2RoutingKey", "ms2.txn.request");
+        ReflectionTestUtils.setField(shards, "toMs3RoutingKey", "ms3.txn.request");
+
+        QueuePressureMonitor monitor = new QueuePressureMonitor();
+        ReflectionTestUtils.setField(monitor, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(monitor, "enabled", true);
+        ReflectionTestUtils.setField(monitor, "policyName", "shed");
+        ReflectionTestUtils.setField(monitor, "toMs2Queue", "ms2.transaction.request");
+        ReflectionTestUtils.setField(monitor, "toMs3Queue", "ms3.transaction.request");
+        ReflectionTestUtils.setField(monitor, "toMs2RoutingKey", "ms2.txn.request");
+        ReflectionTestUtils.setField(monitor, "toMs3RoutingKey", "ms3.txn.request");
+        ReflectionTestUtils.invokeMethod(monitor, "init");
+
+        RouterService router = new RouterService();
+        ReflectionTestUtils.setField(router, "rabbitTemplate", template);
+        ReflectionTestUtils.setField(router, "exchange", "payment.hub.exchange");
+        ReflectionTestUtils.setField(router, "routingEngine", engine);
+        ReflectionTestUtils.setField(router, "shardSelector", shards);
+        ReflectionTestUtils.setField(router, "pressureMonitor", monitor);
+        ReflectionTestUtils.setField(router, "toMs1RoutingKey", "ms1.txn.response");
+        ReflectionTestUtils.setField(router, "overflowRoutingKey", "router.txn.overflow");
+        return router;
+    }
+}